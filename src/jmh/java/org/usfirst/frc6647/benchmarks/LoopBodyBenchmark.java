@@ -0,0 +1,137 @@
+package org.usfirst.frc6647.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.usfirst.frc6647.can.OutputStage;
+import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.subsystems.Chassis;
+import org.usfirst.frc6647.subsystems.Gyro;
+import org.usfirst.frc6647.subsystems.Turret;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+import org.usfirst.frc6647.util.ArcadeDrive;
+import org.usfirst.frc6647.util.CollisionLatch;
+import org.usfirst.frc6647.util.Odometry;
+import org.usfirst.frc6647.util.SensorSnapshot;
+import org.usfirst.frc6647.util.SharedState;
+import org.usfirst.frc6647.util.ShotMap;
+import org.usfirst.frc6647.util.TurretAimLoop;
+
+/**
+ * Benchmarks the bodies of the {@link Chassis} drive loop, the {@link Gyro}
+ * collision detection and the {@link Turret} auto-aim loop, through the same
+ * {@link ArcadeDrive}, {@link CollisionLatch} and {@link TurretAimLoop} they run,
+ * fed from a {@link SensorSnapshot} and writing into {@link StandIns}.
+ *
+ * <p>
+ * Run with the 'gc' profiler (enabled in 'build.gradle'), every benchmark here
+ * should report an allocation rate of 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoopBodyBenchmark {
+	private SensorSnapshot snapshot;
+	private int accelXSlot, accelYSlot;
+
+	private final SharedState intent = new SharedState(1);
+	private final SharedState aimIntent = new SharedState(TurretAimLoop.intentSlots);
+	private final SharedState aimState = new SharedState(TurretAimLoop.stateSlots);
+	/** Never started, so records are dropped once its ring buffer is full, like a stalled drain. */
+	private final TelemetryRecorder recorder = new TelemetryRecorder();
+
+	private final StandIns.Falcon frontLeft = new StandIns.Falcon(), frontRight = new StandIns.Falcon(),
+			backLeft = new StandIns.Falcon(), backRight = new StandIns.Falcon();
+	private final StandIns.SparkMax turret = new StandIns.SparkMax();
+
+	private final OutputStage outputs = new OutputStage("benchmark", Constants.OutputConstants.keepaliveSeconds);
+	private final ArcadeDrive arcade = new ArcadeDrive(outputs, outputs.add((mode, value, aux) -> {
+		frontLeft.set(value, aux);
+		backLeft.set(value, aux);
+	}, Constants.OutputConstants.percentTolerance, 2, 2), outputs.add((mode, value, aux) -> {
+		frontRight.set(value, aux);
+		backRight.set(value, aux);
+	}, Constants.OutputConstants.percentTolerance, 2, 2), 0, this::getDriveTimestamp);
+
+	private final CollisionLatch collisions = new CollisionLatch(Constants.GyroConstants.collisionThresholdJerk,
+			Constants.GyroConstants.jerkWindow, Constants.GyroConstants.collisionLatchSeconds);
+	private TurretAimLoop aim;
+	private final ShotMap shotMap = new ShotMap(new double[] { 1.5, 3.05, 5.3, 7.6 },
+			new double[] { 1800, 2100, 2750, 3555 }, new double[] { 20, 50, 59, 57 });
+
+	private double forward = 0, timestamp = 0, sensorTimestamp = 0, driveTimestamp = 0;
+
+	@Setup
+	public void setup() {
+		var navX = new StandIns.AHRS();
+		var limelight = new StandIns.SparkMax();
+
+		snapshot = new SensorSnapshot(System::nanoTime);
+		accelXSlot = snapshot.register("gyroWorldLinearAccelX", navX::getWorldLinearAccelX);
+		accelYSlot = snapshot.register("gyroWorldLinearAccelY", navX::getWorldLinearAccelY);
+		var turretPositionSlot = snapshot.register("turretPosition", new StandIns.SparkMax()::getPosition);
+		var horizontalOffsetSlot = snapshot.register("limelightHorizontalOffset", limelight::getOutputCurrent);
+		var verticalOffsetSlot = snapshot.register("limelightVerticalOffset", limelight::getOutputCurrent);
+		var targetFoundSlot = snapshot.registerBoolean("limelightTargetFound", () -> true);
+		var latencySlot = snapshot.register("limelightLatency", () -> 20);
+		var arrivalSlot = snapshot.register("limelightArrival", () -> timestamp - 0.01);
+
+		var odometry = new Odometry(() -> 0, () -> 0, () -> 1.5, () -> 1.5, () -> 0);
+		aim = new TurretAimLoop(snapshot.newReader(), turretPositionSlot, horizontalOffsetSlot, verticalOffsetSlot,
+				targetFoundSlot, latencySlot, arrivalSlot, 1, aimIntent, aimState, odometry, turret::setReference,
+				recorder);
+
+		aimIntent.setBoolean(TurretAimLoop.aimingSlot, true);
+		aim.start(timestamp);
+	}
+
+	private double getDriveTimestamp() {
+		return driveTimestamp;
+	}
+
+	@Benchmark
+	public double chassisDrive() {
+		forward = (forward + 0.001) % 1;
+		driveTimestamp += Constants.LooperConstants.period;
+
+		// A new packet every other iteration, like the Driver Station's 20ms.
+		arcade.drive(driveTimestamp, forward, 1 - forward, intent.getBoolean(0),
+				Math.floor(driveTimestamp / 0.02) * 0.02);
+
+		return frontLeft.output;
+	}
+
+	@Benchmark
+	public boolean gyroCollision() {
+		// Stands in for the SensorLoop, at the navX's 200Hz update rate.
+		snapshot.refresh();
+		sensorTimestamp += 0.005;
+		collisions.update(sensorTimestamp, snapshot.get(accelXSlot), snapshot.get(accelYSlot), sensorTimestamp);
+
+		return collisions.isLatched(sensorTimestamp);
+	}
+
+	@Benchmark
+	public double turretAim() {
+		snapshot.refresh();
+		timestamp += Constants.LooperConstants.period;
+
+		aim.loop(timestamp);
+
+		return turret.reference;
+	}
+
+	@Benchmark
+	public double shotMapLookup() {
+		forward = (forward + 0.01) % 9;
+		shotMap.update(forward);
+
+		return shotMap.getRPM() + shotMap.getAngle();
+	}
+}
@@ -0,0 +1,63 @@
+package org.usfirst.frc6647.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.usfirst.frc6647.robot.Constants.SensorConstants;
+import org.usfirst.frc6647.util.SensorSnapshot;
+
+/**
+ * Benchmarks a {@link SensorSnapshot#refresh()}, with the same sensors the robot
+ * registers, averaged over both refreshes reading the slower ones and those that
+ * don't.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SensorSnapshotBenchmark {
+	private SensorSnapshot snapshot;
+
+	@Setup
+	public void setup() {
+		snapshot = new SensorSnapshot(System::nanoTime);
+
+		var divider = SensorConstants.slowDivider;
+
+		for (var name : new String[] { "frontLeft", "frontRight", "backLeft", "backRight" }) {
+			var falcon = new StandIns.Falcon();
+			snapshot.register(name + "Position", falcon::getSelectedSensorPosition, divider);
+			snapshot.register(name + "Velocity", falcon::getSelectedSensorVelocity, divider);
+		}
+
+		var turret = new StandIns.SparkMax();
+		snapshot.register("turretPosition", turret::getPosition, divider);
+		snapshot.register("limelightHorizontalOffset", turret::getVelocity, divider);
+		snapshot.register("limelightVerticalOffset", turret::getVelocity, divider);
+		snapshot.registerBoolean("limelightTargetFound", () -> true, divider);
+		snapshot.register("limelightLatency", turret::getVelocity, divider);
+		snapshot.register("limelightArrival", turret::getVelocity, divider);
+
+		var shooter = new StandIns.SparkMax();
+		snapshot.register("shooterVelocity", shooter::getVelocity, divider);
+
+		for (var name : new String[] { "indexerLeft", "indexerRight", "pulleyFront", "pulleyBack" })
+			snapshot.register(name + "Current", new StandIns.SparkMax()::getOutputCurrent, divider);
+
+		var navX = new StandIns.AHRS();
+		snapshot.register("gyroYaw", navX::getYaw);
+		snapshot.register("gyroWorldLinearAccelX", navX::getWorldLinearAccelX);
+		snapshot.register("gyroWorldLinearAccelY", navX::getWorldLinearAccelY);
+	}
+
+	@Benchmark
+	public double refresh() {
+		snapshot.refresh();
+		return snapshot.getTimestamp();
+	}
+}
@@ -0,0 +1,74 @@
+package org.usfirst.frc6647.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.usfirst.frc6647.util.SharedState;
+
+/**
+ * Compares a {@link SharedState} handoff against the monitor locks it replaced,
+ * with one writer (the command scheduler) and two readers (the Looper threads)
+ * contending for the same state. Run with '-bm sample' to compare worst-case
+ * latencies.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SharedStateBenchmark {
+	private final SharedState state = new SharedState(2);
+
+	private boolean inverted = false;
+	private double setpoint = 0;
+
+	@Benchmark
+	@Group("sharedState")
+	@GroupThreads(1)
+	public void sharedStateWrite() {
+		state.beginWrite();
+		state.putBoolean(0, !state.peekBoolean(0));
+		state.putDouble(1, state.peekDouble(1) + 1);
+		state.endWrite();
+	}
+
+	@Benchmark
+	@Group("sharedState")
+	@GroupThreads(2)
+	public double sharedStateRead() {
+		long stamp;
+		boolean flag;
+		double value;
+
+		do {
+			stamp = state.readBegin();
+			flag = state.peekBoolean(0);
+			value = state.peekDouble(1);
+		} while (!state.readValidate(stamp));
+
+		if ((value % 2 == 0) == flag) // Both slots are always written together.
+			throw new IllegalStateException("Torn read");
+
+		return value;
+	}
+
+	@Benchmark
+	@Group("monitor")
+	@GroupThreads(1)
+	public synchronized void monitorWrite() {
+		inverted = !inverted;
+		setpoint++;
+	}
+
+	@Benchmark
+	@Group("monitor")
+	@GroupThreads(2)
+	public synchronized double monitorRead() {
+		return inverted ? setpoint : -setpoint;
+	}
+}
@@ -0,0 +1,74 @@
+package org.usfirst.frc6647.benchmarks;
+
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperAHRS;
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperFalcon;
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperSparkMax;
+
+/**
+ * Desktop stand-ins for the {@link HyperFalcon}, {@link HyperSparkMax} and
+ * {@link HyperAHRS} reads and writes done inside our loops. The real classes
+ * can't be created off the roboRIO, so these return synthetic, ever-changing
+ * values to keep the JIT from folding them away.
+ */
+final class StandIns {
+	private StandIns() {
+	}
+
+	/** Stand-in for a {@link HyperFalcon}. */
+	static class Falcon {
+		private int position = 0;
+		double output, rotation;
+
+		int getSelectedSensorPosition() {
+			return position += 7;
+		}
+
+		int getSelectedSensorVelocity() {
+			return position & 0x3FF;
+		}
+
+		void set(double output, double rotation) {
+			this.output = output;
+			this.rotation = rotation;
+		}
+	}
+
+	/** Stand-in for a {@link HyperSparkMax}, and its encoder. */
+	static class SparkMax {
+		private double position = 0;
+		double reference;
+
+		double getPosition() {
+			return position += 0.01;
+		}
+
+		double getVelocity() {
+			return 3000 + Math.sin(position);
+		}
+
+		double getOutputCurrent() {
+			return 10 + (position % 1);
+		}
+
+		void setReference(double reference) {
+			this.reference = reference;
+		}
+	}
+
+	/** Stand-in for a {@link HyperAHRS}. */
+	static class AHRS {
+		private int sample = 0;
+
+		double getYaw() {
+			return sample % 360;
+		}
+
+		double getWorldLinearAccelX() {
+			return (++sample & 0x1F) * 0.01;
+		}
+
+		double getWorldLinearAccelY() {
+			return (sample & 0x0F) * 0.02;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package org.usfirst.frc6647.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.usfirst.frc6647.telemetry.Channel;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+
+/**
+ * Benchmarks the cost of recording a single sample into the
+ * {@link TelemetryRecorder}, as paid by the control loops. Nothing drains the
+ * ring buffer here, so most samples past the first few thousand are dropped;
+ * both paths are lock-free and should cost tens of nanoseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TelemetryRecorderBenchmark {
+	private final TelemetryRecorder recorder = new TelemetryRecorder();
+	private double value = 0;
+
+	@Benchmark
+	public void record() {
+		recorder.record(Channel.SHOOTER_VELOCITY, value++);
+	}
+
+	@Benchmark
+	@Threads(3)
+	public void recordContended() {
+		recorder.record(Channel.GYRO_YAW, value);
+	}
+}
@@ -0,0 +1,223 @@
+package org.usfirst.frc6647.can;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Status frame configuration of every motor controller declared in
+ * 'RobotMap.json'. Compiled at build time into 'RobotMap.bin' by the
+ * {@link RobotMapCompiler}, so the roboRIO reads a handful of bytes on startup
+ * instead of parsing JSON; 'RobotMap.json' is only parsed if the binary is
+ * missing, or was compiled from a different 'RobotMap.json'.
+ *
+ * <p>
+ * Binary layout (big-endian): the {@link #magic} string, the format
+ * {@link #version}, the CRC32 of the 'RobotMap.json' it was compiled from, the
+ * number of devices, and then each device: its subsystem and name (UTF), its
+ * {@link Type} ordinal (byte), its number of frames, and each frame's name
+ * (UTF) and period in milliseconds (int).
+ */
+public class DeviceConfig {
+	/** Magic string at the start of every compiled robot map. */
+	static final String magic = "V6647MAP";
+	/** Version of the compiled robot map format. */
+	static final int version = 1;
+
+	/** Types of motor controllers, by their key in 'RobotMap.json'. */
+	public enum Type {
+		FALCON("falcons"), SPARK("sparks");
+
+		/** This {@link Type}'s key in 'RobotMap.json'. */
+		final String key;
+
+		Type(String key) {
+			this.key = key;
+		}
+	}
+
+	/** A single motor controller's status frame configuration. */
+	public static final class Device {
+		/** Name of the subsystem this {@link Device} is declared in. */
+		public final String subsystem;
+		/** This {@link Device}'s name. */
+		public final String name;
+		/** This {@link Device}'s {@link Type}. */
+		public final Type type;
+		/** Name of each configured frame. */
+		public final String[] frames;
+		/** Period of each configured frame, in milliseconds. */
+		public final int[] periods;
+
+		Device(String subsystem, String name, Type type, String[] frames, int[] periods) {
+			this.subsystem = subsystem;
+			this.name = name;
+			this.type = type;
+			this.frames = frames;
+			this.periods = periods;
+		}
+	}
+
+	/** Every {@link Device}, in declaration order. */
+	private final List<Device> devices;
+
+	DeviceConfig(List<Device> devices) {
+		this.devices = devices;
+	}
+
+	/**
+	 * Gets every {@link Device} of the given {@link Type} declared under the given
+	 * subsystem.
+	 *
+	 * @param subsystem The subsystem's name
+	 * @param type      The {@link Device devices'} {@link Type}
+	 * @return Every matching {@link Device}
+	 */
+	public List<Device> getDevices(String subsystem, Type type) {
+		var matching = new ArrayList<Device>();
+		for (var device : devices)
+			if (device.type == type && device.subsystem.equals(subsystem))
+				matching.add(device);
+
+		return matching;
+	}
+
+	/**
+	 * Gets every {@link Device}.
+	 *
+	 * @return Every {@link Device}, in declaration order
+	 */
+	List<Device> getDevices() {
+		return devices;
+	}
+
+	/**
+	 * Loads the {@link DeviceConfig} from the 'deploy' directory, preferring
+	 * 'RobotMap.bin' if it was compiled from the current 'RobotMap.json'.
+	 *
+	 * @return The loaded {@link DeviceConfig}, empty if nothing could be read
+	 */
+	public static DeviceConfig fromDeploy() {
+		var deploy = Filesystem.getDeployDirectory();
+
+		try {
+			var json = Files.readAllBytes(new File(deploy, "RobotMap.json").toPath());
+			var crc = checksum(json);
+
+			var binary = new File(deploy, "RobotMap.bin");
+			if (binary.isFile()) {
+				var config = read(Files.readAllBytes(binary.toPath()), crc);
+				if (config != null)
+					return config;
+			}
+
+			var warning = "[!] 'RobotMap.bin' IS MISSING OR STALE, PARSING 'RobotMap.json' INSTEAD.";
+			System.out.println(warning);
+			DriverStation.reportWarning(warning, false);
+
+			return fromJson(json);
+		} catch (IOException e) {
+			var error = String.format("[!] COULD NOT LOAD DEVICE CONFIG FROM 'RobotMap.json':\n\t%1$s.",
+					e.getLocalizedMessage());
+
+			System.out.println(error);
+			DriverStation.reportWarning(error, false);
+
+			return new DeviceConfig(List.of());
+		}
+	}
+
+	/**
+	 * Parses a {@link DeviceConfig} from the contents of 'RobotMap.json'.
+	 *
+	 * @param json The contents of 'RobotMap.json'
+	 * @return The parsed {@link DeviceConfig}
+	 * @throws IOException If it isn't valid JSON
+	 */
+	static DeviceConfig fromJson(byte[] json) throws IOException {
+		var devices = new ArrayList<Device>();
+		var robotMap = new ObjectMapper().readTree(json);
+
+		for (var it = robotMap.fields(); it.hasNext();) {
+			var subsystem = it.next();
+
+			for (var type : Type.values()) {
+				for (var device : subsystem.getValue().path(type.key)) {
+					var statusFrames = device.path("statusFrames");
+					var frames = new String[statusFrames.size()];
+					var periods = new int[statusFrames.size()];
+
+					var i = 0;
+					for (var frame = statusFrames.fields(); frame.hasNext(); i++) {
+						var entry = frame.next();
+						frames[i] = entry.getKey();
+						periods[i] = entry.getValue().asInt();
+					}
+
+					devices.add(new Device(subsystem.getKey(), device.path("name").asText(), type, frames, periods));
+				}
+			}
+		}
+
+		return new DeviceConfig(devices);
+	}
+
+	/**
+	 * Reads a compiled {@link DeviceConfig}.
+	 *
+	 * @param binary The contents of 'RobotMap.bin'
+	 * @param crc    The CRC32 of the current 'RobotMap.json'
+	 * @return The {@link DeviceConfig}, or null if it's not a compiled robot map,
+	 *         or was compiled from a different 'RobotMap.json'
+	 * @throws IOException If it's truncated
+	 */
+	static DeviceConfig read(byte[] binary, long crc) throws IOException {
+		var in = new DataInputStream(new ByteArrayInputStream(binary));
+
+		var header = new byte[magic.length()];
+		in.readFully(header);
+		if (!magic.equals(new String(header, StandardCharsets.US_ASCII)) || in.readInt() != version
+				|| in.readLong() != crc)
+			return null;
+
+		var types = Type.values();
+		var devices = new ArrayList<Device>();
+		for (int count = in.readInt(); count > 0; count--) {
+			var subsystem = in.readUTF();
+			var name = in.readUTF();
+			var type = types[in.readByte()];
+
+			var frames = new String[in.readInt()];
+			var periods = new int[frames.length];
+			for (int i = 0; i < frames.length; i++) {
+				frames[i] = in.readUTF();
+				periods[i] = in.readInt();
+			}
+
+			devices.add(new Device(subsystem, name, type, frames, periods));
+		}
+
+		return new DeviceConfig(devices);
+	}
+
+	/**
+	 * Calculates the CRC32 of the given contents.
+	 */
+	static long checksum(byte[] contents) {
+		var crc = new CRC32();
+		crc.update(contents);
+
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,287 @@
+package org.usfirst.frc6647.can;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.usfirst.frc6647.telemetry.DashboardScheduler;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+
+/**
+ * Write-coalescing stage between a subsystem and its motor controllers. Each
+ * {@link Output} only keeps its latest demand, and every demand is written
+ * once, on {@link #flush(double)} at the end of the cycle. Demands within
+ * tolerance of the last one written are dropped, unless the last write is
+ * older than the keepalive period. Each mode can have its own tolerance, since
+ * each measures its demand in its own units.
+ *
+ * <p>
+ * An {@link Output} can stand for several motor controllers driven by the same
+ * demand, such as a hardware leader/follower pair, so every write it skips
+ * saves a frame for each of them. Every {@link Output} of an
+ * {@link OutputStage} must be set and flushed from the same thread, the frame
+ * counters can be read and {@link Output#invalidate()} called from any thread.
+ */
+public class OutputStage {
+	/** Writes a demand to one or more motor controllers. */
+	@FunctionalInterface
+	public interface Writer {
+		/**
+		 * Writes the given demand.
+		 *
+		 * @param mode  The demand's mode, as defined by the subsystem
+		 * @param value The demand's value
+		 * @param aux   The demand's auxiliary value, such as a feed-forward
+		 */
+		void write(int mode, double value, double aux);
+	}
+
+	/** A single demand, written to its motor controllers through a {@link Writer}. */
+	public class Output {
+		/** {@link Writer} for this {@link Output}'s motor controllers. */
+		private final Writer writer;
+		/** Largest change in either value still considered a duplicate, by default. */
+		private final double tolerance;
+		/** Largest change in each value still considered a duplicate, by mode. */
+		private double[] valueTolerances = new double[0], auxTolerances = new double[0];
+		/** Number of motor controllers driven by this {@link Output}. */
+		private final int devices;
+		/** Number of motor controllers actually written to, the rest follow them. */
+		private final int writes;
+
+		/** Latest demand. */
+		private int mode = -1;
+		private double value, aux;
+		/** Whether or not the latest demand must be written regardless. */
+		private boolean forced = false;
+
+		/** Last demand written, a mode of -1 if unknown. */
+		private int sentMode = -1;
+		private double sentValue, sentAux;
+		/** Timestamp of the last write. */
+		private double sentAt;
+		/** Whether or not the last demand written should be forgotten on the next flush. */
+		private volatile boolean stale = false;
+
+		private Output(Writer writer, double tolerance, int devices, int writes) {
+			this.writer = writer;
+			this.tolerance = tolerance;
+			this.devices = devices;
+			this.writes = writes;
+		}
+
+		/**
+		 * Overrides the tolerance of a single mode, whose values aren't measured in
+		 * the same units as the rest. Should only be called before this {@link Output}
+		 * is first set.
+		 *
+		 * @param mode           The mode, as defined by the subsystem
+		 * @param valueTolerance Largest change in the value still considered a
+		 *                       duplicate
+		 * @param auxTolerance   Largest change in the auxiliary value still
+		 *                       considered a duplicate
+		 * @return This {@link Output}, to chain calls
+		 */
+		public Output withTolerance(int mode, double valueTolerance, double auxTolerance) {
+			if (mode >= valueTolerances.length) {
+				var length = valueTolerances.length;
+
+				valueTolerances = Arrays.copyOf(valueTolerances, mode + 1);
+				auxTolerances = Arrays.copyOf(auxTolerances, mode + 1);
+				Arrays.fill(valueTolerances, length, mode + 1, tolerance);
+				Arrays.fill(auxTolerances, length, mode + 1, tolerance);
+			}
+
+			valueTolerances[mode] = valueTolerance;
+			auxTolerances[mode] = auxTolerance;
+
+			return this;
+		}
+
+		/**
+		 * Sets this {@link Output}'s demand, to be written on the next
+		 * {@link OutputStage#flush(double) flush}.
+		 *
+		 * @param mode  The demand's mode, as defined by the subsystem
+		 * @param value The demand's value
+		 * @param aux   The demand's auxiliary value, such as a feed-forward
+		 */
+		public void set(int mode, double value, double aux) {
+			this.mode = mode;
+			this.value = value;
+			this.aux = aux;
+		}
+
+		/**
+		 * Sets this {@link Output}'s demand, without an auxiliary value.
+		 *
+		 * @param mode  The demand's mode, as defined by the subsystem
+		 * @param value The demand's value
+		 */
+		public void set(int mode, double value) {
+			set(mode, value, 0);
+		}
+
+		/**
+		 * Makes sure the current demand is written on the next
+		 * {@link OutputStage#flush(double) flush}, even if it's a duplicate. Needed by
+		 * demands that do something on every write, such as a software ramp.
+		 */
+		public void force() {
+			forced = true;
+		}
+
+		/**
+		 * Forgets the last demand written, such as after its motor controllers were
+		 * written to directly. Unlike everything else, can be called from any thread.
+		 */
+		public void invalidate() {
+			stale = true;
+		}
+
+		/**
+		 * Writes the latest demand if it's not a duplicate, or the last write is older
+		 * than the {@link OutputStage#keepalive keepalive} period.
+		 */
+		private void flush(double timestamp) {
+			if (mode < 0) // Nothing to write yet.
+				return;
+
+			if (stale) {
+				stale = false;
+				sentMode = -1;
+			}
+
+			var overridden = mode < valueTolerances.length;
+			var valueTolerance = overridden ? valueTolerances[mode] : tolerance;
+			var auxTolerance = overridden ? auxTolerances[mode] : tolerance;
+
+			if (!forced && mode == sentMode && Math.abs(value - sentValue) <= valueTolerance
+					&& Math.abs(aux - sentAux) <= auxTolerance && timestamp - sentAt < keepalive) {
+				saved += devices;
+				return;
+			}
+
+			writer.write(mode, value, aux);
+
+			sentMode = mode;
+			sentValue = value;
+			sentAux = aux;
+			sentAt = timestamp;
+			forced = false;
+
+			written += writes;
+			saved += devices - writes;
+		}
+	}
+
+	/** Every {@link OutputStage} created so far. */
+	private static final List<OutputStage> stages = new ArrayList<>();
+
+	/** This {@link OutputStage}'s name, as shown in Shuffleboard. */
+	private final String name;
+	/** Longest time a duplicate demand can go unwritten, in seconds. */
+	private final double keepalive;
+
+	/** Every {@link Output} in this {@link OutputStage}. */
+	private final List<Output> outputs = new ArrayList<>();
+	/** Pre-allocated copy of {@link #outputs}, iterated on every flush. */
+	private Output[] flushed = new Output[0];
+
+	/** Number of frames written, and saved, so far. */
+	private volatile long written = 0, saved = 0;
+
+	/**
+	 * Creates an {@link OutputStage}.
+	 *
+	 * @param name      The {@link OutputStage}'s name, as shown in Shuffleboard
+	 * @param keepalive Longest time a duplicate demand can go unwritten, in seconds
+	 */
+	public OutputStage(String name, double keepalive) {
+		this.name = name;
+		this.keepalive = keepalive;
+
+		synchronized (stages) {
+			stages.add(this);
+		}
+	}
+
+	/**
+	 * Adds an {@link Output} to this {@link OutputStage}.
+	 *
+	 * @param writer    {@link Writer} for the {@link Output}'s motor controllers
+	 * @param tolerance Largest change in either value still considered a
+	 *                  duplicate, unless {@link Output#withTolerance overridden}
+	 * @param devices   Number of motor controllers driven by the {@link Output}
+	 * @param writes    Number of motor controllers the {@link Writer} actually
+	 *                  writes to, the rest follow them
+	 * @return The new {@link Output}
+	 */
+	public Output add(Writer writer, double tolerance, int devices, int writes) {
+		var output = new Output(writer, tolerance, devices, writes);
+
+		outputs.add(output);
+		flushed = outputs.toArray(new Output[0]);
+
+		return output;
+	}
+
+	/**
+	 * Writes every {@link Output}'s latest demand, skipping duplicates. Should be
+	 * called once, at the end of every cycle.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void flush(double timestamp) {
+		for (var output : flushed)
+			output.flush(timestamp);
+	}
+
+	/**
+	 * Forgets the last demand written by every {@link Output}, so the next flush
+	 * writes all of them.
+	 */
+	public void invalidate() {
+		for (var output : flushed)
+			output.invalidate();
+	}
+
+	/**
+	 * Gets the number of frames written so far.
+	 *
+	 * @return The number of frames written
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Gets the number of frames saved so far, from duplicate demands and hardware
+	 * followers.
+	 *
+	 * @return The number of frames saved
+	 */
+	public long getSaved() {
+		return saved;
+	}
+
+	/**
+	 * Publishes the frames written and saved by every {@link OutputStage}. Should be
+	 * called once, after every subsystem has been constructed.
+	 *
+	 * @param dashboard The {@link DashboardScheduler} to publish them through
+	 */
+	public static void outputToShuffleboard(DashboardScheduler dashboard) {
+		var layout = Shuffleboard.getTab("CAN").getLayout("outputStages", BuiltInLayouts.kList);
+
+		synchronized (stages) {
+			for (var stage : stages) {
+				dashboard.addNumber(layout, stage.name + "Written", stage::getWritten, Priority.LOW, 2);
+				dashboard.addNumber(layout, stage.name + "Saved", stage::getSaved, Priority.LOW, 2);
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.usfirst.frc6647.can;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Desktop compiler for the {@link DeviceConfig} in 'RobotMap.json', which
+ * writes it in the binary format read on the roboRIO. Run by './gradlew
+ * compileRobotMap', which every build depends on.
+ */
+public final class RobotMapCompiler {
+	private RobotMapCompiler() {
+	}
+
+	/**
+	 * Compiles the given 'RobotMap.json'.
+	 *
+	 * @param args The 'RobotMap.json' to compile, and the file to write it to
+	 * @throws IOException If either file can't be read or written
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: RobotMapCompiler <RobotMap.json> <RobotMap.bin>");
+			return;
+		}
+
+		var json = Files.readAllBytes(new File(args[0]).toPath());
+		var config = DeviceConfig.fromJson(json);
+
+		try (var out = new DataOutputStream(Files.newOutputStream(new File(args[1]).toPath()))) {
+			out.write(DeviceConfig.magic.getBytes(StandardCharsets.US_ASCII));
+			out.writeInt(DeviceConfig.version);
+			out.writeLong(DeviceConfig.checksum(json));
+			out.writeInt(config.getDevices().size());
+
+			for (var device : config.getDevices()) {
+				out.writeUTF(device.subsystem);
+				out.writeUTF(device.name);
+				out.writeByte(device.type.ordinal());
+
+				out.writeInt(device.frames.length);
+				for (int i = 0; i < device.frames.length; i++) {
+					out.writeUTF(device.frames[i]);
+					out.writeInt(device.periods[i]);
+				}
+			}
+		}
+
+		System.out.printf("Compiled '%s': %d devices.%n", args[0], config.getDevices().size());
+	}
+}
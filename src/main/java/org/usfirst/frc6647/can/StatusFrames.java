@@ -0,0 +1,300 @@
+package org.usfirst.frc6647.can;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.revrobotics.CANError;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+
+import org.usfirst.frc6647.telemetry.DashboardScheduler;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+
+import edu.wpi.first.hal.can.CANJNI;
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+
+/**
+ * Configures every motor controller's status frame periods from the
+ * 'statusFrames' object of each device in 'RobotMap.json', keyed by
+ * {@link StatusFrameEnhanced} (Falcons) or {@link PeriodicFrame} (Spark MAXes)
+ * name, as compiled into a {@link DeviceConfig}. Frames left out keep their
+ * default period. Each subsystem's devices are configured in the background,
+ * in parallel with every later subsystem's construction and configuration.
+ *
+ * <p>
+ * Keeps track of each configured device's expected frame rate, and publishes
+ * them to Shuffleboard next to the live CAN bus utilization.
+ */
+public final class StatusFrames {
+	private StatusFrames() {
+	}
+
+	/** Timeout for each status frame configuration, in milliseconds. */
+	private static final int timeoutMs = 10;
+	/** Approximate size of a CAN frame with an 8 byte payload, in bits. */
+	private static final int bitsPerFrame = 130;
+	/** CAN bus bitrate, in bits per second. */
+	private static final int bitrate = 1000000;
+	/** Number of threads configuring devices at once. */
+	private static final int threads = 4;
+	/** Longest time to wait for each subsystem's configuration, in seconds. */
+	private static final int awaitSeconds = 5;
+	/** Shortest time between reads of the CAN bus' status, in nanoseconds. */
+	private static final long busStatusPeriodNanos = 250000000;
+
+	/** The CAN bus' status, as last read by {@link #getBusStatus()}. */
+	private static final CANStatus busStatus = new CANStatus();
+	/** Time of the last read of the {@link #busStatus}, from {@link System#nanoTime()}. */
+	private static long busStatusAt = System.nanoTime() - busStatusPeriodNanos;
+
+	/** Default period of each {@link StatusFrameEnhanced} we configure. */
+	private static final EnumMap<StatusFrameEnhanced, Integer> falconDefaults = new EnumMap<>(
+			StatusFrameEnhanced.class);
+	/** Default period of each {@link PeriodicFrame}. */
+	private static final EnumMap<PeriodicFrame, Integer> sparkDefaults = new EnumMap<>(PeriodicFrame.class);
+
+	static {
+		falconDefaults.put(StatusFrameEnhanced.Status_1_General, 10);
+		falconDefaults.put(StatusFrameEnhanced.Status_2_Feedback0, 20);
+		falconDefaults.put(StatusFrameEnhanced.Status_4_AinTempVbat, 160);
+		falconDefaults.put(StatusFrameEnhanced.Status_10_Targets, 160);
+		falconDefaults.put(StatusFrameEnhanced.Status_13_Base_PIDF0, 160);
+
+		sparkDefaults.put(PeriodicFrame.kStatus0, 10);
+		sparkDefaults.put(PeriodicFrame.kStatus1, 20);
+		sparkDefaults.put(PeriodicFrame.kStatus2, 20);
+	}
+
+	/** Every device's {@link DeviceConfig}, loaded on first use. */
+	private static DeviceConfig config;
+
+	/** Configures each subsystem's devices in the background. */
+	private static final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+		var thread = new Thread(runnable, "StatusFrames");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+	/** Every configuration submitted to the {@link #executor}. */
+	private static final List<Future<?>> pending = new ArrayList<>();
+
+	/** Name of every configured device, as 'subsystem.device'. */
+	private static final List<String> devices = new ArrayList<>();
+	/** Expected frames per second of each device, indexed like {@link #devices}. */
+	private static final List<Double> frameRates = new ArrayList<>();
+
+	/**
+	 * Configures the status frame periods of every Falcon declared under the given
+	 * subsystem in the background, alongside every other subsystem's. Should be
+	 * called at the end of the subsystem's constructor, once nothing else
+	 * configures its Falcons.
+	 *
+	 * @param subsystem The subsystem's name
+	 * @param getter    Gets each Falcon from its name, usually 'this::getFalcon'
+	 */
+	public static synchronized void configureFalcons(String subsystem,
+			Function<String, ? extends TalonFX> getter) {
+		var falcons = new ArrayList<TalonFX>();
+		var configured = getConfig().getDevices(subsystem, DeviceConfig.Type.FALCON);
+
+		for (var device : configured) {
+			var periods = new EnumMap<>(falconDefaults);
+			TalonFX controller = null;
+			try { // Only kept once every frame parses, so each index still matches its device.
+				for (int i = 0; i < device.frames.length; i++)
+					periods.put(StatusFrameEnhanced.valueOf(device.frames[i]), device.periods[i]);
+				controller = getter.apply(device.name);
+			} catch (IllegalArgumentException | NullPointerException e) {
+				report(subsystem, device.name, e);
+			}
+			falcons.add(controller);
+
+			add(subsystem, device.name, periods.values());
+		}
+
+		pending.add(executor.submit(() -> {
+			for (int d = 0; d < configured.size(); d++) {
+				var device = configured.get(d);
+				var falcon = falcons.get(d);
+				if (falcon == null)
+					continue;
+
+				try {
+					for (int i = 0; i < device.frames.length; i++) {
+						var frame = StatusFrameEnhanced.valueOf(device.frames[i]);
+						var error = falcon.setStatusFramePeriod(frame, device.periods[i], timeoutMs);
+						if (error != ErrorCode.OK)
+							throw new IllegalStateException(frame + ": " + error);
+					}
+				} catch (IllegalArgumentException | IllegalStateException e) {
+					report(subsystem, device.name, e);
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Configures the status frame periods of every Spark MAX declared under the
+	 * given subsystem in the background, alongside every other subsystem's. Should
+	 * be called at the end of the subsystem's constructor, once nothing else
+	 * configures its Spark MAXes.
+	 *
+	 * @param subsystem The subsystem's name
+	 * @param getter    Gets each Spark MAX from its name, usually 'this::getSpark'
+	 */
+	public static synchronized void configureSparks(String subsystem,
+			Function<String, ? extends CANSparkMax> getter) {
+		var sparks = new ArrayList<CANSparkMax>();
+		var configured = getConfig().getDevices(subsystem, DeviceConfig.Type.SPARK);
+
+		for (var device : configured) {
+			var periods = new EnumMap<>(sparkDefaults);
+			CANSparkMax controller = null;
+			try { // Only kept once every frame parses, so each index still matches its device.
+				for (int i = 0; i < device.frames.length; i++)
+					periods.put(PeriodicFrame.valueOf(device.frames[i]), device.periods[i]);
+				controller = getter.apply(device.name);
+			} catch (IllegalArgumentException | NullPointerException e) {
+				report(subsystem, device.name, e);
+			}
+			sparks.add(controller);
+
+			add(subsystem, device.name, periods.values());
+		}
+
+		pending.add(executor.submit(() -> {
+			for (int d = 0; d < configured.size(); d++) {
+				var device = configured.get(d);
+				var spark = sparks.get(d);
+				if (spark == null)
+					continue;
+
+				try {
+					for (int i = 0; i < device.frames.length; i++) {
+						var frame = PeriodicFrame.valueOf(device.frames[i]);
+						var error = spark.setPeriodicFramePeriod(frame, device.periods[i]);
+						if (error != CANError.kOk)
+							throw new IllegalStateException(frame + ": " + error);
+					}
+				} catch (IllegalArgumentException | IllegalStateException e) {
+					report(subsystem, device.name, e);
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Waits for every configuration submitted so far to finish. Should be called
+	 * once, after every subsystem has been constructed.
+	 */
+	public static synchronized void awaitConfigured() {
+		for (var future : pending) {
+			try {
+				future.get(awaitSeconds, TimeUnit.SECONDS);
+			} catch (InterruptedException | ExecutionException | TimeoutException e) {
+				var error = String.format("[!] COULD NOT FINISH CONFIGURING STATUS FRAMES:\n\t%1$s.", e);
+
+				System.out.println(error);
+				DriverStation.reportWarning(error, false);
+			}
+		}
+
+		pending.clear();
+	}
+
+	/**
+	 * Publishes every configured device's expected frame rate, along with the
+	 * expected and live CAN bus utilization. Should be called once, after every
+	 * subsystem has been constructed.
+	 *
+	 * @param dashboard The {@link DashboardScheduler} to publish the live bus
+	 *                  status through
+	 */
+	public static synchronized void outputToShuffleboard(DashboardScheduler dashboard) {
+		var tab = Shuffleboard.getTab("CAN");
+
+		// Derived from each configured period, no per-device frame count is exposed to
+		// measure them against. Only the bus' utilization below is measured.
+		var frameLayout = tab.getLayout("expectedFramesPerSecond", BuiltInLayouts.kList);
+		var total = 0.0;
+		for (int i = 0; i < devices.size(); i++) {
+			frameLayout.add(devices.get(i), frameRates.get(i));
+			total += frameRates.get(i);
+		}
+		frameLayout.add("total", total);
+
+		var busLayout = tab.getLayout("bus", BuiltInLayouts.kList);
+		busLayout.add("expectedUtilization", total * bitsPerFrame / bitrate * 100);
+		dashboard.addNumber(busLayout, "utilization", () -> getBusStatus().percentBusUtilization * 100,
+				Priority.LOW, 2);
+		dashboard.addNumber(busLayout, "txFullCount", () -> getBusStatus().txFullCount, Priority.LOW, 2);
+		dashboard.addNumber(busLayout, "receiveErrorCount", () -> getBusStatus().receiveErrorCount, Priority.LOW, 2);
+		dashboard.addNumber(busLayout, "transmitErrorCount", () -> getBusStatus().transmitErrorCount, Priority.LOW,
+				2);
+	}
+
+	/**
+	 * Gets the CAN bus' status, refreshed at most once every
+	 * {@link #busStatusPeriodNanos}, so all four entries share a single HAL call.
+	 * Only called from the {@link DashboardScheduler}'s thread.
+	 */
+	private static CANStatus getBusStatus() {
+		var now = System.nanoTime();
+
+		if (now - busStatusAt >= busStatusPeriodNanos) {
+			CANJNI.GetCANStatus(busStatus);
+			busStatusAt = now;
+		}
+
+		return busStatus;
+	}
+
+	/**
+	 * Gets every device's {@link DeviceConfig}, loading it on first use.
+	 */
+	private static DeviceConfig getConfig() {
+		if (config == null)
+			config = DeviceConfig.fromDeploy();
+
+		return config;
+	}
+
+	/**
+	 * Keeps track of a configured device's expected frame rate, from each of its
+	 * frames' periods.
+	 */
+	private static void add(String subsystem, String name, Iterable<Integer> periods) {
+		var rate = 0.0;
+		for (var period : periods)
+			if (period > 0)
+				rate += 1000.0 / period;
+
+		devices.add(subsystem + "." + name);
+		frameRates.add(rate);
+	}
+
+	/**
+	 * Reports a device whose status frames couldn't be configured.
+	 */
+	private static void report(String subsystem, String name, Exception e) {
+		var error = String.format("[!] COULD NOT CONFIGURE STATUS FRAMES FOR '%1$s.%2$s':\n\t%3$s.", subsystem, name,
+				e.getLocalizedMessage());
+
+		System.out.println(error);
+		DriverStation.reportWarning(error, false);
+	}
+}
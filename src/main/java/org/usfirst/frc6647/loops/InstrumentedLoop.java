@@ -0,0 +1,111 @@
+package org.usfirst.frc6647.loops;
+
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopType;
+
+/**
+ * {@link Loop} wrapper which measures every iteration's execution time and
+ * start jitter, without allocating.
+ */
+public class InstrumentedLoop implements Loop {
+	/** This {@link Loop}'s name, as shown in Shuffleboard. */
+	private final String name;
+	/** The wrapped {@link Loop}. */
+	private final Loop loop;
+
+	/** Statistics for this {@link Loop} alone. */
+	private final LoopStats stats = new LoopStats();
+	/** Statistics shared by every {@link Loop} of the same {@link LoopType}, or null. */
+	private final LoopStats typeStats;
+	/** Expected time between iterations, in microseconds. */
+	private final long periodMicros;
+
+	/** Timestamp of the last iteration, or NaN if it hasn't run since starting. */
+	private double lastTimestamp = Double.NaN;
+
+	/**
+	 * Wraps the given {@link Loop}. Use {@link LoopProfiler#instrument(String, Loop)}
+	 * instead.
+	 *
+	 * @param name         The {@link Loop}'s name
+	 * @param loop         The {@link Loop} to wrap
+	 * @param typeStats    The statistics for the {@link Loop}'s {@link LoopType},
+	 *                     or null if it's not run by its Looper
+	 * @param periodMicros Expected time between iterations, in microseconds
+	 */
+	InstrumentedLoop(String name, Loop loop, LoopStats typeStats, long periodMicros) {
+		this.name = name;
+		this.loop = loop;
+		this.typeStats = typeStats;
+		this.periodMicros = periodMicros;
+	}
+
+	@Override
+	public void onFirstStart(double timestamp) {
+		loop.onFirstStart(timestamp);
+	}
+
+	@Override
+	public void onStart(double timestamp) {
+		lastTimestamp = Double.NaN;
+		loop.onStart(timestamp);
+	}
+
+	@Override
+	public void onLoop(double timestamp) {
+		var start = System.nanoTime();
+		loop.onLoop(timestamp);
+		var execution = (System.nanoTime() - start) / 1000;
+
+		// The first iteration after starting has nothing to be late against.
+		var jitter = Double.isNaN(lastTimestamp) ? 0
+				: (long) ((timestamp - lastTimestamp) * 1e6) - periodMicros;
+		lastTimestamp = timestamp;
+
+		stats.record(execution, jitter);
+		if (typeStats != null) // The Looper's period is shared by every loop in the same tick.
+			typeStats.accumulate(timestamp, execution, jitter);
+	}
+
+	@Override
+	public void onStop(double timestamp) {
+		loop.onStop(timestamp);
+
+		// Nothing else is run in the last tick once its loops are stopped.
+		if (typeStats != null)
+			typeStats.flush();
+	}
+
+	@Override
+	public LoopType getType() {
+		return loop.getType();
+	}
+
+	/**
+	 * Gets this {@link Loop}'s name.
+	 *
+	 * @return The {@link Loop}'s name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets whether or not this {@link Loop} is run by its {@link LoopType}'s
+	 * Looper, rather than by hand from its own thread.
+	 *
+	 * @return Whether or not this {@link Loop} is run by a Looper
+	 */
+	public boolean isLooped() {
+		return typeStats != null;
+	}
+
+	/**
+	 * Gets this {@link Loop}'s statistics.
+	 *
+	 * @return The {@link Loop}'s {@link LoopStats}
+	 */
+	public LoopStats getStats() {
+		return stats;
+	}
+}
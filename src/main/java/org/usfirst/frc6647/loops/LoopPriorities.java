@@ -0,0 +1,211 @@
+package org.usfirst.frc6647.loops;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.usfirst.frc6647.robot.Constants.LooperConstants;
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopContainer;
+import org.usfirst.lib6647.loops.LoopType;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Threads;
+
+/**
+ * Gives each {@link LoopType}'s Looper thread a real-time priority and pins it
+ * to a set of CPU cores, as configured in {@link LooperConstants}. Each is
+ * applied from inside the Looper's own thread, on its first iteration after
+ * every start, so it never touches the thread starting it.
+ *
+ * <p>
+ * If {@link LooperConstants#jitterComparisonSeconds} is set, each
+ * {@link LoopType} first runs that long at its default priority, then that long
+ * again once applied, and the start jitter from {@link LoopProfiler} over both
+ * windows is printed side by side.
+ */
+public final class LoopPriorities {
+	private LoopPriorities() {
+	}
+
+	/** Runs 'taskset' for each Looper thread, off every Looper thread. */
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		var thread = new Thread(runnable, "LoopPriorities");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+
+	/**
+	 * Registers a {@link Loop} applying the configured priority and affinity to
+	 * each {@link LoopType}'s Looper. Should be called once, after every subsystem
+	 * has been registered.
+	 *
+	 * @param container The {@link LoopContainer} holding every Looper
+	 */
+	public static void register(LoopContainer container) {
+		for (var type : LoopType.values())
+			if (getPriority(type) > 0 || getAffinity(type) > 0)
+				container.getLooper(type).register(new PriorityLoop(type));
+	}
+
+	/** Applies the configured priority and affinity to its {@link LoopType}'s Looper. */
+	private static final class PriorityLoop implements Loop {
+		/** This {@link Loop}'s {@link LoopType}. */
+		private final LoopType type;
+
+		/** Whether or not the priority has been applied since the last start. */
+		private boolean applied = false;
+		/** Whether or not the jitter comparison has finished, or was never needed. */
+		private boolean compared = LooperConstants.jitterComparisonSeconds <= 0;
+		/** Timestamp at which the current comparison window started, or NaN. */
+		private double windowStart = Double.NaN;
+		/** Start jitter at the default priority, as p50, p99 and max. */
+		private long beforeP50, beforeP99, beforeMax;
+
+		private PriorityLoop(LoopType type) {
+			this.type = type;
+		}
+
+		@Override
+		public void onFirstStart(double timestamp) {
+		}
+
+		@Override
+		public void onStart(double timestamp) {
+			if (!compared && applied) // Stopped after applying, can't measure the default priority again.
+				compared = true;
+
+			applied = false;
+			windowStart = Double.NaN;
+		}
+
+		@Override
+		public void onLoop(double timestamp) {
+			if (!compared) {
+				compare(timestamp);
+				return;
+			}
+
+			if (!applied) {
+				apply(type);
+				applied = true;
+			}
+		}
+
+		/**
+		 * Measures start jitter at the default priority, applies it, and measures it
+		 * again. Only runs once, on the first start.
+		 */
+		private void compare(double timestamp) {
+			var jitter = LoopProfiler.getStats(type).getJitter();
+
+			if (Double.isNaN(windowStart)) { // Measure at the default priority.
+				LoopProfiler.getStats(type).reset();
+				windowStart = timestamp;
+			} else if (timestamp - windowStart < LooperConstants.jitterComparisonSeconds) {
+				return;
+			} else if (!applied) { // Done measuring before, apply it and measure again.
+				beforeP50 = jitter.getPercentile(0.5);
+				beforeP99 = jitter.getPercentile(0.99);
+				beforeMax = jitter.getMax();
+
+				apply(type);
+				applied = true;
+
+				LoopProfiler.getStats(type).reset();
+				windowStart = timestamp;
+			} else {
+				System.out.printf("%s jitter (us), before/after: p50 %d/%d, p99 %d/%d, max %d/%d.\n", type, beforeP50,
+						jitter.getPercentile(0.5), beforeP99, jitter.getPercentile(0.99), beforeMax, jitter.getMax());
+				compared = true;
+			}
+		}
+
+		@Override
+		public void onStop(double timestamp) {
+		}
+
+		@Override
+		public LoopType getType() {
+			return type;
+		}
+	}
+
+	/**
+	 * Applies the given {@link LoopType}'s priority and affinity to the calling
+	 * thread, such as one driving outputs alongside that {@link LoopType}'s Looper.
+	 *
+	 * @param type The {@link LoopType} whose configuration to apply
+	 */
+	public static void apply(LoopType type) {
+		var priority = getPriority(type);
+		if (priority > 0 && !Threads.setCurrentThreadPriority(true, priority))
+			report(type, "real-time priority " + priority);
+
+		var affinity = getAffinity(type);
+		if (affinity <= 0 || !RobotBase.isReal())
+			return;
+
+		try { // '/proc/thread-self' links to '<pid>/task/<tid>'.
+			var tid = Files.readSymbolicLink(Paths.get("/proc/thread-self")).getFileName().toString();
+
+			executor.execute(() -> {
+				try {
+					var taskset = new ProcessBuilder("taskset", "-p", Integer.toHexString(affinity), tid).start();
+					if (taskset.waitFor() != 0)
+						report(type, "affinity " + Integer.toBinaryString(affinity));
+				} catch (IOException | InterruptedException e) {
+					report(type, e.getLocalizedMessage());
+				}
+			});
+		} catch (IOException e) {
+			report(type, e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Gets the given {@link LoopType}'s configured real-time priority.
+	 */
+	private static int getPriority(LoopType type) {
+		switch (type) {
+		case ENABLED:
+			return LooperConstants.enabledPriority;
+		case TELEOP:
+			return LooperConstants.teleopPriority;
+		case AUTO:
+			return LooperConstants.autoPriority;
+		default:
+			return LooperConstants.disabledPriority;
+		}
+	}
+
+	/**
+	 * Gets the given {@link LoopType}'s configured CPU affinity.
+	 */
+	private static int getAffinity(LoopType type) {
+		switch (type) {
+		case ENABLED:
+			return LooperConstants.enabledAffinity;
+		case TELEOP:
+			return LooperConstants.teleopAffinity;
+		case AUTO:
+			return LooperConstants.autoAffinity;
+		default:
+			return LooperConstants.disabledAffinity;
+		}
+	}
+
+	/**
+	 * Reports a setting that couldn't be applied to a {@link LoopType}'s Looper.
+	 */
+	private static void report(LoopType type, String setting) {
+		var error = String.format("[!] COULD NOT APPLY TO '%1$s' LOOPER:\n\t%2$s.", type, setting);
+
+		System.out.println(error);
+		DriverStation.reportWarning(error, false);
+	}
+}
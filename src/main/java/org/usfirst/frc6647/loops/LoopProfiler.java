@@ -0,0 +1,128 @@
+package org.usfirst.frc6647.loops;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import org.usfirst.frc6647.robot.Constants.LooperConstants;
+import org.usfirst.frc6647.telemetry.DashboardScheduler;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopType;
+
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+
+/**
+ * Keeps track of every {@link InstrumentedLoop}, and of the statistics of each
+ * {@link LoopType}, and publishes them to Shuffleboard.
+ */
+public final class LoopProfiler {
+	private LoopProfiler() {
+	}
+
+	/** Every {@link Loop} instrumented so far. */
+	private static final List<InstrumentedLoop> loops = new ArrayList<>();
+	/** Statistics shared by every {@link Loop} of each {@link LoopType}. */
+	private static final EnumMap<LoopType, LoopStats> typeStats = new EnumMap<>(LoopType.class);
+
+	static {
+		for (var type : LoopType.values())
+			typeStats.put(type, new LoopStats());
+	}
+
+	/**
+	 * Wraps the given {@link Loop} in an {@link InstrumentedLoop}, which should be
+	 * registered instead of it.
+	 *
+	 * @param name The {@link Loop}'s name, as shown in Shuffleboard
+	 * @param loop The {@link Loop} to instrument
+	 * @return The {@link InstrumentedLoop}
+	 */
+	public static synchronized InstrumentedLoop instrument(String name, Loop loop) {
+		var instrumented = new InstrumentedLoop(name, loop, typeStats.get(loop.getType()),
+				LooperConstants.periodMicros);
+		loops.add(instrumented);
+
+		return instrumented;
+	}
+
+	/**
+	 * Wraps the given {@link Loop} in an {@link InstrumentedLoop}, which is run by
+	 * hand from its own thread instead of by a Looper. Its iterations are kept out
+	 * of its {@link LoopType}'s statistics.
+	 *
+	 * @param name         The {@link Loop}'s name, as shown in Shuffleboard
+	 * @param loop         The {@link Loop} to instrument
+	 * @param periodMicros Expected time between iterations, in microseconds
+	 * @return The {@link InstrumentedLoop}
+	 */
+	public static synchronized InstrumentedLoop instrument(String name, Loop loop, long periodMicros) {
+		var instrumented = new InstrumentedLoop(name, loop, null, periodMicros);
+		loops.add(instrumented);
+
+		return instrumented;
+	}
+
+	/**
+	 * Gets every {@link InstrumentedLoop} of the given {@link LoopType} run by its
+	 * Looper, in the order they were instrumented.
+	 *
+	 * @param type The {@link LoopType}
+	 * @return Every {@link InstrumentedLoop} run by the {@link LoopType}'s Looper
+	 */
+	public static synchronized List<InstrumentedLoop> getLooped(LoopType type) {
+		var looped = new ArrayList<InstrumentedLoop>();
+		for (var loop : loops)
+			if (loop.isLooped() && loop.getType() == type)
+				looped.add(loop);
+
+		return looped;
+	}
+
+	/**
+	 * Gets the statistics shared by every {@link Loop} of the given
+	 * {@link LoopType}.
+	 *
+	 * @param type The {@link LoopType}
+	 * @return The {@link LoopType}'s {@link LoopStats}
+	 */
+	public static LoopStats getStats(LoopType type) {
+		return typeStats.get(type);
+	}
+
+	/**
+	 * Publishes p50/p99/max execution time and start jitter, along with overruns,
+	 * for every instrumented {@link Loop} and every {@link LoopType}. Should be
+	 * called once, after every {@link Loop} has been registered.
+	 *
+	 * @param dashboard The {@link DashboardScheduler} to publish them through
+	 */
+	public static synchronized void outputToShuffleboard(DashboardScheduler dashboard) {
+		var tab = Shuffleboard.getTab("Loops");
+
+		for (var loop : loops)
+			output(dashboard, tab.getLayout(loop.getName(), BuiltInLayouts.kList), loop.getStats());
+
+		for (var type : LoopType.values())
+			output(dashboard, tab.getLayout(type.toString(), BuiltInLayouts.kList), typeStats.get(type));
+	}
+
+	/**
+	 * Adds every statistic in the given {@link LoopStats} to a layout.
+	 */
+	private static void output(DashboardScheduler dashboard, ShuffleboardLayout layout, LoopStats stats) {
+		var execution = stats.getExecution();
+		dashboard.addNumber(layout, "execP50", () -> execution.getPercentile(0.5), Priority.LOW, 2);
+		dashboard.addNumber(layout, "execP99", () -> execution.getPercentile(0.99), Priority.LOW, 2);
+		dashboard.addNumber(layout, "execMax", execution::getMax, Priority.LOW, 2);
+
+		var jitter = stats.getJitter();
+		dashboard.addNumber(layout, "jitterP50", () -> jitter.getPercentile(0.5), Priority.LOW, 2);
+		dashboard.addNumber(layout, "jitterP99", () -> jitter.getPercentile(0.99), Priority.LOW, 2);
+		dashboard.addNumber(layout, "jitterMax", jitter::getMax, Priority.LOW, 2);
+
+		dashboard.addNumber(layout, "overruns", stats::getOverruns, Priority.LOW, 2);
+	}
+}
@@ -0,0 +1,118 @@
+package org.usfirst.frc6647.loops;
+
+import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.util.Histogram;
+import org.usfirst.lib6647.loops.Loop;
+
+/**
+ * Execution time and start jitter statistics for one or more {@link Loop
+ * loops}, along with the number of times they overran the Looper's period.
+ *
+ * <p>
+ * Statistics for a single {@link Loop} are {@link #record(long, long)
+ * recorded} per iteration. Statistics for every {@link Loop} of a Looper are
+ * {@link #accumulate(double, long, long) accumulated} over each of its ticks
+ * instead, since its period is shared by every {@link Loop} run in that tick.
+ * Either must only ever be called by the thread running those {@link Loop
+ * loops}, or whilst it's serialized with it.
+ */
+public class LoopStats {
+	/** Histogram of every {@link Loop#onLoop(double)}'s execution time. */
+	private final Histogram execution = new Histogram(50, 400);
+	/** Histogram of how late every {@link Loop#onLoop(double)} started. */
+	private final Histogram jitter = new Histogram(50, 400);
+
+	/** Number of iterations that took longer than the Looper's period. */
+	private volatile long overruns = 0;
+
+	/** Timestamp of the Looper tick being accumulated, or NaN if there's none. */
+	private double tickTimestamp = Double.NaN;
+	/** Execution time accumulated over the current tick so far, in microseconds. */
+	private long tickExecution = 0;
+	/** How late the current tick started, in microseconds. */
+	private long tickJitter = 0;
+
+	/**
+	 * Records a single iteration.
+	 *
+	 * @param executionMicros How long the iteration took, in microseconds
+	 * @param jitterMicros    How late the iteration started, in microseconds
+	 */
+	public void record(long executionMicros, long jitterMicros) {
+		execution.record(executionMicros);
+		jitter.record(jitterMicros);
+
+		if (executionMicros > Constants.LooperConstants.periodMicros)
+			overruns++;
+	}
+
+	/**
+	 * Accumulates a single {@link Loop}'s iteration into the current Looper tick.
+	 * Every {@link Loop} run in the same tick is given the same timestamp, so the
+	 * previous tick is {@link #flush() flushed} as soon as a new timestamp shows
+	 * up.
+	 *
+	 * @param timestamp       The tick's timestamp, in seconds
+	 * @param executionMicros How long the iteration took, in microseconds
+	 * @param jitterMicros    How late the iteration started, in microseconds
+	 */
+	public void accumulate(double timestamp, long executionMicros, long jitterMicros) {
+		if (timestamp != tickTimestamp) {
+			flush();
+
+			tickTimestamp = timestamp;
+			tickJitter = jitterMicros; // The first loop of the tick starts when the tick does.
+		}
+
+		tickExecution += executionMicros;
+	}
+
+	/**
+	 * Records the Looper tick accumulated so far, if any, as a single iteration.
+	 */
+	public void flush() {
+		if (Double.isNaN(tickTimestamp))
+			return;
+
+		record(tickExecution, tickJitter);
+
+		tickTimestamp = Double.NaN;
+		tickExecution = 0;
+	}
+
+	/**
+	 * Gets the execution time {@link Histogram}.
+	 *
+	 * @return The execution time {@link Histogram}, in microseconds
+	 */
+	public Histogram getExecution() {
+		return execution;
+	}
+
+	/**
+	 * Gets the start jitter {@link Histogram}.
+	 *
+	 * @return The start jitter {@link Histogram}, in microseconds
+	 */
+	public Histogram getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * Gets the number of iterations that overran the Looper's period.
+	 *
+	 * @return The number of overruns
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * Clears every recorded iteration.
+	 */
+	public void reset() {
+		execution.reset();
+		jitter.reset();
+		overruns = 0;
+	}
+}
@@ -0,0 +1,82 @@
+package org.usfirst.frc6647.loops;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.usfirst.frc6647.robot.Robot;
+import org.usfirst.frc6647.telemetry.ReplayHarness;
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopType;
+
+/**
+ * Stands in for every Looper whilst the {@link ReplayHarness} is replaying.
+ * Runs every {@link Loop} registered with a Looper from the {@link Robot}'s own
+ * thread, in the same order, on the replay's clock instead of a
+ * {@link edu.wpi.first.wpilibj.Notifier Notifier}, so every replay runs the
+ * exact same iterations, as fast as it can.
+ *
+ * <p>
+ * Must only ever be used from a single thread.
+ */
+public class ReplayLooper {
+	/** Every {@link Loop} run by each {@link LoopType}'s Looper. */
+	private final EnumMap<LoopType, List<InstrumentedLoop>> loops = new EnumMap<>(LoopType.class);
+	/** Every {@link LoopType} currently running. */
+	private final EnumSet<LoopType> running = EnumSet.noneOf(LoopType.class);
+	/** Every {@link LoopType} started at least once. */
+	private final EnumSet<LoopType> started = EnumSet.noneOf(LoopType.class);
+
+	/**
+	 * Creates a {@link ReplayLooper}. Must only be created once every {@link Loop}
+	 * has been registered.
+	 */
+	public ReplayLooper() {
+		for (var type : LoopType.values())
+			loops.put(type, LoopProfiler.getLooped(type));
+	}
+
+	/**
+	 * Starts every {@link Loop} of the given {@link LoopType}, if it's not already
+	 * running.
+	 *
+	 * @param type      The {@link LoopType} to start
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void start(LoopType type, double timestamp) {
+		if (!running.add(type))
+			return;
+
+		var first = started.add(type);
+		for (var loop : loops.get(type)) {
+			if (first)
+				loop.onFirstStart(timestamp);
+			loop.onStart(timestamp);
+		}
+	}
+
+	/**
+	 * Stops every {@link Loop} of the given {@link LoopType}, if it's running.
+	 *
+	 * @param type      The {@link LoopType} to stop
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void stop(LoopType type, double timestamp) {
+		if (!running.remove(type))
+			return;
+
+		for (var loop : loops.get(type))
+			loop.onStop(timestamp);
+	}
+
+	/**
+	 * Runs a single iteration of every running {@link Loop}.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void run(double timestamp) {
+		for (var type : running)
+			for (var loop : loops.get(type))
+				loop.onLoop(timestamp);
+	}
+}
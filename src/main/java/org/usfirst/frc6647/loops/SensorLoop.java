@@ -0,0 +1,81 @@
+package org.usfirst.frc6647.loops;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+import org.usfirst.frc6647.robot.Constants.SensorConstants;
+import org.usfirst.frc6647.robot.Robot;
+import org.usfirst.frc6647.telemetry.ReplayHarness;
+import org.usfirst.frc6647.util.SensorSnapshot;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Fastest loop on the {@link Robot}, running on its own {@link Notifier} every
+ * {@link SensorConstants#period} seconds. Each tick refreshes the
+ * {@link SensorSnapshot} through the {@link ReplayHarness}, so it's either
+ * recorded or replaced by a recorded frame, then runs every listener with that
+ * refresh's timestamp.
+ *
+ * <p>
+ * Listeners run on this same thread, right after each refresh, so they can read
+ * the {@link SensorSnapshot} directly. Every Looper reads it through its own
+ * {@link SensorSnapshot.Reader} instead, and never waits on a slower refresh.
+ * Whilst replaying, {@link #tick()} is run by the {@link Robot}'s own thread
+ * instead, which steps the replay's clock.
+ */
+public class SensorLoop {
+	/** The {@link Robot}'s {@link SensorSnapshot}. */
+	private final SensorSnapshot snapshot;
+	/** Every listener, run after each refresh in the order they were added. */
+	private final List<DoubleConsumer> listeners = new ArrayList<>();
+	/** {@link Notifier} running {@link #tick()}. */
+	private final Notifier notifier = new Notifier(this::tick);
+	/** {@link ReplayHarness} refreshing the {@link #snapshot}. */
+	private final ReplayHarness replay;
+
+	/**
+	 * Creates a {@link SensorLoop} for the given {@link SensorSnapshot}.
+	 *
+	 * @param snapshot The {@link Robot}'s {@link SensorSnapshot}
+	 * @param replay   The {@link ReplayHarness} to refresh it through
+	 */
+	public SensorLoop(SensorSnapshot snapshot, ReplayHarness replay) {
+		this.snapshot = snapshot;
+		this.replay = replay;
+
+		notifier.setName("SensorLoop");
+	}
+
+	/**
+	 * Adds a listener, run on this {@link SensorLoop}'s thread after every refresh.
+	 * Must be added before the first {@link #tick()}.
+	 *
+	 * @param listener The listener, given the refresh's timestamp, in seconds
+	 */
+	public void addListener(DoubleConsumer listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Starts refreshing the {@link #snapshot}, every {@link SensorConstants#period}
+	 * seconds. Must only be called once every sensor is registered.
+	 */
+	public void start() {
+		notifier.startPeriodic(SensorConstants.period);
+	}
+
+	/**
+	 * Refreshes the {@link #snapshot}, then runs every listener. Must only ever be
+	 * called from a single thread, which is this {@link SensorLoop}'s own unless
+	 * replaying.
+	 */
+	public void tick() {
+		replay.refresh(snapshot);
+
+		var timestamp = snapshot.getTimestamp();
+		for (int i = 0; i < listeners.size(); i++)
+			listeners.get(i).accept(timestamp);
+	}
+}
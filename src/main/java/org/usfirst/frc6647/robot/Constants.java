@@ -31,19 +31,62 @@ public final class Constants {
 		public static final double kaVoltSecondsSquaredPerMeter = 0.416;
 
 		public static final double kPDriveVel = 47.7;
+		// kPDriveVel in Talon units: 1023 per 12 volts, per encoder tick per 100ms.
+		public static final double kPDriveVelTalon = kPDriveVel * (1023.0 / 12) * encoderDistancePerPulse * 10;
+
+		// Make each back Falcon a hardware follower of the front one on its side.
+		public static final boolean hardwareFollowers = true;
+
+		// Drive as soon as each Driver Station packet arrives, instead of on the
+		// TELEOP Looper's own clock. Compare 'inputLatency' with either setting.
+		public static final boolean packetSynchronized = true;
+		// Longest wait for a Driver Station packet, before checking again.
+		public static final double packetTimeoutSeconds = 0.1;
+		// The Driver Station sends a packet every 20ms.
+		public static final long packetPeriodMicros = 20000;
 	}
 
 	public class AutoConstants {
+		public static final double kMaxSpeedMetersPerSecond = 3;
+		public static final double kMaxAccelerationMetersPerSecondSquared = 3;
+		public static final double kMaxVoltage = 10;
+
+		public static final double kRamseteB = 2;
+		public static final double kRamseteZeta = 0.7;
+
+		// How long to spend shooting preloaded balls before driving to the trench.
+		public static final double shootPreloadedSeconds = 4;
+		// Balls loaded into the Indexer before each match.
+		public static final int preloadedBalls = 3;
 	}
 
 	public class GyroConstants {
-		public static final double collisionThresholdDeltaG = 0.25f;
+		// Used to be 0.25G between 10ms loop iterations.
+		public static final double collisionThresholdJerk = 25;
+		// Samples to measure jerk over, about 20ms at the navX's 200Hz.
+		public static final int jerkWindow = 4;
+		// How long every collision stays latched, so the Trigger can't miss it.
+		public static final double collisionLatchSeconds = 0.25;
 	}
 
 	public class TurretConstants {
 		public static final double reduction = 702;
 		public static final double ticksPerRotation = 42;
 		public static final float tolerance = 0.01f;
+
+		// Placeholders until measured on the robot, the target's distance is only
+		// used once 'ShooterConstants.autoRange' is on.
+		public static final double limelightHeightMeters = 0.6;
+		public static final double limelightMountAngle = 25;
+		public static final double targetHeightMeters = 2.496;
+		// Image capture latency, added to the Limelight's pipeline latency.
+		public static final double limelightCaptureLatencyMs = 11;
+		// Turret angle history, enough for well over the Limelight's worst latency.
+		public static final int angleHistorySize = 64;
+
+		// Keep in sync with the 'turret' soft limits in RobotMap.json.
+		public static final double softLimitDegrees = 180;
+		public static final double softLimitMarginDegrees = 2;
 	}
 
 	public class ShooterConstants {
@@ -58,13 +101,142 @@ public final class Constants {
 		public static final double trenchAngle = 59;
 		public static final double behindTrenchAngle = 57;
 		public static final double cursedAngle = 20;
+
+		// Shoot with the ShotMap's solution for the target's distance, instead of the
+		// initiation line's preset. Keep it off until the Limelight's mounting and
+		// every distance, both below and in 'ShotMap.json', are measured on the field.
+		public static final boolean autoRange = false;
+		// Only used if 'ShotMap.json' can't be loaded.
+		public static final double initiationLineDistance = 3.05;
+		public static final double trenchDistance = 5.3;
+		public static final double behindTrenchDistance = 7.6;
+		public static final double cursedDistance = 1.5;
+
+		// Lead the turret and correct the shot's distance for the robot's movement.
+		// Keep it off until the ball's average speed is measured on the robot,
+		// 'averageBallSpeed' is a placeholder until then.
+		public static final boolean leadCompensation = false;
+		public static final double averageBallSpeed = 10;
+		// Low-pass time constant for the robot's speed, so encoder noise doesn't swing the lead.
+		public static final double robotSpeedTimeConstant = 0.1;
+
+		// Run the flywheel's state-space controller on the roboRIO, instead of the
+		// SparkMax's own velocity PID. Opt-in, and only once the flywheel is
+		// characterized: every constant down to 'feedLeadSeconds' is only used with it,
+		// and is a placeholder until then.
+		public static final boolean stateSpace = false;
+		public static final double ksVolts = 0.15;
+		public static final double kvVoltsPerRPM = 0.0021;
+		public static final double kaVoltsPerRPMPerSecond = 0.0009;
+		public static final double modelStdDevRPM = 30;
+		public static final double measurementStdDevRPM = 60;
+		// The NEO's velocity is heavily filtered, measure its delay against a fast encoder.
+		public static final double measurementDelaySeconds = 0.11;
+		public static final double maxVoltage = 12;
+		// How long a ball takes to reach the flywheel once fed.
+		public static final double feedLeadSeconds = 0.1;
+
+		// Low-pass time constant for the rate at which the flywheel closes on its
+		// setpoint, to predict the time to ready without 'stateSpace'.
+		public static final double closingRateTimeConstant = 0.1;
+
+		// Wait for the hood to settle before firing. Keep it off until the hood's servo
+		// speed is measured, 'hoodDegreesPerSecond' is a placeholder until then.
+		public static final boolean hoodSettling = false;
+		public static final double hoodDegreesPerSecond = 150;
+	}
+
+	public class IndexerConstants {
+		public static final int maxBalls = 5;
+
+		// Count, stage and release balls from current spikes. Keep it off until the
+		// thresholds below are tuned against current logs, with and without balls;
+		// until then every motor runs whilst intaking or whilst the Shooter is ready.
+		public static final boolean spikeDetection = false;
+		public static final double indexerSpikeAmps = 6;
+		public static final double pulleySpikeAmps = 8;
+		// Counted in loop updates, so keep the indexer and pulley Sparks' kStatus1 (current)
+		// at the loop's 10ms period in RobotMap.json, or each sample is counted twice.
+		public static final int spikeMinUpdates = 3;
+		public static final double baselineSmoothing = 0.05;
+		// Ignore each motor's inrush current for this long after changing its demand.
+		public static final double inrushSeconds = 0.15;
+		// Time for a ball to climb from the bottom of the pulleys to the Shooter.
+		public static final double stageSeconds = 0.35;
+
+		// Minimum time between releases during a volley, for a ball to clear the
+		// flywheel, and longest a single release can take.
+		public static final double minReleaseSpacingSeconds = 0.12;
+		public static final double releaseTimeoutSeconds = 0.3;
+
+		public static final double indexerSpeed = 1;
+		public static final double pulleySpeed = -0.5;
+
+		// Make each pair's second Spark MAX a hardware follower of its first. Keep it off
+		// until each pair's direction is checked against its follow inversion on the robot.
+		public static final boolean hardwareFollowers = false;
+	}
+
+	public class LooperConstants {
+		// Must match lib6647's Looper period, every overrun and jitter is measured against it.
+		public static final double period = 0.01;
+		public static final long periodMicros = (long) (period * 1e6);
+
+		// Real-time priority (1-99) of each LoopType's Looper thread, 0 leaves it as is.
+		public static final int enabledPriority = 15, teleopPriority = 20, autoPriority = 20, disabledPriority = 0;
+		// CPU cores each LoopType's Looper thread may run on, as a bitmask, 0 leaves it
+		// as is. The roboRIO has two cores, keep control loops off the first one.
+		public static final int enabledAffinity = 0b10, teleopAffinity = 0b10, autoAffinity = 0b10,
+				disabledAffinity = 0;
+		// Seconds to measure jitter before, and after, applying each priority. 0 applies
+		// them right away.
+		public static final double jitterComparisonSeconds = 0;
+	}
+
+	public class OutputConstants {
+		// Longest a duplicate demand can go unwritten, so nothing times out.
+		public static final double keepaliveSeconds = 0.1;
+		// Largest change in a demand still considered a duplicate.
+		public static final double percentTolerance = 0.002;
+		public static final double voltageTolerance = 0.02;
+		public static final double ampTolerance = 0.05;
+		// Talon velocities are in ticks per 100ms, SparkMax velocities in rpm.
+		public static final double ticksTolerance = 1;
+		public static final double rpmTolerance = 1;
+	}
+
+	public class SensorConstants {
+		// The SensorLoop runs as fast as the navX updates, up to 200Hz.
+		public static final double period = 0.005;
+		// Refreshes between each read of a CAN or Limelight signal, none of them update
+		// faster than every 10ms.
+		public static final int slowDivider = 2;
+	}
+
+	public class DashboardConstants {
+		// Longest time to spend publishing to Shuffleboard each cycle.
+		public static final long budgetMicros = 500;
+	}
+
+	public class TelemetryConstants {
+		// Largest total size of every telemetry file kept on the roboRIO, each is 64MiB.
+		public static final long maxTotalBytes = 256L << 20;
+	}
+
+	public class ReplayConstants {
+		// Whether or not to record every run for the ReplayHarness. Off for competition.
+		public static final boolean record = false;
+		public static final int joystickPorts = 2;
+		// Largest total size of every replay file kept on the roboRIO, each is 64MiB.
+		public static final long maxTotalBytes = 128L << 20;
 	}
 
 	public class Aim {
-		public static final double kP = 0;
+		public static final double kP = 0.5;
 		public static final double kI = 0;
 		public static final double kD = 0;
 		public static final int maxVelocity = 360;
 		public static final int maxAceleration = 360;
+		public static final double toleranceDegrees = 1;
 	}
 }
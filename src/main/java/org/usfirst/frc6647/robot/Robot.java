@@ -7,12 +7,21 @@
 
 package org.usfirst.frc6647.robot;
 
+import org.usfirst.frc6647.loops.ReplayLooper;
+import org.usfirst.frc6647.loops.SensorLoop;
+import org.usfirst.frc6647.robot.Constants.LooperConstants;
+import org.usfirst.frc6647.robot.Constants.SensorConstants;
+import org.usfirst.frc6647.telemetry.ReplayHarness;
+import org.usfirst.frc6647.telemetry.ReplayHarness.Mode;
+import org.usfirst.frc6647.util.StartupProfiler;
 import org.usfirst.lib6647.json.JSONRobot;
 import org.usfirst.lib6647.loops.Loop;
 import org.usfirst.lib6647.loops.LoopType;
 import org.usfirst.lib6647.oi.JController;
 import org.usfirst.lib6647.subsystem.SuperSubsystem;
 
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 
 /**
@@ -26,6 +35,16 @@ public class Robot extends JSONRobot {
 	 * joysticks}.
 	 */
 	private final RobotContainer container;
+	/**
+	 * The {@link Robot}'s {@link ReplayHarness}, which records or replays every
+	 * {@link SensorLoop} tick's inputs.
+	 */
+	private final ReplayHarness replay;
+	/**
+	 * Runs every {@link Loop} instead of the Loopers whilst replaying, null
+	 * otherwise.
+	 */
+	private ReplayLooper replayLooper = null;
 
 	/** Static {@link Robot} instance. */
 	private static Robot instance = null;
@@ -45,56 +64,146 @@ public class Robot extends JSONRobot {
 	 */
 	protected Robot() {
 		super();
+		StartupProfiler.start();
 
 		if (instance == null) // Might not be necessary, but just in case.
 			instance = this;
 
+		// Must be created before any joystick, so replayed descriptors are in place.
+		replay = new ReplayHarness();
+		StartupProfiler.mark("replayHarness");
+
 		container = new RobotContainer();
+		container.getRecorder().start();
+		StartupProfiler.mark("container");
 
 		container.initJoysticks();
-		container.initSubsystems();
+		StartupProfiler.mark("joysticks");
+		container.initSubsystems(); // Marks each Subsystem on its own.
 		container.configureButtonBindings();
+		StartupProfiler.mark("buttonBindings");
+
+		replay.start(container.getSnapshot());
+		if (replay.getMode() != Mode.REPLAY) // Ticked by replayCompetition() instead.
+			container.getSensorLoop().start();
+		StartupProfiler.mark("replayStart");
+
+		StartupProfiler.report();
+	}
+
+	@Override
+	public void startCompetition() {
+		if (replay.getMode() == Mode.REPLAY)
+			replayCompetition();
+		else
+			super.startCompetition();
+	}
+
+	/**
+	 * Runs the {@link Robot} from the replay file instead of any Notifier. Every
+	 * {@link SensorLoop} tick injects the next recorded frame and steps the
+	 * simulated clock to its timestamp, then every {@link Loop} and the
+	 * {@link Robot}'s own loop run whenever their period is due, counted in ticks,
+	 * so every replay runs the exact same iterations in the same order, as fast as
+	 * it can. Once the replay is over, it carries on disabled in real time.
+	 */
+	private void replayCompetition() {
+		robotInit();
+		HAL.observeUserProgramStarting();
+
+		replayLooper = new ReplayLooper();
+		var sensorLoop = container.getSensorLoop();
+		var looperTicks = Math.max(1, Math.round(LooperConstants.period / SensorConstants.period));
+		var robotTicks = Math.max(1, Math.round(getPeriod() / SensorConstants.period));
+
+		for (long tick = 0;; tick++) {
+			if (replay.getMode() != Mode.REPLAY) // Nothing left to replay.
+				Timer.delay(SensorConstants.period);
+
+			sensorLoop.tick();
+
+			if (tick % looperTicks == 0)
+				replayLooper.run(Timer.getFPGATimestamp());
+			if (tick % robotTicks == 0)
+				loopFunc();
+		}
 	}
 
 	@Override
 	public void robotPeriodic() {
+		// The SensorSnapshot is refreshed by the SensorLoop, faster than this.
 		CommandScheduler.getInstance().run();
+
+		// Publish to Shuffleboard within budget, once every command has run.
+		container.getDashboard().run(Timer.getFPGATimestamp());
 	}
 
 	@Override
 	public void disabledInit() {
 		// Start disabled loops, stop enabled, teleop, and auto.
-		container.getLooper(LoopType.ENABLED).stop();
-		container.getLooper(LoopType.TELEOP).stop();
-		container.getLooper(LoopType.AUTO).stop();
-		container.getLooper(LoopType.DISABLED).start();
+		stopLoops(LoopType.ENABLED);
+		stopLoops(LoopType.TELEOP);
+		stopLoops(LoopType.AUTO);
+		startLoops(LoopType.DISABLED);
+
+		if (container.getAutonomousCommand() != null)
+			container.getAutonomousCommand().cancel();
 	}
 
 	@Override
 	public void autonomousInit() {
 		// Start enabled & auto loops, stop teleop & disabled.
-		container.getLooper(LoopType.ENABLED).start();
-		container.getLooper(LoopType.TELEOP).stop();
-		container.getLooper(LoopType.AUTO).start();
-		container.getLooper(LoopType.DISABLED).stop();
+		startLoops(LoopType.ENABLED);
+		stopLoops(LoopType.TELEOP);
+		startLoops(LoopType.AUTO);
+		stopLoops(LoopType.DISABLED);
+
+		// Shoot preloaded balls, then follow a Trajectory into the trench.
+		if (container.getAutonomousCommand() != null)
+			container.getAutonomousCommand().schedule();
 	}
 
 	@Override
 	public void teleopInit() {
 		// Start enabled & teleop loops, stop auto & disabled.
-		container.getLooper(LoopType.ENABLED).start();
-		container.getLooper(LoopType.TELEOP).start();
-		container.getLooper(LoopType.AUTO).stop();
-		container.getLooper(LoopType.DISABLED).stop();
+		startLoops(LoopType.ENABLED);
+		startLoops(LoopType.TELEOP);
+		stopLoops(LoopType.AUTO);
+		stopLoops(LoopType.DISABLED);
+
+		if (container.getAutonomousCommand() != null)
+			container.getAutonomousCommand().cancel();
 	}
 
 	@Override
 	public void testInit() {
 		// Stop every loop.
-		container.getLooper(LoopType.ENABLED).stop();
-		container.getLooper(LoopType.TELEOP).stop();
-		container.getLooper(LoopType.AUTO).stop();
-		container.getLooper(LoopType.DISABLED).stop();
+		stopLoops(LoopType.ENABLED);
+		stopLoops(LoopType.TELEOP);
+		stopLoops(LoopType.AUTO);
+		stopLoops(LoopType.DISABLED);
+	}
+
+	/**
+	 * Starts every {@link Loop} of the given {@link LoopType}, through its Looper
+	 * unless replaying.
+	 */
+	private void startLoops(LoopType type) {
+		if (replayLooper != null)
+			replayLooper.start(type, Timer.getFPGATimestamp());
+		else
+			container.getLooper(type).start();
+	}
+
+	/**
+	 * Stops every {@link Loop} of the given {@link LoopType}, through its Looper
+	 * unless replaying.
+	 */
+	private void stopLoops(LoopType type) {
+		if (replayLooper != null)
+			replayLooper.stop(type, Timer.getFPGATimestamp());
+		else
+			container.getLooper(type).stop();
 	}
 
 	/**
@@ -105,4 +214,13 @@ public class Robot extends JSONRobot {
 	public RobotContainer getContainer() {
 		return container;
 	}
+
+	/**
+	 * Get this {@link Robot}'s {@link ReplayHarness}.
+	 * 
+	 * @return The {@link ReplayHarness} recording or replaying this {@link Robot}
+	 */
+	public ReplayHarness getReplayHarness() {
+		return replay;
+	}
 }
@@ -12,13 +12,29 @@ import static org.usfirst.frc6647.robot.Constants.ShooterConstants.trenchRPM;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
+import org.usfirst.frc6647.can.OutputStage;
+import org.usfirst.frc6647.can.StatusFrames;
+import org.usfirst.frc6647.loops.LoopPriorities;
+import org.usfirst.frc6647.loops.LoopProfiler;
+import org.usfirst.frc6647.loops.SensorLoop;
+import org.usfirst.frc6647.robot.Constants.AutoConstants;
+import org.usfirst.frc6647.robot.Constants.DashboardConstants;
+import org.usfirst.frc6647.robot.Constants.IndexerConstants;
+import org.usfirst.frc6647.robot.Constants.ShooterConstants;
 import org.usfirst.frc6647.subsystems.Chassis;
 import org.usfirst.frc6647.subsystems.Elevator;
 import org.usfirst.frc6647.subsystems.Gyro;
 import org.usfirst.frc6647.subsystems.Indexer;
+import org.usfirst.frc6647.subsystems.Indexer.Mode;
 import org.usfirst.frc6647.subsystems.Intake;
 import org.usfirst.frc6647.subsystems.Shooter;
 import org.usfirst.frc6647.subsystems.Turret;
+import org.usfirst.frc6647.telemetry.DashboardScheduler;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+import org.usfirst.frc6647.trajectory.TrajectoryStore;
+import org.usfirst.frc6647.util.SensorSnapshot;
+import org.usfirst.frc6647.util.ShotMap;
+import org.usfirst.frc6647.util.StartupProfiler;
 import org.usfirst.lib6647.loops.Loop;
 import org.usfirst.lib6647.loops.LoopContainer;
 import org.usfirst.lib6647.oi.JController;
@@ -27,6 +43,7 @@ import org.usfirst.lib6647.subsystem.SuperSubsystem;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID.Hand;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
+import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.StartEndCommand;
 
@@ -51,19 +68,58 @@ public class RobotContainer extends LoopContainer {
 	/** The {@link Robot}'s {@link Elevator} instance. */
 	private Elevator elevator;
 
+	/** The {@link Robot}'s {@link ShotMap}, loaded from the 'deploy' directory. */
+	private ShotMap shotMap;
+
+	/** {@link Command} scheduled during the autonomous period. */
+	private Command autonomousCommand;
+
+	/** The {@link Robot}'s {@link SensorSnapshot}, shared by every subsystem. */
+	private final SensorSnapshot snapshot = new SensorSnapshot();
+	/** The {@link Robot}'s {@link SensorLoop}, refreshing the {@link #snapshot}. */
+	private final SensorLoop sensorLoop = new SensorLoop(snapshot, Robot.getInstance().getReplayHarness());
+	/** The {@link Robot}'s {@link TelemetryRecorder}, shared by every subsystem. */
+	private final TelemetryRecorder recorder = new TelemetryRecorder();
+	/** The {@link Robot}'s {@link DashboardScheduler}, shared by every subsystem. */
+	private final DashboardScheduler dashboard = new DashboardScheduler(DashboardConstants.budgetMicros);
+
 	@Override
 	public void initSubsystems() {
-		// Initialize every Subsystem.
-		chassis = new Chassis();
+		// Initialize every Subsystem. Their status frames are configured in the
+		// background, whilst the next one is being initialized.
 		gyro = new Gyro();
+		StartupProfiler.mark("gyro");
+		chassis = new Chassis(gyro);
+		StartupProfiler.mark("chassis");
 		intake = new Intake();
-		turret = new Turret();
+		StartupProfiler.mark("intake");
+		turret = new Turret(chassis.getOdometry());
+		StartupProfiler.mark("turret");
 		shooter = new Shooter();
-		indexer = new Indexer();
+		StartupProfiler.mark("shooter");
+		indexer = new Indexer(shooter);
+		StartupProfiler.mark("indexer");
 		elevator = new Elevator();
+		StartupProfiler.mark("elevator");
+
+		shotMap = ShotMap.fromDeploy("ShotMap.json");
+		StartupProfiler.mark("shotMap");
+
+		// Only the time not already overlapped with the Subsystems above.
+		StatusFrames.awaitConfigured();
+		StartupProfiler.mark("statusFrames");
 
 		// Register each initialized Subsystem.
 		registerSubsystems(chassis, gyro, intake, turret, shooter, indexer, elevator);
+		LoopPriorities.register(this);
+
+		// Publish statistics for every Loop registered by the Subsystems above.
+		LoopProfiler.outputToShuffleboard(dashboard);
+		StatusFrames.outputToShuffleboard(dashboard);
+		OutputStage.outputToShuffleboard(dashboard);
+		recorder.outputToShuffleboard(dashboard);
+		dashboard.outputToShuffleboard();
+		StartupProfiler.mark("shuffleboard");
 	}
 
 	@Override
@@ -119,6 +175,51 @@ public class RobotContainer extends LoopContainer {
 		registerJoystick(driver2, "driver2");
 	}
 
+	/**
+	 * Get this {@link RobotContainer}'s {@link SensorSnapshot}.
+	 * 
+	 * @return The {@link SensorSnapshot} shared by every subsystem
+	 */
+	public SensorSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Get this {@link RobotContainer}'s {@link SensorLoop}.
+	 * 
+	 * @return The {@link SensorLoop} refreshing the {@link SensorSnapshot}
+	 */
+	public SensorLoop getSensorLoop() {
+		return sensorLoop;
+	}
+
+	/**
+	 * Get this {@link RobotContainer}'s {@link TelemetryRecorder}.
+	 * 
+	 * @return The {@link TelemetryRecorder} shared by every subsystem
+	 */
+	public TelemetryRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Get this {@link RobotContainer}'s {@link DashboardScheduler}.
+	 * 
+	 * @return The {@link DashboardScheduler} shared by every subsystem
+	 */
+	public DashboardScheduler getDashboard() {
+		return dashboard;
+	}
+
+	/**
+	 * Get the {@link Command} to schedule during the autonomous period.
+	 * 
+	 * @return The autonomous {@link Command}
+	 */
+	public Command getAutonomousCommand() {
+		return autonomousCommand;
+	}
+
 	@Override
 	public void configureButtonBindings() {
 		var driver1 = getJoystick("driver1");
@@ -132,18 +233,15 @@ public class RobotContainer extends LoopContainer {
 		// Intake commands.
 		Runnable ballStop = () -> {
 			intake.stopMotor();
-			indexer.stopIndexer();
-			indexer.stopPulley();
+			indexer.setMode(Mode.STOP);
 		};
 		Runnable ballIn = () -> {
 			intake.setMotorSpeed(-0.45);
-			indexer.setIndexerSpeed(1, 1);
-			indexer.setPulleySpeed(-0.5, -0.5);
+			indexer.setMode(Mode.INTAKE);
 		};
 		Runnable ballOut = () -> {
 			intake.setMotorSpeed(0.45);
-			indexer.setIndexerSpeed(-1, -1);
-			indexer.setPulleySpeed(0.5, 0.5);
+			indexer.setMode(Mode.EJECT);
 		};
 
 		var toggleIntake = new StartEndCommand(intake::toggleSolenoid, intake::toggleSolenoid);
@@ -167,18 +265,14 @@ public class RobotContainer extends LoopContainer {
 			driver2.setRumble(RumbleType.kLeftRumble, 1);
 			driver2.setRumble(RumbleType.kRightRumble, 1);
 
-			if (!shooter.onTarget())
-				return;
-
-			indexer.setIndexerSpeed(1, 1);
-			indexer.setPulleySpeed(-0.5, -0.5);
+			// Releases one ball at a time, as soon as the Shooter is ready for it.
+			indexer.setMode(Mode.VOLLEY);
 		};
 		Consumer<Boolean> stopFeeding = interrupted -> { // Wish this was possible in League.
 			driver2.setRumble(RumbleType.kLeftRumble, 0);
 			driver2.setRumble(RumbleType.kRightRumble, 0);
 
-			indexer.stopIndexer();
-			indexer.stopPulley();
+			indexer.setMode(Mode.STOP);
 			shooter.stopMotor();
 		};
 
@@ -190,6 +284,47 @@ public class RobotContainer extends LoopContainer {
 				startFeeding, stopFeeding, forever, indexer, shooter);
 		var cursedShoot = new FunctionalCommand(() -> shooter.set(cursedRPM, cursedAngle), startFeeding, stopFeeding,
 				forever, indexer, shooter);
+
+		Runnable autoRange = () -> { // Keeps feeding the Shooter with the ShotMap's solution.
+			if (!ShooterConstants.autoRange) // Not calibrated yet, shoot from the initiation line.
+				shooter.set(initiationLineRPM, initiationLineAngle);
+			else if (turret.isTargetFound()) {
+				shotMap.update(turret.getShotDistance());
+				shooter.set(shotMap.getRPM(), shotMap.getAngle());
+			}
+
+			if (turret.isAiming() && !turret.atGoal()) { // Only feed once the Turret settles.
+				// Staging needs spike detection, otherwise the pulleys would feed anyway.
+				indexer.setMode(IndexerConstants.spikeDetection ? Mode.INTAKE : Mode.STOP);
+				return;
+			}
+
+			startFeeding.run();
+		};
+		var autoRangeShoot = new FunctionalCommand(() -> {
+		}, autoRange, stopFeeding, forever, indexer, shooter);
+		// ...
+
+		// Autonomous commands.
+		var shootPreloaded = new FunctionalCommand(() -> {
+			indexer.setBallCount(AutoConstants.preloadedBalls); // They never went through the intake.
+			turret.setAiming(true);
+		}, autoRange, interrupted -> {
+			stopFeeding.accept(interrupted);
+			turret.setAiming(false);
+		}, forever, indexer, shooter).withTimeout(AutoConstants.shootPreloadedSeconds);
+		var driveToTrench = new FunctionalCommand(() -> chassis.followTrajectory(TrajectoryStore.get("trench")),
+				() -> {
+				}, interrupted -> chassis.stopTrajectory(), chassis::isTrajectoryFinished, chassis);
+		var intakeWhileDriving = new StartEndCommand(() -> {
+			intake.toggleSolenoid();
+			ballIn.run();
+		}, () -> {
+			intake.toggleSolenoid();
+			ballStop.run();
+		}, intake, indexer);
+
+		autonomousCommand = shootPreloaded.andThen(driveToTrench.deadlineWith(intakeWhileDriving));
 		// ...
 
 		try { // Driver 1 commands.
@@ -215,6 +350,7 @@ public class RobotContainer extends LoopContainer {
 			driver2.get("Circle", "B", "Btn2").whileHeld(trenchShoot);
 			driver2.get("Square", "X", "Btn4").whileHeld(behindTrenchShoot);
 			driver2.get("Triangle", "Y", "Btn1").whileHeld(cursedShoot);
+			driver2.get("R1", "RBumper").whileHeld(autoRangeShoot);
 
 			driver2.get("dPadUp").whileHeld(climberUp);
 			driver2.get("dPadDown").whileHeld(climberDown);
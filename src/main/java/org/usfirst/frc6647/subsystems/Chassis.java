@@ -2,12 +2,33 @@ package org.usfirst.frc6647.subsystems;
 
 import java.io.File;
 import java.util.List;
-import java.util.Random;
 
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.music.Orchestra;
 
+import org.usfirst.frc6647.can.OutputStage;
+import org.usfirst.frc6647.can.StatusFrames;
+import org.usfirst.frc6647.loops.InstrumentedLoop;
+import org.usfirst.frc6647.loops.LoopPriorities;
+import org.usfirst.frc6647.loops.LoopProfiler;
+import org.usfirst.frc6647.robot.Constants.AutoConstants;
+import org.usfirst.frc6647.robot.Constants.DriveConstants;
+import org.usfirst.frc6647.robot.Constants.OutputConstants;
+import org.usfirst.frc6647.robot.Constants.SensorConstants;
 import org.usfirst.frc6647.robot.Robot;
 import org.usfirst.frc6647.robot.RobotContainer;
+import org.usfirst.frc6647.telemetry.Channel;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+import org.usfirst.frc6647.telemetry.ReplayHarness;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+import org.usfirst.frc6647.trajectory.PackedTrajectory;
+import org.usfirst.frc6647.trajectory.Ramsete;
+import org.usfirst.frc6647.util.ArcadeDrive;
+import org.usfirst.frc6647.util.Odometry;
+import org.usfirst.frc6647.util.SensorSnapshot;
+import org.usfirst.frc6647.util.SharedState;
+import org.usfirst.frc6647.util.SongPreloader;
 import org.usfirst.lib6647.loops.ILooper;
 import org.usfirst.lib6647.loops.Loop;
 import org.usfirst.lib6647.loops.LoopType;
@@ -21,9 +42,14 @@ import org.usfirst.lib6647.subsystem.supercomponents.SuperDoubleSolenoid;
 import org.usfirst.lib6647.subsystem.supercomponents.SuperFalcon;
 
 import edu.wpi.first.wpilibj.Compressor;
+import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.GenericHID.Hand;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 
 /**
@@ -33,6 +59,8 @@ import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDoubleSolenoid, SuperFalcon {
 	/** {@link JController} instance used by the {@link Robot}. */
 	private JController joystick;
+	/** {@link Gyro} instance used by the {@link Robot}, for its heading. */
+	private Gyro gyro;
 	/** {@link Compressor} instance used by the {@link Robot}. */
 	private Compressor compressor;
 	/** {@link HyperFalcon HyperFalcons} used by this {@link Chassis subsystem}. */
@@ -40,19 +68,109 @@ public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDou
 	/** {@link HyperSolenoid} used by this {@link Chassis subsystem}. */
 	private HyperDoubleSolenoid reduction;
 
+	/**
+	 * {@link OutputStage} for every {@link HyperFalcon}, only used by the TELEOP
+	 * and AUTO loops, which never run at the same time.
+	 */
+	private final OutputStage outputs = new OutputStage("chassis", OutputConstants.keepaliveSeconds);
+	/** {@link OutputStage} output for each side's {@link HyperFalcon falcons}. */
+	private OutputStage.Output left, right;
+	/** Arcade drive body, writing both sides' {@link #outputs}. */
+	private ArcadeDrive arcade;
+	/** Modes of each side's demand. */
+	private static final int arcadeMode = 0, rampedMode = 1, percentMode = 2, velocityMode = 3, stopMode = 4;
+
 	/** {@link Orchestra} object instance, for playing MIDI (.chrp) files. */
 	private Orchestra orchestra;
+	/** Loads every song into the {@link #orchestra}, off the main thread. */
+	private SongPreloader songs;
+	/** Whether or not the {@link #orchestra} was playing on the last drive. */
+	private boolean playing = false;
+
+	/** The {@link Robot}'s {@link SensorSnapshot}, read once per cycle. */
+	private SensorSnapshot snapshot;
+	/** {@link SensorSnapshot} slots for each {@link HyperFalcon}'s position. */
+	private int frontLeftPositionSlot, frontRightPositionSlot, backLeftPositionSlot, backRightPositionSlot;
+	/** {@link SensorSnapshot} slots for each {@link HyperFalcon}'s velocity. */
+	private int frontLeftVelocitySlot, frontRightVelocitySlot, backLeftVelocitySlot, backRightVelocitySlot;
+	/** {@link SensorSnapshot.Reader} for {@link #drive(double)}, used whilst holding the {@link #outputs}' lock. */
+	private SensorSnapshot.Reader sensors;
+
+	/** The {@link Robot}'s {@link TelemetryRecorder}. */
+	private TelemetryRecorder recorder;
 
 	/**
-	 * Checks whether the {@link Robot}'s 'front' is at the front, or at the back.
+	 * Operator intent shared with the Looper threads, only written by the command
+	 * scheduler's thread.
+	 */
+	private final SharedState intent = new SharedState(1);
+	/**
+	 * {@link #intent} slot, whether the {@link Robot}'s 'front' is at the front, or
+	 * at the back.
 	 */
-	private boolean inverted = false;
+	private static final int invertedSlot = 0;
+
+	/** Characterized {@link SimpleMotorFeedforward} for each side. */
+	private final SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(DriveConstants.ksVolts,
+			DriveConstants.kvVoltSecondsPerMeter, DriveConstants.kaVoltSecondsSquaredPerMeter);
+	/** {@link Ramsete} controller used to follow every {@link PackedTrajectory}. */
+	private final Ramsete ramsete = new Ramsete(AutoConstants.kRamseteB, AutoConstants.kRamseteZeta,
+			DriveConstants.trackWidthMeters);
+	/** {@link Odometry} from the {@link HyperFalcon falcons}' sensors and {@link #gyro}. */
+	private Odometry odometry;
+
+	/**
+	 * Whether or not to drive from every Driver Station packet, as set by
+	 * {@link DriveConstants#packetSynchronized}. Never whilst replaying, where
+	 * packets are injected by the {@link Robot}'s own thread.
+	 */
+	private final boolean packetSynchronized;
+	/**
+	 * Wakes up on every new Driver Station packet, and drives from it if
+	 * {@link #packetSynchronized} is set. Not started whilst replaying.
+	 */
+	private final Thread packetThread = new Thread(this::waitForPackets, "ChassisPackets");
+	/** Drives from each packet, instrumented apart from every TELEOP {@link Loop}. */
+	private final InstrumentedLoop packetLoop = LoopProfiler.instrument("chassisPackets", new Loop() {
+		@Override
+		public void onFirstStart(double timestamp) {
+		}
+
+		@Override
+		public void onStart(double timestamp) {
+		}
+
+		@Override
+		public void onLoop(double timestamp) {
+			drive(timestamp);
+		}
+
+		@Override
+		public void onStop(double timestamp) {
+		}
+
+		@Override
+		public LoopType getType() {
+			return LoopType.TELEOP;
+		}
+	}, DriveConstants.packetPeriodMicros);
+	/** FPGA timestamp of the latest Driver Station packet. */
+	private volatile double packetAt = 0;
+	/** Whether or not the TELEOP drive loop is running. */
+	private volatile boolean driving = false;
+
+	/** {@link PackedTrajectory} to start following, handed to the AUTO loop. */
+	private volatile PackedTrajectory pendingTrajectory = null;
+	/** Whether or not the current {@link PackedTrajectory} has been fully followed. */
+	private volatile boolean trajectoryFinished = true;
 
 	/**
 	 * Should only need to create a single of instance of {@link Chassis this
 	 * class}; inside the {@link RobotContainer}.
+	 * 
+	 * @param gyro The {@link Robot}'s {@link Gyro}, used for odometry
 	 */
-	public Chassis() {
+	public Chassis(Gyro gyro) {
 		super("chassis");
 
 		// All SuperComponents must be initialized like this. The 'robotMap' Object is
@@ -64,6 +182,7 @@ public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDou
 
 		// Additional initialiation & configuration.
 		joystick = Robot.getInstance().getContainer().getJoystick("driver1");
+		this.gyro = gyro;
 
 		compressor = getCompressor("compressor");
 
@@ -72,25 +191,109 @@ public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDou
 		backLeft = getFalcon("backLeft");
 		backRight = getFalcon("backRight");
 
+		for (var falcon : List.of(frontLeft, frontRight, backLeft, backRight))
+			falcon.config_kP(0, DriveConstants.kPDriveVelTalon);
+
+		// Both falcons on each side always get the same demand.
+		follow();
+		var writes = DriveConstants.hardwareFollowers ? 1 : 2;
+		left = outputs.add((mode, value, aux) -> {
+			write(frontLeft, mode, value, aux);
+			if (!DriveConstants.hardwareFollowers)
+				write(backLeft, mode, value, aux);
+		}, OutputConstants.percentTolerance, 2, writes).withTolerance(velocityMode, OutputConstants.ticksTolerance,
+				OutputConstants.percentTolerance);
+		right = outputs.add((mode, value, aux) -> {
+			write(frontRight, mode, value, aux);
+			if (!DriveConstants.hardwareFollowers)
+				write(backRight, mode, value, aux);
+		}, OutputConstants.percentTolerance, 2, writes).withTolerance(velocityMode, OutputConstants.ticksTolerance,
+				OutputConstants.percentTolerance);
+		arcade = new ArcadeDrive(outputs, left, right, arcadeMode, Timer::getFPGATimestamp);
+
 		reduction = getDoubleSolenoid("reduction");
 
 		orchestra = new Orchestra(List.of(frontLeft, backLeft, frontRight, backRight));
+		songs = new SongPreloader(orchestra, new File(Filesystem.getDeployDirectory(), "MIDI"));
+
+		recorder = Robot.getInstance().getContainer().getRecorder();
+
+		snapshot = Robot.getInstance().getContainer().getSnapshot();
+		var divider = SensorConstants.slowDivider;
+		frontLeftPositionSlot = snapshot.register("frontLeftPosition", frontLeft::getSelectedSensorPosition, divider);
+		frontRightPositionSlot = snapshot.register("frontRightPosition", frontRight::getSelectedSensorPosition,
+				divider);
+		backLeftPositionSlot = snapshot.register("backLeftPosition", backLeft::getSelectedSensorPosition, divider);
+		backRightPositionSlot = snapshot.register("backRightPosition", backRight::getSelectedSensorPosition, divider);
+
+		frontLeftVelocitySlot = snapshot.register("frontLeftVelocity", frontLeft::getSelectedSensorVelocity, divider);
+		frontRightVelocitySlot = snapshot.register("frontRightVelocity", frontRight::getSelectedSensorVelocity,
+				divider);
+		backLeftVelocitySlot = snapshot.register("backLeftVelocity", backLeft::getSelectedSensorVelocity, divider);
+		backRightVelocitySlot = snapshot.register("backRightVelocity", backRight::getSelectedSensorVelocity,
+				divider);
+		sensors = snapshot.newReader();
+
+		// Updated by the SensorLoop, right after each refresh, so it reads the
+		// SensorSnapshot directly.
+		odometry = new Odometry(
+				() -> (snapshot.get(frontLeftPositionSlot) + snapshot.get(backLeftPositionSlot)) / 2
+						* DriveConstants.encoderDistancePerPulse,
+				() -> (snapshot.get(frontRightPositionSlot) + snapshot.get(backRightPositionSlot)) / 2
+						* DriveConstants.encoderDistancePerPulse,
+				// Velocities are in ticks per 100ms.
+				() -> (snapshot.get(frontLeftVelocitySlot) + snapshot.get(backLeftVelocitySlot)) / 2
+						* DriveConstants.encoderDistancePerPulse * 10,
+				() -> (snapshot.get(frontRightVelocitySlot) + snapshot.get(backRightVelocitySlot)) / 2
+						* DriveConstants.encoderDistancePerPulse * 10,
+				() -> Math.toRadians(-gyro.getYaw()));
+		Robot.getInstance().getContainer().getSensorLoop().addListener(odometry::update);
+
+		var replaying = Robot.getInstance().getReplayHarness().getMode() == ReplayHarness.Mode.REPLAY;
+		packetSynchronized = DriveConstants.packetSynchronized && !replaying;
+		if (!replaying) {
+			packetThread.setDaemon(true);
+			packetThread.start();
+		}
+
+		// Written in the background, so only once this constructor is done configuring.
+		StatusFrames.configureFalcons(getName(), this::getFalcon);
 		// ...
 	}
 
 	@Override
 	public void outputToShuffleboard() {
 		try {
-			layout.add(frontLeft).withWidget(BuiltInWidgets.kSpeedController);
-			layout.add(frontRight).withWidget(BuiltInWidgets.kSpeedController);
-			layout.add(backLeft).withWidget(BuiltInWidgets.kSpeedController);
-			layout.add(backRight).withWidget(BuiltInWidgets.kSpeedController);
-
-			layout.add(reduction);
-
-			layout.addBoolean("headingFlipped", this::getHeading).withWidget(BuiltInWidgets.kBooleanBox);
-			layout.addBoolean("compressorOn", compressor::enabled);
-			layout.addBoolean("orchestraPlaying", orchestra::isPlaying).withWidget(BuiltInWidgets.kBooleanBox);
+			var dashboard = Robot.getInstance().getContainer().getDashboard();
+
+			dashboard.addNumber(layout, "frontLeft", frontLeft::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
+			dashboard.addNumber(layout, "frontRight", frontRight::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
+			// Hardware followers are never set, so they'd always show 0.
+			var backLeftDemand = DriveConstants.hardwareFollowers ? frontLeft : backLeft;
+			var backRightDemand = DriveConstants.hardwareFollowers ? frontRight : backRight;
+			dashboard.addNumber(layout, "backLeft", backLeftDemand::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
+			dashboard.addNumber(layout, "backRight", backRightDemand::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
+
+			dashboard.addBoolean(layout, "reduction", () -> reduction.get() == Value.kForward, Priority.LOW, 2);
+
+			dashboard.addBoolean(layout, "headingFlipped", this::getHeading, Priority.NORMAL, 10)
+					.withWidget(BuiltInWidgets.kBooleanBox);
+
+			dashboard.addNumber(layout, "poseX", odometry::getX, Priority.NORMAL, 10);
+			dashboard.addNumber(layout, "poseY", odometry::getY, Priority.NORMAL, 10);
+			dashboard.addNumber(layout, "poseHeading", () -> Math.toDegrees(odometry.getHeading()), Priority.NORMAL,
+					10);
+			var inputLatency = arcade.getInputLatency();
+			dashboard.addNumber(layout, "inputLatencyP50", () -> inputLatency.getPercentile(0.5), Priority.LOW, 2);
+			dashboard.addNumber(layout, "inputLatencyP99", () -> inputLatency.getPercentile(0.99), Priority.LOW, 2);
+			dashboard.addNumber(layout, "inputLatencyMax", inputLatency::getMax, Priority.LOW, 2);
+			dashboard.addBoolean(layout, "compressorOn", compressor::enabled, Priority.LOW, 1);
+			dashboard.addBoolean(layout, "orchestraPlaying", orchestra::isPlaying, Priority.LOW, 2)
+					.withWidget(BuiltInWidgets.kBooleanBox);
 		} catch (NullPointerException e) {
 			var error = String.format("[!] COULD NOT OUTPUT SUBSYSTEM '%1$s':\n\t%2$s.", getName(),
 					e.getLocalizedMessage());
@@ -102,24 +305,25 @@ public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDou
 
 	/**
 	 * Picks a random song from the 'deploy' directory, and loads it into the
-	 * {@link #orchestra} instance.
+	 * {@link #orchestra} instance in the background.
 	 */
 	public void prepareSong() {
-		var songs = new File(Filesystem.getDeployDirectory() + "/MIDI/").listFiles();
-		var song = songs[new Random().nextInt(songs.length)].toString();
+		if (orchestra.isPlaying()) // Don't load over a playing song.
+			orchestra.stop();
 
-		System.out.println("Ready to play: '" + song + "'...");
-		orchestra.loadMusic(song);
+		songs.prepare();
 	}
 
 	/**
-	 * Plays/pauses currently loaded song.
+	 * Plays/pauses currently loaded song, if it's done loading.
 	 */
 	public void toggleSong() {
-		if (!orchestra.isPlaying())
+		if (orchestra.isPlaying())
+			orchestra.pause();
+		else if (songs.getReady() != null)
 			orchestra.play();
 		else
-			orchestra.pause();
+			DriverStation.reportWarning("Song still loading...", false);
 	}
 
 	/**
@@ -132,50 +336,239 @@ public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDou
 	/**
 	 * Gets whether or not the {@link Robot}'s 'front' is flipped.
 	 * 
-	 * @return The current state of the {@link Robot}'s {@link #inverted heading}
+	 * @return The current state of the {@link Robot}'s {@link #invertedSlot
+	 *         heading}
 	 */
 	public boolean getHeading() {
-		return inverted;
+		return intent.getBoolean(invertedSlot);
 	}
 
 	/**
 	 * Toggles where the {@link Robot}'s 'front' is.
 	 */
 	public void toggleHeading() {
-		inverted = !inverted;
+		intent.setBoolean(invertedSlot, !intent.peekBoolean(invertedSlot));
+	}
+
+	/**
+	 * Gets the {@link Chassis}'s current {@link Pose2d pose}, as estimated by its
+	 * {@link #odometry}. Allocates a new {@link Pose2d} on every call, prefer
+	 * {@link #getOdometry()} inside loops.
+	 * 
+	 * @return The {@link Chassis}'s current {@link Pose2d pose}
+	 */
+	public Pose2d getPose() {
+		var pose = new double[3];
+		odometry.getPose(pose);
+
+		return new Pose2d(pose[0], pose[1], new Rotation2d(pose[2]));
+	}
+
+	/**
+	 * Gets this {@link Chassis}'s {@link Odometry}, which can be read from any
+	 * thread.
+	 * 
+	 * @return The {@link Chassis}'s {@link Odometry}
+	 */
+	public Odometry getOdometry() {
+		return odometry;
+	}
+
+	/**
+	 * Starts following the given {@link PackedTrajectory} from the AUTO loop,
+	 * resetting {@link #odometry} to its initial pose. A null
+	 * {@link PackedTrajectory} (one that couldn't be loaded) is finished right
+	 * away.
+	 * 
+	 * @param trajectory The {@link PackedTrajectory} to follow
+	 */
+	public void followTrajectory(PackedTrajectory trajectory) {
+		trajectoryFinished = trajectory == null;
+		pendingTrajectory = trajectory;
 	}
 
 	/**
-	 * Use {@link HyperFalcon falcons} as an arcade drive.
+	 * Gets whether or not the last {@link PackedTrajectory} given to
+	 * {@link #followTrajectory(PackedTrajectory)} has been fully followed.
+	 * 
+	 * @return Whether or not the {@link PackedTrajectory} is finished
+	 */
+	public boolean isTrajectoryFinished() {
+		return trajectoryFinished;
+	}
+
+	/**
+	 * Stops following the current {@link PackedTrajectory}.
+	 */
+	public void stopTrajectory() {
+		pendingTrajectory = null;
+		trajectoryFinished = true;
+	}
+
+	/**
+	 * Drives each side of the {@link Chassis} in closed-loop velocity, with the
+	 * characterized {@link #feedforward} as arbitrary feed-forward. Only written
+	 * once {@link #outputs} are flushed, at the end of the calling loop.
+	 * 
+	 * @param left  The left side's speed, in meters per second
+	 * @param right The right side's speed, in meters per second
+	 */
+	public void setWheelSpeeds(double left, double right) {
+		var leftTicks = left / DriveConstants.encoderDistancePerPulse / 10;
+		var rightTicks = right / DriveConstants.encoderDistancePerPulse / 10;
+		var leftFeedforward = feedforward.calculate(left) / 12;
+		var rightFeedforward = feedforward.calculate(right) / 12;
+
+		this.left.set(velocityMode, leftTicks, leftFeedforward);
+		this.right.set(velocityMode, rightTicks, rightFeedforward);
+	}
+
+	/**
+	 * Use {@link HyperFalcon falcons} as an arcade drive. Only written once
+	 * {@link #outputs} are flushed, at the end of the calling loop.
 	 * 
 	 * @param forward  The drive's forward speed
 	 * @param rotation The drive's rotation speed
 	 */
 	public void arcadeDrive(double forward, double rotation) {
-		frontLeft.set(forward * (inverted ? -1 : 1), -rotation);
-		backLeft.set(forward * (inverted ? -1 : 1), -rotation);
-
-		frontRight.set(forward * (inverted ? -1 : 1), rotation);
-		backRight.set(forward * (inverted ? -1 : 1), rotation);
+		arcade.set(forward, rotation, getHeading());
 	}
 
 	/**
-	 * Use {@link HyperFalcon falcons} as a tank drive.
+	 * Use {@link HyperFalcon falcons} as a tank drive. Only written once
+	 * {@link #outputs} are flushed, at the end of the calling loop.
 	 * 
 	 * @param left  The speed at which to set the left side of the {@link Chassis}
 	 * @param right The speed at which to set the right side of the {@link Chassis}
 	 */
 	public void tankDrive(double left, double right) {
-		frontLeft.setWithRamp(left * (inverted ? -1 : 1));
-		backLeft.setWithRamp(left * (inverted ? -1 : 1));
+		var inverted = getHeading();
+
+		this.left.set(rampedMode, left * (inverted ? -1 : 1));
+		this.left.force(); // The ramp only advances when written.
+		this.right.set(percentMode, right * (inverted ? -1 : 1));
+	}
 
-		frontRight.set(right * (inverted ? -1 : 1));
-		backRight.set(right * (inverted ? -1 : 1));
+	/**
+	 * Makes each back {@link HyperFalcon} follow the front one on its side, if
+	 * {@link DriveConstants#hardwareFollowers} is set.
+	 */
+	private void follow() {
+		if (!DriveConstants.hardwareFollowers)
+			return;
+
+		backLeft.follow(frontLeft);
+		backRight.follow(frontRight);
+	}
+
+	/**
+	 * Stops every {@link HyperFalcon}, through the {@link #outputs} so any
+	 * followers keep following.
+	 */
+	private void stop(double timestamp) {
+		left.set(stopMode, 0);
+		right.set(stopMode, 0);
+
+		outputs.invalidate();
+		outputs.flush(timestamp);
+	}
+
+	/**
+	 * Writes a demand from the {@link #outputs} to the given {@link HyperFalcon}.
+	 */
+	private static void write(HyperFalcon falcon, int mode, double value, double aux) {
+		switch (mode) {
+		case arcadeMode:
+			falcon.set(value, aux);
+			break;
+		case rampedMode:
+			falcon.setWithRamp(value);
+			break;
+		case percentMode:
+			falcon.set(value);
+			break;
+		case velocityMode:
+			falcon.set(ControlMode.Velocity, value, DemandType.ArbitraryFeedForward, aux);
+			break;
+		default:
+			falcon.stopMotor();
+		}
+	}
+
+	/**
+	 * Stamps every new Driver Station packet, and drives from it right away if
+	 * {@link #packetSynchronized} is set and the TELEOP drive loop is
+	 * running. Runs on the {@link #packetThread}, at the TELEOP Looper's priority
+	 * and affinity.
+	 */
+	private void waitForPackets() {
+		var driverStation = DriverStation.getInstance();
+		var started = false; // Whether or not the packetLoop has driven since the drive loop started.
+
+		if (packetSynchronized)
+			LoopPriorities.apply(LoopType.TELEOP);
+
+		while (!Thread.currentThread().isInterrupted()) {
+			// No packet before the timeout, such as whilst disconnected.
+			if (!driverStation.waitForData(DriveConstants.packetTimeoutSeconds))
+				continue;
+
+			var timestamp = Timer.getFPGATimestamp();
+			packetAt = timestamp;
+
+			if (packetSynchronized && driving) {
+				synchronized (outputs) {
+					if (driving) { // Might have stopped whilst waiting.
+						if (!started)
+							packetLoop.onStart(timestamp);
+						started = true;
+
+						packetLoop.onLoop(timestamp);
+					} else {
+						started = false;
+					}
+				}
+			} else {
+				started = false;
+			}
+		}
+	}
+
+	/**
+	 * Drives from the {@link #joystick}, and records how long it's been since the
+	 * packet it came from. Called from either the TELEOP drive loop or the
+	 * {@link #packetThread}, whilst holding the {@link #outputs}' lock.
+	 */
+	private void drive(double timestamp) {
+		if (orchestra.isPlaying()) { // Prevents the robot from moving whilst playing a MIDI file.
+			playing = true;
+			return;
+		} else if (playing) { // The orchestra took over every falcon, take them back.
+			playing = false;
+			follow();
+			outputs.invalidate();
+		}
+
+		var latency = arcade.drive(timestamp, joystick.getY(Hand.kLeft), joystick.getX(Hand.kRight), getHeading(),
+				packetAt);
+		if (!Double.isNaN(latency))
+			recorder.record(Channel.CHASSIS_INPUT_LATENCY, latency);
+
+		recorder.record(Channel.CHASSIS_FRONT_LEFT_OUTPUT, frontLeft.get());
+		recorder.record(Channel.CHASSIS_FRONT_RIGHT_OUTPUT, frontRight.get());
+		recorder.record(Channel.CHASSIS_BACK_LEFT_OUTPUT, backLeft.get());
+		recorder.record(Channel.CHASSIS_BACK_RIGHT_OUTPUT, backRight.get());
+
+		sensors.update();
+		recorder.record(Channel.CHASSIS_LEFT_VELOCITY,
+				(sensors.get(frontLeftVelocitySlot) + sensors.get(backLeftVelocitySlot)) / 2);
+		recorder.record(Channel.CHASSIS_RIGHT_VELOCITY,
+				(sensors.get(frontRightVelocitySlot) + sensors.get(backRightVelocitySlot)) / 2);
 	}
 
 	@Override
 	public void registerLoops(ILooper looper) {
-		looper.register(new Loop() { // Drive loop
+		looper.register(LoopProfiler.instrument("chassisDrive", new Loop() { // Drive loop
 			@Override
 			public void onFirstStart(double timestamp) {
 			}
@@ -184,17 +577,19 @@ public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDou
 			public void onStart(double timestamp) {
 				synchronized (Chassis.this) {
 					compressor.start();
-					System.out.println("Started arcade drive at: " + timestamp + "!");
+					recorder.record(Channel.DRIVE_STARTED, timestamp);
 				}
+
+				driving = true;
 			}
 
 			@Override
 			public void onLoop(double timestamp) {
-				if (orchestra.isPlaying()) // Prevents the robot from moving whilst playing a MIDI file.
+				if (packetSynchronized) // Driven from the packetThread instead.
 					return;
 
-				synchronized (Chassis.this) {
-					arcadeDrive(joystick.getY(Hand.kLeft), joystick.getX(Hand.kRight));
+				synchronized (outputs) {
+					drive(timestamp);
 				}
 			}
 
@@ -202,19 +597,98 @@ public class Chassis extends SuperSubsystem implements SuperCompressor, SuperDou
 			public void onStop(double timestamp) {
 				compressor.stop();
 
-				frontLeft.stopMotor();
-				frontRight.stopMotor();
-
-				backLeft.stopMotor();
-				backRight.stopMotor();
+				synchronized (outputs) {
+					driving = false;
+					stop(timestamp);
+				}
 
-				System.out.println("Stopped arcade drive at: " + timestamp + ".");
+				recorder.record(Channel.DRIVE_STOPPED, timestamp);
 			}
 
 			@Override
 			public LoopType getType() {
 				return LoopType.TELEOP;
 			}
-		});
+		}));
+
+		looper.register(LoopProfiler.instrument("chassisRamsete", new Loop() { // Path following loop.
+			/** {@link PackedTrajectory} currently being followed. */
+			private PackedTrajectory trajectory = null;
+			/** Timestamp at which the current {@link PackedTrajectory} started. */
+			private double start;
+			/** {@link Odometry} reset to wait for, before starting to follow. */
+			private double reset;
+			/** Whether or not the {@link #odometry} has been reset for this trajectory. */
+			private boolean started;
+			/** Pre-allocated pose, as X, Y and heading. */
+			private final double[] pose = new double[3];
+
+			@Override
+			public void onFirstStart(double timestamp) {
+			}
+
+			@Override
+			public void onStart(double timestamp) {
+				trajectory = null;
+			}
+
+			@Override
+			public void onLoop(double timestamp) {
+				step(timestamp);
+				outputs.flush(timestamp);
+			}
+
+			/**
+			 * Follows the current {@link PackedTrajectory}, if any.
+			 */
+			private void step(double timestamp) {
+				var pending = pendingTrajectory;
+				if (pending != trajectory) { // A new trajectory was handed over, or the last one was stopped.
+					trajectory = pending;
+					started = false;
+
+					if (trajectory != null) {
+						trajectory.sample(0);
+						reset = odometry.reset(trajectory.getX(), trajectory.getY(), trajectory.getHeading());
+					} else {
+						arcadeDrive(0, 0);
+					}
+				}
+
+				if (trajectory == null || trajectoryFinished)
+					return;
+
+				if (!started) { // Wait for the Odometry thread to apply the reset.
+					if (odometry.getResets() < reset)
+						return;
+
+					started = true;
+					start = timestamp;
+				}
+
+				var elapsed = timestamp - start;
+				if (elapsed > trajectory.getTotalTime()) {
+					trajectoryFinished = true;
+					setWheelSpeeds(0, 0);
+					return;
+				}
+
+				odometry.getPose(pose);
+				trajectory.sample(elapsed);
+				ramsete.calculate(pose[0], pose[1], pose[2], trajectory);
+				setWheelSpeeds(ramsete.getLeft(), ramsete.getRight());
+			}
+
+			@Override
+			public void onStop(double timestamp) {
+				trajectoryFinished = true;
+				stop(timestamp);
+			}
+
+			@Override
+			public LoopType getType() {
+				return LoopType.AUTO;
+			}
+		}));
 	}
 }
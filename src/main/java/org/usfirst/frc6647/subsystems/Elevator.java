@@ -2,7 +2,10 @@ package org.usfirst.frc6647.subsystems;
 
 import com.revrobotics.ControlType;
 
+import org.usfirst.frc6647.can.StatusFrames;
+import org.usfirst.frc6647.robot.Robot;
 import org.usfirst.frc6647.robot.RobotContainer;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
 import org.usfirst.lib6647.subsystem.SuperSubsystem;
 import org.usfirst.lib6647.subsystem.hypercomponents.HyperSparkMax;
 import org.usfirst.lib6647.subsystem.supercomponents.SuperSparkMax;
@@ -31,13 +34,19 @@ public class Elevator extends SuperSubsystem implements SuperSparkMax {
 
 		// Additional initialiation & configuration.
 		elevator = getSpark("elevator");
+
+		// Written in the background, so only once this constructor is done configuring.
+		StatusFrames.configureSparks(getName(), this::getSpark);
 		// ...
 	}
 
 	@Override
 	public void outputToShuffleboard() {
 		try {
-			layout.add(elevator).withWidget(BuiltInWidgets.kSpeedController);
+			var dashboard = Robot.getInstance().getContainer().getDashboard();
+
+			dashboard.addNumber(layout, "elevator", elevator::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
 		} catch (NullPointerException e) {
 			var error = String.format("[!] COULD NOT OUTPUT SUBSYSTEM '%1$s':\n\t%2$s.", getName(),
 					e.getLocalizedMessage());
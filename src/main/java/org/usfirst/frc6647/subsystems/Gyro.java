@@ -1,8 +1,15 @@
 package org.usfirst.frc6647.subsystems;
 
+import org.usfirst.frc6647.loops.LoopProfiler;
+import org.usfirst.frc6647.loops.SensorLoop;
 import org.usfirst.frc6647.robot.Constants;
 import org.usfirst.frc6647.robot.Robot;
 import org.usfirst.frc6647.robot.RobotContainer;
+import org.usfirst.frc6647.telemetry.Channel;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+import org.usfirst.frc6647.util.CollisionLatch;
+import org.usfirst.frc6647.util.SensorSnapshot;
 import org.usfirst.lib6647.loops.ILooper;
 import org.usfirst.lib6647.loops.Loop;
 import org.usfirst.lib6647.loops.LoopType;
@@ -13,6 +20,7 @@ import org.usfirst.lib6647.subsystem.supercomponents.SuperAHRS;
 
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 
@@ -25,10 +33,24 @@ public class Gyro extends SuperSubsystem implements SuperAHRS {
 	/** {@link HyperAHRS} instance used by this {@link Gyro subsystem}. */
 	private HyperAHRS navX;
 
-	/** Stores last detected world linear X and Y acceleration values. */
-	private double lastWorldLinearAccelX = 0.0, lastWorldLinearAccelY = 0.0;
-	/** Whether or not a collision was detected by the {@link #navX}. */
-	private boolean collisionDetected = false;
+	/**
+	 * Detects and latches collisions from the {@link #navX}'s world linear
+	 * acceleration, only updated by the {@link SensorLoop}.
+	 */
+	private final CollisionLatch collisions = new CollisionLatch(Constants.GyroConstants.collisionThresholdJerk,
+			Constants.GyroConstants.jerkWindow, Constants.GyroConstants.collisionLatchSeconds);
+
+	/** The {@link Robot}'s {@link SensorSnapshot}, read once per cycle. */
+	private SensorSnapshot snapshot;
+	/** {@link SensorSnapshot} slots for every sensor used by this {@link Gyro}. */
+	private int yawSlot, worldLinearAccelXSlot, worldLinearAccelYSlot, sensorTimestampSlot;
+	/** The {@link #navX}'s timestamp of the last sample fed to {@link #collisions}. */
+	private double lastSensorTimestamp = Double.NaN;
+	/** The telemetry loop's {@link SensorSnapshot.Reader}. */
+	private SensorSnapshot.Reader sensors;
+
+	/** The {@link Robot}'s {@link TelemetryRecorder}. */
+	private TelemetryRecorder recorder;
 
 	/**
 	 * Should only need to create a single of instance of {@link Gyro this class};
@@ -46,6 +68,19 @@ public class Gyro extends SuperSubsystem implements SuperAHRS {
 		joystick = Robot.getInstance().getContainer().getJoystick("driver1");
 		navX = getAHRS("navX");
 
+		recorder = Robot.getInstance().getContainer().getRecorder();
+
+		snapshot = Robot.getInstance().getContainer().getSnapshot();
+		yawSlot = snapshot.register("gyroYaw", navX::getYaw);
+		worldLinearAccelXSlot = snapshot.register("gyroWorldLinearAccelX", navX::getWorldLinearAccelX);
+		worldLinearAccelYSlot = snapshot.register("gyroWorldLinearAccelY", navX::getWorldLinearAccelY);
+		sensorTimestampSlot = snapshot.register("gyroSensorTimestamp", navX::getLastSensorTimestamp);
+		sensors = snapshot.newReader();
+
+		// Runs right after every refresh, as fast as the navX sends samples, so
+		// collisions are replayed along with every other sensor.
+		Robot.getInstance().getContainer().getSensorLoop().addListener(this::detectCollisions);
+
 		Runnable setRumble = () -> { // Sets joystick rumble to 1.
 			joystick.setRumble(RumbleType.kLeftRumble, 1);
 			joystick.setRumble(RumbleType.kRightRumble, 1);
@@ -63,10 +98,13 @@ public class Gyro extends SuperSubsystem implements SuperAHRS {
 	@Override
 	public void outputToShuffleboard() {
 		try {
-			layout.add(navX).withWidget(BuiltInWidgets.kGyro);
-			layout.addNumber("gyroYaw", navX::getYaw);
-			layout.addNumber("gyroHeading", navX::getHeading);
-			layout.addBoolean("collisionDetected", this::didCollide).withWidget(BuiltInWidgets.kBooleanBox);
+			var dashboard = Robot.getInstance().getContainer().getDashboard();
+
+			dashboard.addNumber(layout, "navX", this::getYaw, Priority.NORMAL, 10).withWidget(BuiltInWidgets.kGyro);
+			dashboard.addNumber(layout, "gyroYaw", this::getYaw, Priority.NORMAL, 10);
+			dashboard.addNumber(layout, "gyroHeading", navX::getHeading, Priority.NORMAL, 10);
+			dashboard.addBoolean(layout, "collisionDetected", this::didCollide, Priority.HIGH, 25)
+					.withWidget(BuiltInWidgets.kBooleanBox);
 		} catch (NullPointerException e) {
 			var error = String.format("[!] COULD NOT OUTPUT SUBSYSTEM '%1$s':\n\t%2$s.", getName(),
 					e.getLocalizedMessage());
@@ -77,20 +115,47 @@ public class Gyro extends SuperSubsystem implements SuperAHRS {
 	}
 
 	/**
-	 * Gets whether or not a collision was detected by the {@link #navX}.
+	 * Gets the {@link #navX}'s yaw, as of the last {@link SensorSnapshot} refresh.
+	 * Safe to call from any thread.
+	 * 
+	 * @return The {@link #navX}'s yaw, in degrees
+	 */
+	public double getYaw() {
+		return snapshot.get(yawSlot);
+	}
+
+	/**
+	 * Feeds the {@link #navX}'s latest sample to the {@link #collisions}, unless it
+	 * was already fed. Runs on the {@link SensorLoop}, right after each refresh.
+	 */
+	private void detectCollisions(double timestamp) {
+		var sensorTimestamp = snapshot.get(sensorTimestampSlot);
+		if (sensorTimestamp == lastSensorTimestamp)
+			return;
+		lastSensorTimestamp = sensorTimestamp;
+
+		if (collisions.update(sensorTimestamp / 1000.0, snapshot.get(worldLinearAccelXSlot),
+				snapshot.get(worldLinearAccelYSlot), timestamp))
+			recorder.record(Channel.GYRO_COLLISION_JERK, collisions.getJerk());
+	}
+
+	/**
+	 * Gets whether or not a collision was detected by the {@link #navX}, within the
+	 * last {@link Constants.GyroConstants#collisionLatchSeconds}.
 	 * 
 	 * @return Whether or not a collision was detected
 	 */
 	public boolean didCollide() {
-		return collisionDetected;
+		return collisions.isLatched(Timer.getFPGATimestamp());
 	}
 
 	@Override
 	public void registerLoops(ILooper looper) {
-		looper.register(new Loop() {
+		looper.register(LoopProfiler.instrument("gyroTelemetry", new Loop() {
 			@Override
 			public void onFirstStart(double timestamp) {
-				// Reset NavX only on first start; zero its yaw afterwards.
+				// Reset NavX only on first start, so the odometry's heading stays continuous
+				// between autonomous and teleop.
 				synchronized (Gyro.this) {
 					navX.reset();
 				}
@@ -98,38 +163,27 @@ public class Gyro extends SuperSubsystem implements SuperAHRS {
 
 			@Override
 			public void onStart(double timestamp) {
-				synchronized (Gyro.this) {
-					navX.zeroYaw();
-					System.out.println("Started gyro at: " + timestamp + "!");
-				}
+				recorder.record(Channel.GYRO_STARTED, timestamp);
 			}
 
 			@Override
 			public void onLoop(double timestamp) {
-				collisionDetected = false;
-
-				var currentWorldLinearAccelX = navX.getWorldLinearAccelX();
-				var currentJerkX = currentWorldLinearAccelX - lastWorldLinearAccelX;
-				lastWorldLinearAccelX = currentWorldLinearAccelX;
-
-				var currentWorldLinearAccelY = navX.getWorldLinearAccelY();
-				var currentJerkY = currentWorldLinearAccelY - lastWorldLinearAccelY;
-				lastWorldLinearAccelY = currentWorldLinearAccelY;
-
-				if ((Math.abs(currentJerkX) > Constants.GyroConstants.collisionThresholdDeltaG)
-						|| (Math.abs(currentJerkY) > Constants.GyroConstants.collisionThresholdDeltaG))
-					collisionDetected = true;
+				// Collisions are detected by the SensorLoop, at the navX's own rate.
+				sensors.update();
+				recorder.record(Channel.GYRO_WORLD_LINEAR_ACCEL_X, sensors.get(worldLinearAccelXSlot));
+				recorder.record(Channel.GYRO_WORLD_LINEAR_ACCEL_Y, sensors.get(worldLinearAccelYSlot));
+				recorder.record(Channel.GYRO_YAW, sensors.get(yawSlot));
 			}
 
 			@Override
 			public void onStop(double timestamp) {
-				System.out.println("Stopped gyro at: " + timestamp + ".");
+				recorder.record(Channel.GYRO_STOPPED, timestamp);
 			}
 
 			@Override
 			public LoopType getType() {
 				return LoopType.ENABLED;
 			}
-		});
+		}));
 	}
 }
\ No newline at end of file
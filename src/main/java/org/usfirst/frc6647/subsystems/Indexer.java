@@ -2,7 +2,25 @@ package org.usfirst.frc6647.subsystems;
 
 import com.revrobotics.ControlType;
 
+import org.usfirst.frc6647.can.OutputStage;
+import org.usfirst.frc6647.can.StatusFrames;
+import org.usfirst.frc6647.loops.LoopProfiler;
+import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.robot.Constants.IndexerConstants;
+import org.usfirst.frc6647.robot.Constants.OutputConstants;
+import org.usfirst.frc6647.robot.Constants.SensorConstants;
+import org.usfirst.frc6647.robot.Robot;
 import org.usfirst.frc6647.robot.RobotContainer;
+import org.usfirst.frc6647.telemetry.Channel;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+import org.usfirst.frc6647.util.CurrentSpikeDetector;
+import org.usfirst.frc6647.util.FeedScheduler;
+import org.usfirst.frc6647.util.SensorSnapshot;
+import org.usfirst.frc6647.util.SharedState;
+import org.usfirst.lib6647.loops.ILooper;
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopType;
 import org.usfirst.lib6647.subsystem.SuperSubsystem;
 import org.usfirst.lib6647.subsystem.hypercomponents.HyperSparkMax;
 import org.usfirst.lib6647.subsystem.supercomponents.SuperSparkMax;
@@ -13,18 +31,102 @@ import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 /**
  * {@link SuperSubsystem} implementation of an {@link Indexer} mechanism, which
  * feeds balls into our {@link Turret} and {@link Shooter}
+ *
+ * <p>
+ * Driven by a state machine in its own loop, which counts balls from current
+ * spikes on its motors: one on the {@link #indexerLeft indexer} wheels for each
+ * ball coming in, and one on the {@link #pulleyFront pulleys} for each ball
+ * climbing towards the {@link Shooter}. Whilst intaking, the first ball is
+ * staged right below the {@link Shooter}, so feeding starts without any travel
+ * delay. During a volley, a {@link FeedScheduler} releases one ball at a time,
+ * as soon as the {@link Shooter} will be ready for it. Without
+ * {@link IndexerConstants#spikeDetection}, no ball is tracked, and every motor
+ * simply runs whilst intaking, or whilst the {@link Shooter} is ready during a
+ * volley.
+ *
+ * <p>
+ * Every motor is written through an {@link OutputStage}, flushed at the end of
+ * each iteration, so its setters must only be called from the loop.
  */
 public class Indexer extends SuperSubsystem implements SuperSparkMax {
+	/** Modes the {@link Indexer}'s state machine can be asked to run in. */
+	public enum Mode {
+		/** Stop every motor, keeping track of every ball. */
+		STOP,
+		/** Take balls in, staging the first one right below the {@link Shooter}. */
+		INTAKE,
+		/** Release one ball at a time, as soon as the {@link Shooter} is ready. */
+		VOLLEY,
+		/** Spit every ball back out. */
+		EJECT;
+	}
+
+	/** Every {@link Mode}, by ordinal. */
+	private static final Mode[] modes = Mode.values();
+
 	/** {@link HyperSparkMax} instances used by this {@link Indexer subsystem}. */
 	private HyperSparkMax indexerLeft, indexerRight, pulleyFront, pulleyBack;
 
+	/** {@link OutputStage} for every {@link HyperSparkMax}, only used by the loop. */
+	private final OutputStage outputs = new OutputStage("indexer", OutputConstants.keepaliveSeconds);
+	/**
+	 * {@link OutputStage} outputs for the {@link #indexerLeft indexer} wheels and
+	 * {@link #pulleyFront pulleys}, with each pair's demands as value and aux.
+	 */
+	private OutputStage.Output wheels, pulleys;
+	/** Modes of each pair's demand. */
+	private static final int percentMode = 0, currentMode = 1, stopMode = 2;
+
+	/**
+	 * Operator intent shared with the Looper threads, only written by the command
+	 * scheduler's thread.
+	 */
+	private final SharedState intent = new SharedState(3);
+	/** {@link #intent} slot, the requested {@link Mode}'s ordinal. */
+	private static final int modeSlot = 0;
+	/** {@link #intent} slot, the ball count to seed the state machine with. */
+	private static final int seedSlot = 1;
+	/** {@link #intent} slot, incremented on every seed so the loop applies it once. */
+	private static final int seedSequenceSlot = 2;
+
+	/** Ball tracking state shared by the Looper thread, only written by its loop. */
+	private final SharedState state = new SharedState(2);
+	/** {@link #state} slot, the number of balls on board. */
+	private static final int ballCountSlot = 0;
+	/** {@link #state} slot, whether or not a ball is staged below the {@link Shooter}. */
+	private static final int stagedSlot = 1;
+
+	/** Detects balls coming in, from the {@link #indexerLeft indexer} wheels' current. */
+	private final CurrentSpikeDetector indexerSpikes = new CurrentSpikeDetector(IndexerConstants.indexerSpikeAmps,
+			IndexerConstants.spikeMinUpdates, IndexerConstants.baselineSmoothing);
+	/** Detects balls climbing, from the {@link #pulleyFront pulleys}' current. */
+	private final CurrentSpikeDetector pulleySpikes = new CurrentSpikeDetector(IndexerConstants.pulleySpikeAmps,
+			IndexerConstants.spikeMinUpdates, IndexerConstants.baselineSmoothing);
+
+	/** The {@link Robot}'s {@link TelemetryRecorder}. */
+	private TelemetryRecorder recorder;
+
+	/** The {@link Robot}'s {@link Shooter}, fed during a volley. */
+	private final Shooter shooter;
+	/** Schedules every release during a volley, only used by the loop. */
+	private FeedScheduler scheduler;
+
+	/** {@link SensorSnapshot} slots for each motor's output current. */
+	private int indexerLeftCurrentSlot, indexerRightCurrentSlot, pulleyFrontCurrentSlot, pulleyBackCurrentSlot;
+	/** The loop's {@link SensorSnapshot.Reader}. */
+	private SensorSnapshot.Reader sensors;
+
 	/**
 	 * Should only need to create a single of instance of {@link Indexer this
 	 * class}; inside the {@link RobotContainer}.
+	 * 
+	 * @param shooter The {@link Robot}'s {@link Shooter}, fed during a volley
 	 */
-	public Indexer() {
+	public Indexer(Shooter shooter) {
 		super("indexer");
 
+		this.shooter = shooter;
+
 		// All SuperComponents must be initialized like this. The 'robotMap' Object is
 		// inherited from the SuperSubsystem class, while the second argument is simply
 		// this Subsystem's name.
@@ -36,17 +138,62 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 
 		pulleyFront = getSpark("pulleyFront");
 		pulleyBack = getSpark("pulleyBack");
+
+		// Each pair always gets the same demand.
+		var writes = 2;
+		if (IndexerConstants.hardwareFollowers) {
+			indexerRight.follow(indexerLeft, true); // Only the left wheel is inverted.
+			pulleyBack.follow(pulleyFront);
+			writes = 1;
+		}
+		wheels = outputs.add((mode, value, aux) -> {
+			write(indexerLeft, mode, value);
+			if (!IndexerConstants.hardwareFollowers)
+				write(indexerRight, mode, aux);
+		}, OutputConstants.percentTolerance, 2, writes).withTolerance(currentMode, OutputConstants.ampTolerance,
+				OutputConstants.ampTolerance);
+		pulleys = outputs.add((mode, value, aux) -> {
+			write(pulleyFront, mode, value);
+			if (!IndexerConstants.hardwareFollowers)
+				write(pulleyBack, mode, aux);
+		}, OutputConstants.percentTolerance, 2, writes).withTolerance(currentMode, OutputConstants.ampTolerance,
+				OutputConstants.ampTolerance);
+
+		recorder = Robot.getInstance().getContainer().getRecorder();
+		scheduler = new FeedScheduler(IndexerConstants.minReleaseSpacingSeconds,
+				Constants.ShooterConstants.tolerance, recorder);
+
+		var snapshot = Robot.getInstance().getContainer().getSnapshot();
+		var divider = SensorConstants.slowDivider;
+		indexerLeftCurrentSlot = snapshot.register("indexerLeftCurrent", indexerLeft::getOutputCurrent, divider);
+		indexerRightCurrentSlot = snapshot.register("indexerRightCurrent", indexerRight::getOutputCurrent, divider);
+		pulleyFrontCurrentSlot = snapshot.register("pulleyFrontCurrent", pulleyFront::getOutputCurrent, divider);
+		pulleyBackCurrentSlot = snapshot.register("pulleyBackCurrent", pulleyBack::getOutputCurrent, divider);
+		sensors = snapshot.newReader();
+
+		// Written in the background, so only once this constructor is done configuring.
+		StatusFrames.configureSparks(getName(), this::getSpark);
 		// ...
 	}
 
 	@Override
 	public void outputToShuffleboard() {
 		try {
-			layout.add(indexerLeft).withWidget(BuiltInWidgets.kSpeedController);
-			layout.add(indexerRight).withWidget(BuiltInWidgets.kSpeedController);
+			var dashboard = Robot.getInstance().getContainer().getDashboard();
+
+			dashboard.addNumber(layout, "indexerLeft", indexerLeft::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
+			dashboard.addNumber(layout, "indexerRight", indexerRight::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
 
-			layout.add(pulleyFront).withWidget(BuiltInWidgets.kSpeedController);
-			layout.add(pulleyBack).withWidget(BuiltInWidgets.kSpeedController);
+			dashboard.addNumber(layout, "pulleyFront", pulleyFront::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
+			dashboard.addNumber(layout, "pulleyBack", pulleyBack::get, Priority.LOW, 5)
+					.withWidget(BuiltInWidgets.kNumberBar);
+
+			dashboard.addNumber(layout, "ballCount", this::getBallCount, Priority.NORMAL, 10);
+			dashboard.addBoolean(layout, "ballStaged", this::isStaged, Priority.NORMAL, 10)
+					.withWidget(BuiltInWidgets.kBooleanBox);
 		} catch (NullPointerException e) {
 			var error = String.format("[!] COULD NOT OUTPUT SUBSYSTEM '%1$s':\n\t%2$s.", getName(),
 					e.getLocalizedMessage());
@@ -56,6 +203,57 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 		}
 	}
 
+	/**
+	 * Asks the {@link Indexer}'s state machine to run in the given {@link Mode}.
+	 * 
+	 * @param mode The {@link Mode} to run in
+	 */
+	public void setMode(Mode mode) {
+		intent.setDouble(modeSlot, mode.ordinal());
+	}
+
+	/**
+	 * Gets the {@link Mode} the {@link Indexer}'s state machine was asked to run
+	 * in.
+	 * 
+	 * @return The requested {@link Mode}
+	 */
+	public Mode getMode() {
+		return modes[(int) intent.getDouble(modeSlot)];
+	}
+
+	/**
+	 * Tells the {@link Indexer}'s state machine how many balls are on board, such
+	 * as the balls preloaded before a match, which never went through the intake.
+	 * 
+	 * @param ballCount The number of balls on board
+	 */
+	public void setBallCount(int ballCount) {
+		intent.beginWrite();
+		intent.putDouble(seedSlot, ballCount);
+		intent.putDouble(seedSequenceSlot, intent.peekDouble(seedSequenceSlot) + 1);
+		intent.endWrite();
+	}
+
+	/**
+	 * Gets the number of balls on board, as tracked by the {@link Indexer}'s state
+	 * machine. Only counted with {@link IndexerConstants#spikeDetection}.
+	 * 
+	 * @return The number of balls on board
+	 */
+	public int getBallCount() {
+		return (int) state.getDouble(ballCountSlot);
+	}
+
+	/**
+	 * Checks whether or not a ball is staged right below the {@link Shooter}.
+	 * 
+	 * @return Whether or not a ball is staged
+	 */
+	public boolean isStaged() {
+		return state.getBoolean(stagedSlot);
+	}
+
 	/**
 	 * Method to set voltage of both {@link Indexer} motors.
 	 * 
@@ -65,9 +263,7 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 	 *                     right motor}
 	 */
 	public void setIndexerCurrent(double leftCurrent, double rightCurrent) {
-		indexerLeft.getPIDController().setReference(leftCurrent, ControlType.kCurrent);
-		indexerRight.getPIDController().setReference(rightCurrent, ControlType.kCurrent);
-
+		wheels.set(currentMode, leftCurrent, rightCurrent);
 	}
 
 	/**
@@ -79,8 +275,7 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 	 *                   motor}
 	 */
 	public void setIndexerSpeed(double leftSpeed, double rightSpeed) {
-		indexerLeft.set(leftSpeed);
-		indexerRight.set(rightSpeed);
+		wheels.set(percentMode, leftSpeed, rightSpeed);
 	}
 
 	/**
@@ -88,8 +283,7 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 	 * {@link #indexerRight right} motors dead in their tracks.
 	 */
 	public void stopIndexer() {
-		indexerLeft.stopMotor();
-		indexerRight.stopMotor();
+		wheels.set(stopMode, 0);
 	}
 
 	/**
@@ -101,8 +295,7 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 	 *                     motor}
 	 */
 	public void setPulleyVoltage(double frontVoltage, double backVoltage) {
-		pulleyFront.getPIDController().setReference(frontVoltage, ControlType.kCurrent);
-		pulleyBack.getPIDController().setReference(backVoltage, ControlType.kCurrent);
+		pulleys.set(currentMode, frontVoltage, backVoltage);
 	}
 
 	/**
@@ -114,8 +307,7 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 	 *                   motor}
 	 */
 	public void setPulleySpeed(double frontSpeed, double backSpeed) {
-		pulleyFront.set(frontSpeed);
-		pulleyBack.set(backSpeed);
+		pulleys.set(percentMode, frontSpeed, backSpeed);
 	}
 
 	/**
@@ -123,7 +315,244 @@ public class Indexer extends SuperSubsystem implements SuperSparkMax {
 	 * back} pulley motors dead in their tracks.
 	 */
 	public void stopPulley() {
-		pulleyFront.stopMotor();
-		pulleyBack.stopMotor();
+		pulleys.set(stopMode, 0);
+	}
+
+	/**
+	 * Writes a demand from the {@link #outputs} to the given {@link HyperSparkMax}.
+	 */
+	private static void write(HyperSparkMax spark, int mode, double value) {
+		switch (mode) {
+		case percentMode:
+			spark.set(value);
+			break;
+		case currentMode:
+			spark.getPIDController().setReference(value, ControlType.kCurrent);
+			break;
+		default:
+			spark.stopMotor();
+		}
+	}
+
+	@Override
+	public void registerLoops(ILooper looper) {
+		looper.register(LoopProfiler.instrument("indexerBalls", new Loop() { // Ball tracking state machine.
+			/** {@link Mode} run on the last iteration. */
+			private Mode mode = Mode.STOP;
+			/** Timestamp until which each pair's inrush current is ignored. */
+			private double wheelsInrushUntil = 0, pulleysInrushUntil = 0;
+			/** Speed each pair was last set to by this loop, 0 if stopped. */
+			private double wheelsSpeed = 0, pulleysSpeed = 0;
+			/** Last ball count seed applied, by its sequence number. */
+			private double seedSequence = 0;
+			/** Timestamp at which the last ball started climbing, or -1 if none is. */
+			private double climbingSince = -1;
+			/** Timestamp at which the staged ball was released, or -1 if it wasn't. */
+			private double releasedAt = -1;
+			/** Whether or not the released ball was a tracked one, not a blind push. */
+			private boolean releasedTracked = false;
+			/** Number of balls on board, only touched by this loop. */
+			private int ballCount = 0;
+			/** Whether or not a ball is staged, only touched by this loop. */
+			private boolean staged = false;
+
+			@Override
+			public void onFirstStart(double timestamp) {
+			}
+
+			@Override
+			public void onStart(double timestamp) {
+				mode = Mode.STOP;
+				recorder.record(Channel.INDEXER_STARTED, timestamp);
+			}
+
+			@Override
+			public void onLoop(double timestamp) {
+				sensors.update();
+				var indexerCurrent = sensors.get(indexerLeftCurrentSlot) + sensors.get(indexerRightCurrentSlot);
+				var pulleyCurrent = sensors.get(pulleyFrontCurrentSlot) + sensors.get(pulleyBackCurrentSlot);
+
+				var requested = modes[(int) intent.getDouble(modeSlot)];
+				if (requested != mode) {
+					if (mode == Mode.VOLLEY) {
+						scheduler.endVolley();
+						releasedAt = -1;
+					}
+
+					mode = requested;
+
+					if (mode == Mode.EJECT) { // Every ball is going back out.
+						ballCount = 0;
+						staged = false;
+						climbingSince = -1;
+					}
+				}
+
+				if (intent.getDouble(seedSequenceSlot) != seedSequence) { // Balls loaded by hand.
+					seedSequence = intent.getDouble(seedSequenceSlot);
+					ballCount = (int) Math.min(intent.getDouble(seedSlot), IndexerConstants.maxBalls);
+					staged = false;
+					climbingSince = -1;
+				}
+
+				// Every demand change makes the motor's current jump, which isn't a ball.
+				if (timestamp < wheelsInrushUntil)
+					indexerSpikes.reset(indexerCurrent);
+				else
+					indexerSpikes.update(indexerCurrent);
+
+				if (timestamp < pulleysInrushUntil)
+					pulleySpikes.reset(pulleyCurrent);
+				else
+					pulleySpikes.update(pulleyCurrent);
+
+				switch (mode) {
+				case INTAKE:
+					if (IndexerConstants.spikeDetection)
+						stage(timestamp);
+					else { // Nothing to stage against, just take balls in.
+						setWheels(timestamp, IndexerConstants.indexerSpeed);
+						setPulleys(timestamp, IndexerConstants.pulleySpeed);
+					}
+					break;
+				case VOLLEY:
+					if (!IndexerConstants.spikeDetection) { // Push every ball whilst the Shooter is ready.
+						var ready = shooter.isReadyToFire();
+						setWheels(timestamp, ready ? IndexerConstants.indexerSpeed : 0);
+						setPulleys(timestamp, ready ? IndexerConstants.pulleySpeed : 0);
+						break;
+					}
+
+					scheduler.update(timestamp, shooter.getEstimatedVelocity(), shooter.getSetpoint());
+
+					if (releasedAt >= 0) { // Push the released ball until it leaves into the Shooter.
+						if (pulleySpikes.ended()
+								|| timestamp - releasedAt >= IndexerConstants.releaseTimeoutSeconds) {
+							releasedAt = -1;
+
+							if (releasedTracked) { // Untracked pushes are neither counted nor end the volley.
+								ballCount = Math.max(ballCount - 1, 0);
+								staged = false;
+								scheduler.exited(timestamp);
+
+								if (ballCount == 0) // Nothing left, this volley is over.
+									scheduler.endVolley();
+							}
+						} else {
+							setWheels(timestamp, IndexerConstants.indexerSpeed);
+							setPulleys(timestamp, IndexerConstants.pulleySpeed);
+							break;
+						}
+					}
+
+					// If no ball is being tracked, keep pushing anyway in case one was missed.
+					var releasable = staged || (ballCount == 0 && climbingSince < 0);
+					if (releasable && scheduler.shouldRelease(timestamp, shooter.isReadyToFire())) {
+						releasedAt = timestamp;
+						releasedTracked = staged;
+						scheduler.released(timestamp, shooter.getEstimatedVelocity());
+
+						// The pulleys' own inrush would look like the ball leaving.
+						wheelsInrushUntil = pulleysInrushUntil = timestamp + IndexerConstants.inrushSeconds;
+
+						setWheels(timestamp, IndexerConstants.indexerSpeed);
+						setPulleys(timestamp, IndexerConstants.pulleySpeed);
+					} else { // Get the next ball staged whilst the Shooter recovers.
+						stage(timestamp);
+					}
+					break;
+				case EJECT:
+					setWheels(timestamp, -IndexerConstants.indexerSpeed);
+					setPulleys(timestamp, -IndexerConstants.pulleySpeed);
+					break;
+				default:
+					setWheels(timestamp, 0);
+					setPulleys(timestamp, 0);
+				}
+				outputs.flush(timestamp);
+
+				state.beginWrite();
+				state.putDouble(ballCountSlot, ballCount);
+				state.putBoolean(stagedSlot, staged);
+				state.endWrite();
+
+				recorder.record(Channel.INDEXER_CURRENT, indexerCurrent);
+				recorder.record(Channel.PULLEY_CURRENT, pulleyCurrent);
+				recorder.record(Channel.INDEXER_BALL_COUNT, ballCount);
+			}
+
+			/**
+			 * Takes balls in, and climbs the first one until it is staged right below the
+			 * {@link Shooter}.
+			 */
+			private void stage(double timestamp) {
+				if (indexerSpikes.started()) // A ball came in.
+					ballCount = Math.min(ballCount + 1, IndexerConstants.maxBalls);
+				if (pulleySpikes.started() && !staged && climbingSince < 0) // A ball started climbing.
+					climbingSince = timestamp;
+				if (climbingSince >= 0 && timestamp - climbingSince >= IndexerConstants.stageSeconds) {
+					staged = true;
+					climbingSince = -1;
+				}
+
+				setWheels(timestamp, IndexerConstants.indexerSpeed);
+				if (!staged && ballCount > 0) // Keep climbing until a ball is staged.
+					setPulleys(timestamp, IndexerConstants.pulleySpeed);
+				else
+					setPulleys(timestamp, 0);
+			}
+
+			/**
+			 * Sets the {@link #indexerLeft indexer} wheels' speed, ignoring their current
+			 * for a while if it changed.
+			 */
+			private void setWheels(double timestamp, double speed) {
+				if (speed != wheelsSpeed) {
+					wheelsSpeed = speed;
+					wheelsInrushUntil = timestamp + IndexerConstants.inrushSeconds;
+				}
+
+				if (speed != 0)
+					setIndexerSpeed(speed, speed);
+				else
+					stopIndexer();
+			}
+
+			/**
+			 * Sets the {@link #pulleyFront pulleys}' speed, ignoring their current for a
+			 * while if it changed.
+			 */
+			private void setPulleys(double timestamp, double speed) {
+				if (speed != pulleysSpeed) {
+					pulleysSpeed = speed;
+					pulleysInrushUntil = timestamp + IndexerConstants.inrushSeconds;
+				}
+
+				if (speed != 0)
+					setPulleySpeed(speed, speed);
+				else
+					stopPulley();
+			}
+
+			@Override
+			public void onStop(double timestamp) {
+				if (mode == Mode.VOLLEY)
+					scheduler.endVolley();
+				releasedAt = -1;
+
+				stopIndexer();
+				stopPulley();
+				wheelsSpeed = pulleysSpeed = 0;
+				outputs.invalidate();
+				outputs.flush(timestamp);
+
+				recorder.record(Channel.INDEXER_STOPPED, timestamp);
+			}
+
+			@Override
+			public LoopType getType() {
+				return LoopType.ENABLED;
+			}
+		}));
 	}
-}
\ No newline at end of file
+}
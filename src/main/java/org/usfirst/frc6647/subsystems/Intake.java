@@ -1,12 +1,16 @@
 package org.usfirst.frc6647.subsystems;
 
+import org.usfirst.frc6647.can.StatusFrames;
+import org.usfirst.frc6647.robot.Robot;
 import org.usfirst.frc6647.robot.RobotContainer;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
 import org.usfirst.lib6647.subsystem.SuperSubsystem;
 import org.usfirst.lib6647.subsystem.hypercomponents.HyperDoubleSolenoid;
 import org.usfirst.lib6647.subsystem.hypercomponents.HyperFalcon;
 import org.usfirst.lib6647.subsystem.supercomponents.SuperDoubleSolenoid;
 import org.usfirst.lib6647.subsystem.supercomponents.SuperFalcon;
 
+import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 
@@ -36,14 +40,19 @@ public class Intake extends SuperSubsystem implements SuperDoubleSolenoid, Super
 		intake = getFalcon("intake");
 
 		intakePiston = getDoubleSolenoid("intakePiston");
+
+		// Written in the background, so only once this constructor is done configuring.
+		StatusFrames.configureFalcons(getName(), this::getFalcon);
 		// ...
 	}
 
 	@Override
 	public void outputToShuffleboard() {
 		try {
-			layout.add(intake).withWidget(BuiltInWidgets.kSpeedController);
-			layout.add(intakePiston);
+			var dashboard = Robot.getInstance().getContainer().getDashboard();
+
+			dashboard.addNumber(layout, "intake", intake::get, Priority.LOW, 5).withWidget(BuiltInWidgets.kNumberBar);
+			dashboard.addBoolean(layout, "intakePiston", () -> intakePiston.get() == Value.kForward, Priority.LOW, 2);
 		} catch (NullPointerException e) {
 			var error = String.format("[!] COULD NOT OUTPUT SUBSYSTEM '%1$s':\n\t%2$s.", getName(),
 					e.getLocalizedMessage());
@@ -4,8 +4,22 @@ import com.revrobotics.CANPIDController;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.ControlType;
 
+import org.usfirst.frc6647.can.OutputStage;
+import org.usfirst.frc6647.can.StatusFrames;
+import org.usfirst.frc6647.loops.LoopProfiler;
 import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.robot.Constants.OutputConstants;
+import org.usfirst.frc6647.robot.Robot;
 import org.usfirst.frc6647.robot.RobotContainer;
+import org.usfirst.frc6647.telemetry.Channel;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+import org.usfirst.frc6647.util.FlywheelController;
+import org.usfirst.frc6647.util.SensorSnapshot;
+import org.usfirst.frc6647.util.SharedState;
+import org.usfirst.lib6647.loops.ILooper;
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopType;
 import org.usfirst.lib6647.subsystem.SuperSubsystem;
 import org.usfirst.lib6647.subsystem.hypercomponents.HyperDoubleSolenoid;
 import org.usfirst.lib6647.subsystem.hypercomponents.HyperSolenoid;
@@ -16,6 +30,7 @@ import org.usfirst.lib6647.subsystem.supercomponents.SuperSparkMax;
 
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Servo;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 
 /**
@@ -32,8 +47,66 @@ public class Shooter extends SuperSubsystem implements SuperDoubleSolenoid, Supe
 	/** {@link HyperSparkMax} used by this {@link Shooter subsystem}. */
 	private HyperSparkMax shooter;
 
+	/**
+	 * {@link OutputStage} for the {@link #shooter}, only used by its loop, or by
+	 * the command scheduler's thread if the loop isn't registered.
+	 */
+	private final OutputStage outputs = new OutputStage("shooter", OutputConstants.keepaliveSeconds);
+	/** {@link OutputStage} output for the {@link #shooter}. */
+	private OutputStage.Output output;
+	/** Modes of the {@link #shooter}'s demand. */
+	private static final int voltageMode = 0, velocityMode = 1, stopMode = 2;
+
 	/** Stores current {@link #setpoint speed goal}. */
-	private double setpoint;
+	private volatile double setpoint;
+	/** Timestamp at which the {@link #hood} should have finished moving. */
+	private double hoodSettledAt = 0;
+	/** Last angle the {@link #hood} was set to. */
+	private volatile double hoodAngle;
+
+	/**
+	 * Operator intent shared with the Looper threads, only written by the command
+	 * scheduler's thread.
+	 */
+	private final SharedState intent = new SharedState(2);
+	/** {@link #intent} slot, the velocity to reach, in RPM, 0 when stopped. */
+	private static final int referenceSlot = 0;
+	/** {@link #intent} slot, the timestamp at which the {@link #hood} settles. */
+	private static final int hoodSettledSlot = 1;
+
+	/**
+	 * Flywheel state shared with every other thread, only written by its loop, or
+	 * by {@link #periodic()} whilst the loop isn't registered.
+	 */
+	private final SharedState state = new SharedState(3);
+	/** {@link #state} slot, the estimated velocity, in RPM. */
+	private static final int estimateSlot = 0;
+	/** {@link #state} slot, the predicted time until ready to fire, in seconds. */
+	private static final int timeToReadySlot = 1;
+	/** {@link #state} slot, whether or not the {@link Shooter} is ready to fire. */
+	private static final int readySlot = 2;
+
+	/** Velocity and timestamp of the last {@link #periodic()}, without its loop. */
+	private double lastVelocity = 0, lastTimestamp = 0;
+	/** Low-passed rate at which the {@link #shooter} closes on its {@link #setpoint}, in RPM per second. */
+	private double closingRate = 0;
+
+	/** {@link FlywheelController} for the {@link #shooter}, only used by its loop. */
+	private final FlywheelController flywheel = new FlywheelController(Constants.ShooterConstants.ksVolts,
+			Constants.ShooterConstants.kvVoltsPerRPM, Constants.ShooterConstants.kaVoltsPerRPMPerSecond,
+			Constants.ShooterConstants.modelStdDevRPM, Constants.ShooterConstants.measurementStdDevRPM,
+			Constants.ShooterConstants.tolerance, Constants.ShooterConstants.maxVoltage,
+			Constants.LooperConstants.period, Constants.ShooterConstants.measurementDelaySeconds);
+
+	/** The {@link Robot}'s {@link SensorSnapshot}, read once per cycle. */
+	private SensorSnapshot snapshot;
+	/** {@link SensorSnapshot} slot for the {@link #shooter}'s velocity. */
+	private int velocitySlot;
+	/** The flywheel loop's {@link SensorSnapshot.Reader}. */
+	private SensorSnapshot.Reader sensors;
+
+	/** The {@link Robot}'s {@link TelemetryRecorder}. */
+	private TelemetryRecorder recorder;
 
 	/**
 	 * Should only need to create a single of instance of {@link Shooter this
@@ -51,20 +124,45 @@ public class Shooter extends SuperSubsystem implements SuperDoubleSolenoid, Supe
 
 		// Additional initialiation & configuration.
 		hood = getServo("hood");
+		hoodAngle = hood.getAngle();
 		stop = getDoubleSolenoid("stop");
 
 		shooter = getSpark("shooter");
 		shooter.setOpenLoopRampRate(1);
+		output = outputs.add((mode, value, aux) -> {
+			if (mode == stopMode)
+				shooter.stopMotor();
+			else
+				shooter.getPIDController().setReference(value,
+						mode == voltageMode ? ControlType.kVoltage : ControlType.kVelocity);
+		}, OutputConstants.voltageTolerance, 1, 1).withTolerance(velocityMode, OutputConstants.rpmTolerance, 0);
+
+		recorder = Robot.getInstance().getContainer().getRecorder();
+
+		snapshot = Robot.getInstance().getContainer().getSnapshot();
+		velocitySlot = snapshot.register("shooterVelocity", shooter.getEncoder()::getVelocity,
+				Constants.SensorConstants.slowDivider);
+		sensors = snapshot.newReader();
+
+		// Written in the background, so only once this constructor is done configuring.
+		StatusFrames.configureSparks(getName(), this::getSpark);
 		// ...
 	}
 
 	@Override
 	public void outputToShuffleboard() {
 		try {
-			layout.addNumber("shooterRPM", shooter.getEncoder()::getVelocity);
-			layout.addNumber("hoodAngle", hood::getAngle);
-			layout.addNumber("setpoint", this::getSetpoint);
-			layout.addBoolean("onTarget", this::onTarget).withWidget(BuiltInWidgets.kBooleanBox);
+			var dashboard = Robot.getInstance().getContainer().getDashboard();
+
+			dashboard.addNumber(layout, "shooterRPM", this::getVelocity, Priority.HIGH, 25);
+			dashboard.addNumber(layout, "hoodAngle", this::getHoodAngle, Priority.NORMAL, 10);
+			dashboard.addNumber(layout, "setpoint", this::getSetpoint, Priority.NORMAL, 10);
+			dashboard.addBoolean(layout, "onTarget", this::onTarget, Priority.HIGH, 25)
+					.withWidget(BuiltInWidgets.kBooleanBox);
+			dashboard.addNumber(layout, "estimatedRPM", this::getEstimatedVelocity, Priority.HIGH, 25);
+			dashboard.addNumber(layout, "timeToReady", this::getTimeToReady, Priority.NORMAL, 10);
+			dashboard.addBoolean(layout, "readyToFire", this::isReadyToFire, Priority.HIGH, 25)
+					.withWidget(BuiltInWidgets.kBooleanBox);
 		} catch (NullPointerException e) {
 			var error = String.format("[!] COULD NOT OUTPUT SUBSYSTEM '%1$s':\n\t%2$s.", getName(),
 					e.getLocalizedMessage());
@@ -84,16 +182,105 @@ public class Shooter extends SuperSubsystem implements SuperDoubleSolenoid, Supe
 	 */
 	public void set(double rpm, double angle) {
 		setpoint = rpm;
-		hood.setAngle(angle);
-		shooter.getPIDController().setReference(rpm, ControlType.kVelocity);
+		setHood(angle);
+
+		if (Constants.ShooterConstants.stateSpace) {
+			intent.setDouble(referenceSlot, rpm);
+		} else {
+			output.set(velocityMode, rpm);
+			outputs.flush(Timer.getFPGATimestamp());
+		}
+
+		recorder.record(Channel.SHOOTER_SETPOINT, rpm);
+		recorder.record(Channel.HOOD_ANGLE, angle);
+	}
+
+	@Override
+	public void periodic() {
+		recorder.record(Channel.SHOOTER_VELOCITY, getVelocity());
+
+		if (!Constants.ShooterConstants.stateSpace) // Otherwise predicted by the flywheel loop.
+			estimateTimeToReady(Timer.getFPGATimestamp());
+	}
+
+	/**
+	 * Estimates the time until the {@link Shooter} is ready to fire whilst the
+	 * SparkMax runs its own velocity PID, from the rate at which its error has been
+	 * closing, and publishes it.
+	 * 
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	private void estimateTimeToReady(double timestamp) {
+		var velocity = getVelocity();
+		var dt = timestamp - lastTimestamp;
+
+		if (lastTimestamp != 0 && dt > 0) {
+			// Positive whilst the velocity moves towards the setpoint.
+			var rate = (velocity - lastVelocity) / dt * Math.signum(setpoint - velocity);
+			closingRate += (rate - closingRate)
+					* Math.min(1, dt / Constants.ShooterConstants.closingRateTimeConstant);
+		}
+		lastVelocity = velocity;
+		lastTimestamp = timestamp;
+
+		var remaining = Math.abs(velocity - setpoint) - Constants.ShooterConstants.tolerance;
+		double timeToReady;
+		if (remaining < 0)
+			timeToReady = 0;
+		else if (closingRate > 0)
+			timeToReady = remaining / closingRate;
+		else // Not getting any closer.
+			timeToReady = Double.POSITIVE_INFINITY;
+
+		state.setDouble(timeToReadySlot, Math.max(0, Math.max(timeToReady, hoodSettledAt - timestamp)));
 	}
 
 	/**
 	 * Stops the {@link #shooter shooter motor} dead in its tracks.
 	 */
 	public void stopMotor() {
-		shooter.stopMotor();
-		hood.setAngle(20);
+		setpoint = 0;
+		intent.setDouble(referenceSlot, 0);
+
+		if (Constants.ShooterConstants.stateSpace) { // Don't wait for the loop to stop it.
+			shooter.stopMotor();
+			output.invalidate();
+		} else {
+			output.set(stopMode, 0);
+			outputs.flush(Timer.getFPGATimestamp());
+		}
+		setHood(20);
+	}
+
+	/**
+	 * Moves the {@link #hood} to the given angle, and predicts when it will have
+	 * settled there.
+	 * 
+	 * @param angle The angle at which to set the {@link #hood}
+	 */
+	private void setHood(double angle) {
+		var now = Timer.getFPGATimestamp();
+		var previous = hood.getAngle();
+
+		if (Constants.ShooterConstants.hoodSettling && angle != previous) {
+			// The servo keeps moving towards its previous angle until it gets there.
+			hoodSettledAt = Math.max(hoodSettledAt, now)
+					+ Math.abs(angle - previous) / Constants.ShooterConstants.hoodDegreesPerSecond;
+			intent.setDouble(hoodSettledSlot, hoodSettledAt);
+		}
+
+		hood.setAngle(angle);
+		hoodAngle = angle;
+	}
+
+	/**
+	 * Gets the angle the {@link #hood} was last set to, without reading it back
+	 * from the {@link Servo}.
+	 * 
+	 * @return The {@link #hood}'s angle
+	 */
+	public double getHoodAngle() {
+		return hoodAngle;
 	}
 
 	/**
@@ -115,6 +302,33 @@ public class Shooter extends SuperSubsystem implements SuperDoubleSolenoid, Supe
 		return Math.abs(getError()) < Constants.ShooterConstants.tolerance;
 	}
 
+	/**
+	 * Checks whether or not a ball fed right now would be shot at the target
+	 * speed, with the {@link #hood} settled. Predicted from the
+	 * {@link FlywheelController}'s model, so feeding can start slightly before the
+	 * {@link Shooter} is actually {@link #onTarget() on target}.
+	 * 
+	 * @return Whether or not the {@link Shooter} is ready to fire
+	 */
+	public boolean isReadyToFire() {
+		if (!Constants.ShooterConstants.stateSpace)
+			return onTarget() && Timer.getFPGATimestamp() >= hoodSettledAt;
+
+		return state.getBoolean(readySlot);
+	}
+
+	/**
+	 * Gets the predicted time until the {@link Shooter} is ready to fire. Without
+	 * {@link Constants.ShooterConstants#stateSpace}, it's estimated every
+	 * {@link #periodic()} from how fast its error has been closing instead.
+	 * 
+	 * @return The predicted time, in seconds, or infinity if it isn't getting any
+	 *         closer
+	 */
+	public double getTimeToReady() {
+		return state.getDouble(timeToReadySlot);
+	}
+
 	/**
 	 * Gets the error between the current {@link Shooter}'s {@link CANSparkMax
 	 * motor} and the {@link #setpoint goal speed}.
@@ -122,7 +336,27 @@ public class Shooter extends SuperSubsystem implements SuperDoubleSolenoid, Supe
 	 * @return The {@link #shooterPID}'s error
 	 */
 	public double getError() {
-		return shooter.getEncoder().getVelocity() - setpoint;
+		return (Constants.ShooterConstants.stateSpace ? getEstimatedVelocity() : getVelocity()) - setpoint;
+	}
+
+	/**
+	 * Gets the {@link #shooter}'s current velocity, as of the last
+	 * {@link SensorSnapshot} refresh.
+	 * 
+	 * @return The {@link #shooter}'s velocity, in RPM
+	 */
+	public double getVelocity() {
+		return snapshot.get(velocitySlot);
+	}
+
+	/**
+	 * Gets the {@link #shooter}'s velocity, as estimated by its
+	 * {@link FlywheelController}.
+	 * 
+	 * @return The {@link #shooter}'s estimated velocity, in RPM
+	 */
+	public double getEstimatedVelocity() {
+		return state.getDouble(estimateSlot);
 	}
 
 	/**
@@ -133,4 +367,73 @@ public class Shooter extends SuperSubsystem implements SuperDoubleSolenoid, Supe
 	public double getSetpoint() {
 		return setpoint;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public void registerLoops(ILooper looper) {
+		if (!Constants.ShooterConstants.stateSpace) // The SparkMax runs its own velocity PID.
+			return;
+
+		looper.register(LoopProfiler.instrument("shooterFlywheel", new Loop() { // Flywheel control loop.
+			/** Whether or not the {@link #shooter} was driven on the last iteration. */
+			private boolean running = false;
+
+			@Override
+			public void onFirstStart(double timestamp) {
+			}
+
+			@Override
+			public void onStart(double timestamp) {
+				sensors.update();
+				flywheel.reset(sensors.get(velocitySlot));
+				recorder.record(Channel.FLYWHEEL_STARTED, timestamp);
+			}
+
+			@Override
+			public void onLoop(double timestamp) {
+				sensors.update();
+				var measurement = sensors.get(velocitySlot);
+				var reference = intent.getDouble(referenceSlot);
+
+				var voltage = flywheel.update(measurement, reference);
+				if (reference != 0) {
+					output.set(voltageMode, voltage);
+					outputs.flush(timestamp);
+				} else if (running) { // Stopped since the last iteration, don't hold the last voltage.
+					output.set(stopMode, 0);
+					outputs.flush(timestamp);
+				}
+				running = reference != 0;
+
+				var timeToReady = Math.max(
+						flywheel.getTimeToReach(reference, Constants.ShooterConstants.tolerance),
+						intent.getDouble(hoodSettledSlot) - timestamp);
+
+				state.beginWrite();
+				state.putDouble(estimateSlot, flywheel.getEstimate());
+				state.putDouble(timeToReadySlot, Math.max(0, timeToReady));
+				state.putBoolean(readySlot,
+						reference != 0 && timeToReady <= Constants.ShooterConstants.feedLeadSeconds);
+				state.endWrite();
+
+				recorder.record(Channel.SHOOTER_ESTIMATED_VELOCITY, flywheel.getEstimate());
+				recorder.record(Channel.SHOOTER_VOLTAGE, voltage);
+			}
+
+			@Override
+			public void onStop(double timestamp) {
+				running = false;
+				shooter.stopMotor();
+				outputs.invalidate();
+				// The Looper never runs this alongside onLoop, so the state keeps a single writer.
+				state.setBoolean(readySlot, false);
+
+				recorder.record(Channel.FLYWHEEL_STOPPED, timestamp);
+			}
+
+			@Override
+			public LoopType getType() {
+				return LoopType.ENABLED;
+			}
+		}));
+	}
+}
@@ -2,9 +2,16 @@ package org.usfirst.frc6647.subsystems;
 
 import com.revrobotics.ControlType;
 
+import org.usfirst.frc6647.can.StatusFrames;
+import org.usfirst.frc6647.loops.LoopProfiler;
 import org.usfirst.frc6647.robot.Constants;
 import org.usfirst.frc6647.robot.Robot;
 import org.usfirst.frc6647.robot.RobotContainer;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+import org.usfirst.frc6647.util.Odometry;
+import org.usfirst.frc6647.util.SensorSnapshot;
+import org.usfirst.frc6647.util.SharedState;
+import org.usfirst.frc6647.util.TurretAimLoop;
 import org.usfirst.lib6647.loops.ILooper;
 import org.usfirst.lib6647.loops.Loop;
 import org.usfirst.lib6647.loops.LoopType;
@@ -14,6 +21,8 @@ import org.usfirst.lib6647.subsystem.supercomponents.SuperSparkMax;
 import org.usfirst.lib6647.vision.LimelightCamera;
 import org.usfirst.lib6647.vision.LimelightData.Data;
 
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 
@@ -25,19 +34,39 @@ public class Turret extends SuperSubsystem implements SuperSparkMax {
 	/** {@link HyperSparkMax} instance used by the {@link Turret}. */
 	private HyperSparkMax turret;
 
-	/** Stores current {@link #setpoint position goal}. */
-	private double setpoint;
-	/** Whether or not the {@link Turret} is currently aiming. */
-	private boolean aiming = false;
+	/** Conversion factor from {@link #turret} encoder position to degrees. */
+	private static final double positionToDegrees = 360
+			/ (Constants.TurretConstants.ticksPerRotation * Constants.TurretConstants.reduction);
+
+	/**
+	 * Operator intent shared with the Looper threads, only written by the command
+	 * scheduler's thread.
+	 */
+	private final SharedState intent = new SharedState(TurretAimLoop.intentSlots);
+	/** Profile state shared by the Looper thread, only written by its loop. */
+	private final SharedState state = new SharedState(TurretAimLoop.stateSlots);
+
+	/** Body of the auto-aim loop. */
+	private final TurretAimLoop aimLoop;
 
 	/** The {@link Robot}'s frontal {@link LimelightCamera} instance. */
 	private LimelightCamera limelight;
+	/** The {@link #limelight}'s pipeline latency entry, updated with every frame. */
+	private NetworkTableEntry latencyEntry;
 
+	/** The {@link Robot}'s {@link SensorSnapshot}, read once per cycle. */
+	private SensorSnapshot snapshot;
+	/** {@link SensorSnapshot} slots for every sensor used by this {@link Turret}. */
+	private int positionSlot, horizontalOffsetSlot, verticalOffsetSlot, targetFoundSlot, latencySlot,
+			arrivalSlot;
 	/**
 	 * Should only need to create a single of instance of {@link Turret this class};
 	 * inside the {@link RobotContainer}.
+	 * 
+	 * @param odometry The {@link Chassis}'s {@link Odometry}, used to compensate
+	 *                 for the {@link Robot}'s movement
 	 */
-	public Turret() {
+	public Turret(Odometry odometry) {
 		super("turret");
 
 		// All SuperComponents must be initialized like this. The 'robotMap' Object is
@@ -47,23 +76,57 @@ public class Turret extends SuperSubsystem implements SuperSparkMax {
 
 		// Additional initialiation & configuration.
 		turret = getSpark("turret");
+		turret.getPIDController().setP(Constants.Aim.kP);
+		turret.getPIDController().setI(Constants.Aim.kI);
+		turret.getPIDController().setD(Constants.Aim.kD);
 
 		limelight = new LimelightCamera("limelight");
+
+		snapshot = Robot.getInstance().getContainer().getSnapshot();
+		// Neither the Spark MAX's status frames nor the Limelight's frames arrive
+		// faster than every 10ms.
+		var divider = Constants.SensorConstants.slowDivider;
+		positionSlot = snapshot.register("turretPosition", turret.getEncoder()::getPosition, divider);
+		horizontalOffsetSlot = snapshot.register("limelightHorizontalOffset",
+				() -> limelight.getData(Data.HORIZONTAL_OFFSET), divider);
+		verticalOffsetSlot = snapshot.register("limelightVerticalOffset",
+				() -> limelight.getData(Data.VERTICAL_OFFSET), divider);
+		targetFoundSlot = snapshot.registerBoolean("limelightTargetFound", limelight::isTargetFound, divider);
+		latencySlot = snapshot.register("limelightLatency", () -> limelight.getData(Data.LATENCY), divider);
+		// NetworkTables stamps every update with the FPGA time it arrived at, in microseconds.
+		latencyEntry = NetworkTableInstance.getDefault().getTable("limelight").getEntry("tl");
+		arrivalSlot = snapshot.register("limelightArrival", () -> latencyEntry.getLastChange() / 1e6, divider);
+
+		var pid = turret.getPIDController();
+		aimLoop = new TurretAimLoop(snapshot.newReader(), positionSlot, horizontalOffsetSlot, verticalOffsetSlot,
+				targetFoundSlot, latencySlot, arrivalSlot, positionToDegrees, intent, state, odometry,
+				degrees -> pid.setReference(degrees / positionToDegrees, ControlType.kPosition),
+				Robot.getInstance().getContainer().getRecorder());
+
+		// Written in the background, so only once this constructor is done configuring.
+		StatusFrames.configureSparks(getName(), this::getSpark);
 		// ...
 	}
 
 	@Override
 	public void outputToShuffleboard() {
-		layout.addNumber("error", this::getError);
+		var dashboard = Robot.getInstance().getContainer().getDashboard();
+
+		dashboard.addNumber(layout, "error", this::getError, Priority.HIGH, 25);
 
-		layout.addNumber("angle", () -> getAngle().getDegrees());
-		layout.addString("angleFull", () -> getAngle().toString());
+		dashboard.addNumber(layout, "angle", this::getAngleDegrees, Priority.NORMAL, 10);
+		dashboard.addNumber(layout, "angleRadians", this::getAngleRadians, Priority.LOW, 5);
 
-		layout.addNumber("setpoint", this::getSetpoint);
+		dashboard.addNumber(layout, "setpoint", this::getSetpoint, Priority.NORMAL, 10);
 
-		layout.addBoolean("isOnline", limelight::isConnected).withWidget(BuiltInWidgets.kBooleanBox);
-		layout.addBoolean("targetFound", limelight::isTargetFound).withWidget(BuiltInWidgets.kBooleanBox);
-		layout.addNumber("horizontalRotation", this::getHorizontalRotation);
+		dashboard.addBoolean(layout, "isOnline", limelight::isConnected, Priority.LOW, 1)
+				.withWidget(BuiltInWidgets.kBooleanBox);
+		dashboard.addBoolean(layout, "targetFound", this::isTargetFound, Priority.HIGH, 25)
+				.withWidget(BuiltInWidgets.kBooleanBox);
+		dashboard.addNumber(layout, "horizontalRotation", this::getHorizontalRotation, Priority.NORMAL, 10);
+		dashboard.addNumber(layout, "targetDistance", this::getTargetDistance, Priority.NORMAL, 10);
+		dashboard.addNumber(layout, "shotDistance", this::getShotDistance, Priority.NORMAL, 10);
+		dashboard.addBoolean(layout, "atGoal", this::atGoal, Priority.HIGH, 25).withWidget(BuiltInWidgets.kBooleanBox);
 	}
 
 	/**
@@ -73,8 +136,7 @@ public class Turret extends SuperSubsystem implements SuperSparkMax {
 	 *              motor}
 	 */
 	public void setMotor(double speed) {
-		setpoint = (getAngle().getRadians()
-				* (Constants.TurretConstants.ticksPerRotation * Constants.TurretConstants.reduction)) / 360;
+		intent.setBoolean(TurretAimLoop.profiledSlot, false);
 		turret.getPIDController().setReference(speed, ControlType.kDutyCycle);
 	}
 
@@ -86,15 +148,26 @@ public class Turret extends SuperSubsystem implements SuperSparkMax {
 	}
 
 	/**
-	 * Sets the {@link #turretPID} to the specified angle, also updates the
-	 * {@link #setpoint} variable.
+	 * Sets the {@link Turret}'s goal to the specified angle, reached through its
+	 * profile by the Looper thread.
 	 * 
-	 * @param angle The angle at which to set the {@link #turretPID}'s setpoint
+	 * @param angle The angle to move the {@link Turret} to
 	 */
 	public void setDesiredAngle(Rotation2d angle) {
-		setpoint = (angle.getRadians()
-				* (Constants.TurretConstants.ticksPerRotation * Constants.TurretConstants.reduction)) / 360;
-		turret.getPIDController().setReference(setpoint, ControlType.kPosition);
+		setDesiredAngle(angle.getDegrees());
+	}
+
+	/**
+	 * Sets the {@link Turret}'s goal to the specified angle, reached through its
+	 * profile by the Looper thread.
+	 * 
+	 * @param degrees The angle to move the {@link Turret} to, in degrees
+	 */
+	public void setDesiredAngle(double degrees) {
+		intent.beginWrite();
+		intent.putDouble(TurretAimLoop.goalSlot, degrees);
+		intent.putBoolean(TurretAimLoop.profiledSlot, true);
+		intent.endWrite();
 	}
 
 	/**
@@ -103,37 +176,75 @@ public class Turret extends SuperSubsystem implements SuperSparkMax {
 	 * @param angle The angle at which to reset the {@link #turretEncoder}
 	 */
 	public void reset(Rotation2d angle) {
-		turret.getEncoder().setPosition((angle.getRadians()
-				* (Constants.TurretConstants.ticksPerRotation * Constants.TurretConstants.reduction)) / 360);
+		turret.getEncoder().setPosition(angle.getDegrees() / positionToDegrees);
 	}
 
 	/**
-	 * Get the {@link #turret}'s current {@link Rotation2d angle}.
+	 * Get the {@link #turret}'s current {@link Rotation2d angle}. Allocates a new
+	 * {@link Rotation2d} on every call, prefer {@link #getAngleDegrees()} or
+	 * {@link #getAngleRadians()} inside loops.
 	 * 
 	 * @return The current {@link Rotation2d angle}
 	 */
 	public Rotation2d getAngle() {
-		return new Rotation2d(turret.getEncoder().getPosition() * 360
-				/ (Constants.TurretConstants.ticksPerRotation * Constants.TurretConstants.reduction));
+		return Rotation2d.fromDegrees(getAngleDegrees());
 	}
 
 	/**
-	 * Gets the {@link Turret}'s current {@link #setpoint}.
+	 * Get the {@link #turret}'s current angle, in degrees.
 	 * 
-	 * @return The {@link Turret}'s current {@link #setpoint} value
+	 * @return The current angle, in degrees
+	 */
+	public double getAngleDegrees() {
+		return getPosition() * positionToDegrees;
+	}
+
+	/**
+	 * Get the {@link #turret}'s current angle, in radians.
+	 * 
+	 * @return The current angle, in radians
+	 */
+	public double getAngleRadians() {
+		return Math.toRadians(getPosition() * positionToDegrees);
+	}
+
+	/**
+	 * Get the {@link #turret}'s current encoder position, as of the last
+	 * {@link SensorSnapshot} refresh.
+	 * 
+	 * @return The current encoder position
+	 */
+	public double getPosition() {
+		return snapshot.get(positionSlot);
+	}
+
+	/**
+	 * Gets the angle currently followed by the {@link Turret}, in degrees.
+	 * 
+	 * @return The {@link Turret}'s current setpoint
 	 */
 	public double getSetpoint() {
-		return Math.toDegrees(
-				(setpoint * 360) / (Constants.TurretConstants.ticksPerRotation * Constants.TurretConstants.reduction));
+		return state.getDouble(TurretAimLoop.setpointSlot);
 	}
 
 	/**
-	 * Gets the difference between current angle, and the {@link #setpoint}.
+	 * Gets the difference between current angle, and the current setpoint, in
+	 * degrees.
 	 * 
 	 * @return The {@link Turret}'s error
 	 */
 	public double getError() {
-		return getAngle().getDegrees() - getSetpoint();
+		return getAngleDegrees() - getSetpoint();
+	}
+
+	/**
+	 * Checks whether or not the {@link Turret} has finished its profile, and
+	 * settled within {@link Constants.Aim#toleranceDegrees} of its goal.
+	 * 
+	 * @return Whether or not the {@link Turret} is at its goal
+	 */
+	public boolean atGoal() {
+		return state.getBoolean(TurretAimLoop.atGoalSlot);
 	}
 
 	/**
@@ -142,19 +253,79 @@ public class Turret extends SuperSubsystem implements SuperSparkMax {
 	 * @return The target's horizontal rotation in relation to the {@link Robot}
 	 */
 	public double getHorizontalRotation() {
-		return limelight.getData(Data.HORIZONTAL_OFFSET);
+		return snapshot.get(horizontalOffsetSlot);
+	}
+
+	/**
+	 * Estimates the FPGA timestamp at which the {@link #limelight}'s current frame
+	 * was captured, from when it arrived, less its pipeline latency plus its
+	 * capture latency. Unlike the {@link SensorSnapshot}'s own timestamp, its
+	 * arrival doesn't depend on how long ago the snapshot was refreshed.
+	 * 
+	 * @return The current frame's capture timestamp, in seconds
+	 */
+	public double getCaptureTimestamp() {
+		return TurretAimLoop.getCaptureTimestamp(snapshot.get(arrivalSlot), snapshot.get(latencySlot));
+	}
+
+	/**
+	 * Checks whether or not the {@link #limelight} currently sees a target.
+	 * 
+	 * @return Whether or not a target is found
+	 */
+	public boolean isTargetFound() {
+		return snapshot.getBoolean(targetFoundSlot);
+	}
+
+	/**
+	 * Estimates the distance to the target, from the {@link #limelight}'s vertical
+	 * offset and its mounting height and angle.
+	 * 
+	 * @return The estimated distance to the target, in meters
+	 */
+	public double getTargetDistance() {
+		return TurretAimLoop.getTargetDistance(snapshot.get(verticalOffsetSlot));
+	}
+
+	/**
+	 * Gets the distance to shoot for, which is the {@link #getTargetDistance()
+	 * target's distance} corrected for the {@link Robot}'s movement whilst aiming.
+	 * 
+	 * @return The distance to look up in the {@link org.usfirst.frc6647.util.ShotMap
+	 *         ShotMap}, in meters
+	 */
+	public double getShotDistance() {
+		return isAiming() ? state.getDouble(TurretAimLoop.shotDistanceSlot) : getTargetDistance();
 	}
 
 	/**
 	 * Toggles whether or not to start aiming the {@link #turret}.
 	 */
 	public void toggleAim() {
-		aiming = !aiming;
+		intent.setBoolean(TurretAimLoop.aimingSlot, !intent.peekBoolean(TurretAimLoop.aimingSlot));
+	}
+
+	/**
+	 * Sets whether or not to start aiming the {@link #turret}.
+	 * 
+	 * @param aiming Whether or not the {@link Turret} should aim
+	 */
+	public void setAiming(boolean aiming) {
+		intent.setBoolean(TurretAimLoop.aimingSlot, aiming);
+	}
+
+	/**
+	 * Gets whether or not the {@link Turret} is currently aiming.
+	 * 
+	 * @return Whether or not the {@link Turret} is aiming
+	 */
+	public boolean isAiming() {
+		return intent.getBoolean(TurretAimLoop.aimingSlot);
 	}
 
 	@Override
 	public void registerLoops(ILooper looper) {
-		looper.register(new Loop() { // Auto-aim loop.
+		looper.register(LoopProfiler.instrument("turretAim", new Loop() { // Auto-aim loop.
 			@Override
 			public void onFirstStart(double timestamp) {
 				reset(new Rotation2d());
@@ -162,34 +333,23 @@ public class Turret extends SuperSubsystem implements SuperSparkMax {
 
 			@Override
 			public void onStart(double timestamp) {
-				synchronized (Turret.this) {
-					System.out.println("Started Turret Auto-aim at: " + timestamp + "!");
-				}
+				aimLoop.start(timestamp);
 			}
 
 			@Override
 			public void onLoop(double timestamp) {
-				if (!aiming) // Checks whether or not the Turret should be auto-aiming
-					return;
-
-				synchronized (Turret.this) {
-					if (!limelight.isTargetFound()) // Checks if a target is found by the Limelight
-						return;
-
-					turret.getPIDController().setReference(turret.getEncoder().getPosition() + getHorizontalRotation(),
-							ControlType.kPosition);
-				}
+				aimLoop.loop(timestamp);
 			}
 
 			@Override
 			public void onStop(double timestamp) {
-				System.out.println("Stopped Turret Auto-aim at: " + timestamp + ".");
+				aimLoop.stop(timestamp);
 			}
 
 			@Override
 			public LoopType getType() {
 				return LoopType.ENABLED;
 			}
-		});
+		}));
 	}
 }
\ No newline at end of file
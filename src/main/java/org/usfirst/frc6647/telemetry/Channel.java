@@ -0,0 +1,24 @@
+package org.usfirst.frc6647.telemetry;
+
+/**
+ * Every channel a {@link TelemetryRecorder} can record. Lifecycle channels hold
+ * the {@link org.usfirst.lib6647.loops.Loop Loop}'s timestamp as their value.
+ */
+public enum Channel {
+	CHASSIS_FRONT_LEFT_OUTPUT, CHASSIS_FRONT_RIGHT_OUTPUT, CHASSIS_BACK_LEFT_OUTPUT, CHASSIS_BACK_RIGHT_OUTPUT,
+	CHASSIS_LEFT_VELOCITY, CHASSIS_RIGHT_VELOCITY, CHASSIS_INPUT_LATENCY,
+
+	GYRO_WORLD_LINEAR_ACCEL_X, GYRO_WORLD_LINEAR_ACCEL_Y, GYRO_YAW, GYRO_COLLISION_JERK,
+
+	TURRET_POSITION, TURRET_SETPOINT, LIMELIGHT_HORIZONTAL_OFFSET, LIMELIGHT_VERTICAL_OFFSET,
+
+	INDEXER_CURRENT, PULLEY_CURRENT, INDEXER_BALL_COUNT, FEED_RELEASE_RPM, FEED_RPM_DIP, FEED_RECOVERY_SECONDS,
+	VOLLEY_BALLS_PER_SECOND,
+
+	SHOOTER_SETPOINT, SHOOTER_VELOCITY, SHOOTER_ESTIMATED_VELOCITY, SHOOTER_VOLTAGE, HOOD_ANGLE,
+
+	DRIVE_STARTED, DRIVE_STOPPED, GYRO_STARTED, GYRO_STOPPED, AIM_STARTED, AIM_STOPPED, FLYWHEEL_STARTED,
+	FLYWHEEL_STOPPED, INDEXER_STARTED, INDEXER_STOPPED,
+
+	TELEMETRY_DROPPED;
+}
@@ -0,0 +1,196 @@
+package org.usfirst.frc6647.telemetry;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import org.usfirst.frc6647.util.Histogram;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
+import edu.wpi.first.wpilibj.shuffleboard.SimpleWidget;
+
+/**
+ * Rate-budgeted Shuffleboard publisher. Each entry declares a {@link Priority}
+ * and a maximum rate, and is only published once it's due. Every cycle, due
+ * entries are published in {@link Priority} order until the per-cycle time
+ * budget runs out; the rest are deferred to the next cycle, which picks up
+ * where this one left off.
+ *
+ * <p>
+ * Suppliers should read cached state, such as the {@link
+ * org.usfirst.frc6647.util.SensorSnapshot SensorSnapshot}, instead of hardware.
+ * Every entry must be added and {@link #run(double) run} from the main thread.
+ */
+public class DashboardScheduler {
+	/** Priority of each entry, published in declaration order. */
+	public enum Priority {
+		HIGH, NORMAL, LOW;
+	}
+
+	/** A single published value. */
+	private static final class Entry {
+		/** {@link SimpleWidget} to publish into. */
+		private final SimpleWidget widget;
+		/** The {@link #widget}'s {@link NetworkTableEntry}, fetched on first publish. */
+		private NetworkTableEntry entry;
+		/** Supplier for a number entry, null for a boolean one. */
+		private final DoubleSupplier number;
+		/** Supplier for a boolean entry, null for a number one. */
+		private final BooleanSupplier bool;
+		/** Shortest time between publishes, in seconds. */
+		private final double period;
+		/** Timestamp of the last publish. */
+		private double publishedAt = Double.NEGATIVE_INFINITY;
+
+		private Entry(SimpleWidget widget, DoubleSupplier number, BooleanSupplier bool, double period) {
+			this.widget = widget;
+			this.number = number;
+			this.bool = bool;
+			this.period = period;
+		}
+
+		/** Publishes this {@link Entry}'s current value. */
+		private void publish() {
+			if (entry == null)
+				entry = widget.getEntry();
+
+			if (number != null)
+				entry.setDouble(number.getAsDouble());
+			else
+				entry.setBoolean(bool.getAsBoolean());
+		}
+	}
+
+	/** Longest time to spend publishing each cycle, in nanoseconds. */
+	private final long budgetNanos;
+
+	/** Every {@link Entry} added so far, by {@link Priority}. */
+	private final EnumMap<Priority, List<Entry>> added = new EnumMap<>(Priority.class);
+	/** Pre-allocated copy of {@link #added}, iterated every cycle. */
+	private Entry[][] groups = new Entry[0][];
+	/** Index at which each group picks up on the next cycle. */
+	private int[] cursors = new int[0];
+
+	/** Time spent publishing each cycle, in microseconds. */
+	private final Histogram cost = new Histogram(25, 200);
+	/** Number of due entries deferred on the last cycle. */
+	private volatile int deferred = 0;
+
+	/**
+	 * Creates a {@link DashboardScheduler}.
+	 *
+	 * @param budgetMicros Longest time to spend publishing each cycle, in
+	 *                     microseconds
+	 */
+	public DashboardScheduler(long budgetMicros) {
+		budgetNanos = budgetMicros * 1000;
+
+		for (var priority : Priority.values())
+			added.put(priority, new ArrayList<>());
+	}
+
+	/**
+	 * Adds a number to the given container, published at most at the given rate.
+	 *
+	 * @param container The container to add it to, such as a subsystem's layout
+	 * @param name      The number's name
+	 * @param supplier  Supplies the number, from cached state
+	 * @param priority  The number's {@link Priority}
+	 * @param maxRate   The number's maximum rate, in Hz
+	 * @return The {@link SimpleWidget}, to further configure it
+	 */
+	public SimpleWidget addNumber(ShuffleboardContainer container, String name, DoubleSupplier supplier,
+			Priority priority, double maxRate) {
+		var widget = container.add(name, supplier.getAsDouble());
+		add(priority, new Entry(widget, supplier, null, 1 / maxRate));
+
+		return widget;
+	}
+
+	/**
+	 * Adds a boolean to the given container, published at most at the given rate.
+	 *
+	 * @param container The container to add it to, such as a subsystem's layout
+	 * @param name      The boolean's name
+	 * @param supplier  Supplies the boolean, from cached state
+	 * @param priority  The boolean's {@link Priority}
+	 * @param maxRate   The boolean's maximum rate, in Hz
+	 * @return The {@link SimpleWidget}, to further configure it
+	 */
+	public SimpleWidget addBoolean(ShuffleboardContainer container, String name, BooleanSupplier supplier,
+			Priority priority, double maxRate) {
+		var widget = container.add(name, supplier.getAsBoolean());
+		add(priority, new Entry(widget, null, supplier, 1 / maxRate));
+
+		return widget;
+	}
+
+	/**
+	 * Adds an {@link Entry}, and rebuilds the groups iterated every cycle.
+	 */
+	private void add(Priority priority, Entry entry) {
+		added.get(priority).add(entry);
+
+		var priorities = Priority.values();
+		groups = new Entry[priorities.length][];
+		for (int i = 0; i < priorities.length; i++)
+			groups[i] = added.get(priorities[i]).toArray(new Entry[0]);
+		cursors = new int[priorities.length];
+	}
+
+	/**
+	 * Publishes every due entry, in {@link Priority} order, until the time budget
+	 * runs out. Should be called once every cycle.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void run(double timestamp) {
+		var start = System.nanoTime();
+		var over = false;
+		var deferred = 0;
+
+		for (int p = 0; p < groups.length; p++) {
+			var group = groups[p];
+			var first = cursors[p];
+
+			for (int i = 0; i < group.length; i++) {
+				var index = (first + i) % group.length;
+				var entry = group[index];
+
+				if (timestamp - entry.publishedAt < entry.period)
+					continue;
+
+				if (over || System.nanoTime() - start > budgetNanos) { // Leave it for the next cycle.
+					over = true;
+					deferred++;
+					continue;
+				}
+
+				entry.publish();
+				entry.publishedAt = timestamp;
+				cursors[p] = (index + 1) % group.length;
+			}
+		}
+
+		this.deferred = deferred;
+		cost.record((System.nanoTime() - start) / 1000);
+	}
+
+	/**
+	 * Publishes this {@link DashboardScheduler}'s own cost, through itself. Should
+	 * be called once, after every other entry has been added.
+	 */
+	public void outputToShuffleboard() {
+		var layout = Shuffleboard.getTab("Loops").getLayout("dashboard", BuiltInLayouts.kList);
+
+		addNumber(layout, "costP50", () -> cost.getPercentile(0.5), Priority.LOW, 2);
+		addNumber(layout, "costP99", () -> cost.getPercentile(0.99), Priority.LOW, 2);
+		addNumber(layout, "costMax", cost::getMax, Priority.LOW, 2);
+		addNumber(layout, "deferred", () -> deferred, Priority.LOW, 2);
+	}
+}
@@ -0,0 +1,76 @@
+package org.usfirst.frc6647.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Names and rotates the log files under a directory. Every name starts with a
+ * zero-padded boot counter, kept in a '.boot' file next to them, so names never
+ * collide and sort in boot order even whilst the roboRIO's clock is unset. The
+ * oldest files are deleted until the new one fits under a total size cap.
+ */
+public final class LogFiles {
+	private LogFiles() {
+	}
+
+	/**
+	 * Picks the next log file's name under the given directory, deleting the
+	 * oldest ones until a new file of the given size fits under the cap.
+	 *
+	 * @param directory The directory holding every log file of this kind
+	 * @param extension The log files' extension, such as '.bin'
+	 * @param fileSize  The new file's size, in bytes
+	 * @param maxBytes  Largest total size of every log file in the directory
+	 * @return The new log file, which doesn't exist yet
+	 * @throws IOException If the directory or its boot counter can't be written
+	 */
+	public static File next(File directory, String extension, long fileSize, long maxBytes) throws IOException {
+		directory.mkdirs();
+
+		var boot = nextBoot(new File(directory, ".boot"));
+
+		var files = directory.listFiles((dir, name) -> name.endsWith(extension));
+		if (files == null)
+			throw new IOException("Can't list '" + directory + "'");
+		Arrays.sort(files); // Boot counter first, so oldest first.
+
+		var total = fileSize;
+		for (var file : files)
+			total += file.length();
+
+		for (int i = 0; i < files.length && total > maxBytes; i++) {
+			total -= files[i].length();
+			if (!files[i].delete())
+				throw new IOException("Can't delete '" + files[i] + "'");
+		}
+
+		var date = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+		return new File(directory, String.format("%05d-%s%s", boot, date, extension));
+	}
+
+	/**
+	 * Reads, increments and writes back the boot counter in the given file.
+	 */
+	private static int nextBoot(File counter) throws IOException {
+		var boot = 0;
+
+		try {
+			if (counter.isFile())
+				boot = Integer.parseInt(new String(Files.readAllBytes(counter.toPath()), StandardCharsets.US_ASCII)
+						.trim()) + 1;
+		} catch (NumberFormatException e) { // Corrupted, start over.
+			boot = 0;
+		}
+
+		boot %= 100000;
+		Files.write(counter.toPath(), Integer.toString(boot).getBytes(StandardCharsets.US_ASCII));
+
+		return boot;
+	}
+}
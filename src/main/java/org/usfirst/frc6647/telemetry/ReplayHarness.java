@@ -0,0 +1,540 @@
+package org.usfirst.frc6647.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.usfirst.frc6647.loops.SensorLoop;
+import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.robot.Robot;
+import org.usfirst.frc6647.util.SensorSnapshot;
+import org.usfirst.lib6647.oi.JController;
+
+import edu.wpi.first.hal.sim.mockdata.DriverStationDataJNI;
+import edu.wpi.first.hal.sim.mockdata.SimulatorJNI;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Deterministic input/sensor record-and-replay harness. Whilst recording, every
+ * {@link SensorLoop} tick stores the Driver Station's control word, the raw state
+ * of every {@link JController} and every value in the {@link SensorSnapshot}.
+ * Whilst replaying (desktop simulation only), those same frames are injected
+ * back into the simulated Driver Station and the {@link SensorSnapshot}, one
+ * per tick, so the exact same {@link org.usfirst.frc6647.robot.RobotContainer
+ * RobotContainer} wiring sees the exact same inputs. Every sensor any loop
+ * consumes goes through the {@link SensorSnapshot} for this reason.
+ *
+ * <p>
+ * Whilst replaying, the simulated clock is paused, and stepped to each frame's
+ * timestamp as it's injected, so every {@link Timer} reads the recorded time.
+ * The {@link Robot} then runs every loop from its own thread, rather than from
+ * any Notifier, as fast as it can.
+ *
+ * <p>
+ * Whilst recording, the {@link SensorLoop} thread only copies each frame into a
+ * pre-allocated ring of frames; a low-priority thread opens the file and drains
+ * the ring into it, forcing it to disk every second. Recording starts on the
+ * first tick with the Driver Station attached, so joystick descriptors are
+ * real, and the oldest files are deleted past
+ * {@link Constants.ReplayConstants#maxTotalBytes}.
+ *
+ * <p>
+ * Recording is enabled by {@link Constants.ReplayConstants#record}; replaying
+ * is enabled by pointing the 'REPLAY_FILE' environment variable to a recorded
+ * file when running './gradlew simulateJava'.
+ */
+public class ReplayHarness {
+	/** Modes this {@link ReplayHarness} can run in. */
+	public enum Mode {
+		OFF, RECORD, REPLAY;
+	}
+
+	/** Magic string at the start of every replay file. */
+	private static final String magic = "V6647RPL";
+	/** Version of the replay file format. */
+	private static final int version = 1;
+	/** Size of the memory-mapped file whilst recording, in bytes. */
+	private static final int fileSize = 64 << 20;
+	/** Number of joystick ports recorded. */
+	private static final int ports = Constants.ReplayConstants.joystickPorts;
+	/** Number of frames the ring can hold whilst recording, about 2.5s worth. */
+	private static final int capacity = 512;
+
+	/** This {@link ReplayHarness}'s {@link Mode}. */
+	private volatile Mode mode;
+	/** The memory-mapped replay file, only touched by the drainer whilst recording. */
+	private MappedByteBuffer buffer;
+
+	/** The {@link Robot}'s {@link SensorSnapshot}, whose names go in the header. */
+	private SensorSnapshot snapshot;
+	/** Pre-allocated frames, written by the {@link SensorLoop} thread and drained. */
+	private ByteBuffer[] frames;
+	/** Next frame to be written, and next frame to be drained. */
+	private volatile long head = 0, tail = 0;
+	/** Whether or not the drainer has been started, once the DS is attached. */
+	private boolean draining = false;
+	/** Set once recording stops, so the drainer ends the file. */
+	private volatile boolean stopping = false;
+	/** The {@link DriverStation} instance. */
+	private final DriverStation ds = DriverStation.getInstance();
+
+	/** Pre-allocated sensor values for a single frame. */
+	private double[] sensors = new double[0];
+	/** Pre-allocated joystick axes, indexed by port and axis count. */
+	private final float[][][] axes = new float[ports][13][];
+	/** Pre-allocated joystick POVs, indexed by port and POV count. */
+	private final short[][][] povs = new short[ports][13][];
+
+	/** Whether or not the simulated clock has been paused, whilst replaying. */
+	private boolean paused = false;
+	/** Last injected control word. */
+	private byte injectedControlWord;
+	/** Last injected joystick axes, indexed by port. */
+	private final float[][] injectedAxes = new float[ports][];
+	/** Last injected joystick buttons, indexed by port. */
+	private final int[] injectedButtons = new int[ports];
+	/** Last injected joystick POVs, indexed by port. */
+	private final short[][] injectedPOVs = new short[ports][];
+
+	/**
+	 * Creates a {@link ReplayHarness}, picking its {@link Mode} from the
+	 * environment. Whilst replaying, every joystick's descriptor is injected right
+	 * away, so it must be created before any {@link JController}.
+	 */
+	public ReplayHarness() {
+		for (int port = 0; port < ports; port++)
+			for (int i = 0; i < axes[port].length; i++) {
+				axes[port][i] = new float[i];
+				povs[port][i] = new short[i];
+			}
+
+		var replayFile = System.getenv("REPLAY_FILE");
+
+		try {
+			if (RobotBase.isSimulation() && replayFile != null) {
+				mode = Mode.REPLAY;
+				openReplay(new File(replayFile));
+			} else if (Constants.ReplayConstants.record) {
+				mode = Mode.RECORD; // Opened by the drainer, once the DS is attached.
+			} else {
+				mode = Mode.OFF;
+			}
+		} catch (IOException e) {
+			var error = String.format("[!] COULD NOT OPEN REPLAY FILE, REPLAY HARNESS DISABLED:\n\t%1$s.",
+					e.getLocalizedMessage());
+
+			System.out.println(error);
+			DriverStation.reportWarning(error, false);
+
+			mode = Mode.OFF;
+		}
+	}
+
+	/**
+	 * Gets this {@link ReplayHarness}'s {@link Mode}.
+	 *
+	 * @return The current {@link Mode}
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Writes (or checks, whilst replaying) the names of every sensor in the given
+	 * {@link SensorSnapshot}. Must be called once every subsystem has registered
+	 * its sensors, and before the first {@link #refresh(SensorSnapshot)}.
+	 *
+	 * @param snapshot The {@link Robot}'s {@link SensorSnapshot}
+	 */
+	public void start(SensorSnapshot snapshot) {
+		sensors = new double[snapshot.size()];
+
+		if (mode == Mode.RECORD) {
+			this.snapshot = snapshot;
+
+			frames = new ByteBuffer[capacity];
+			for (int i = 0; i < capacity; i++)
+				frames[i] = ByteBuffer.allocate(getFrameSize());
+		} else if (mode == Mode.REPLAY) {
+			var count = buffer.getInt();
+
+			for (int i = 0; i < count; i++) {
+				var name = getString();
+
+				if (i >= snapshot.size() || !name.equals(snapshot.getName(i))) {
+					stop("sensor '" + name + "' in slot " + i + " doesn't match this robot's SensorSnapshot");
+					return;
+				}
+			}
+
+			if (count != snapshot.size())
+				stop("recorded " + count + " sensors, but this robot registers " + snapshot.size());
+		}
+	}
+
+	/**
+	 * Refreshes the given {@link SensorSnapshot} for this tick; recording the
+	 * tick's inputs, or replacing them with the next recorded frame. Must only be
+	 * called from the {@link SensorLoop}.
+	 *
+	 * @param snapshot The {@link Robot}'s {@link SensorSnapshot}
+	 */
+	public void refresh(SensorSnapshot snapshot) {
+		switch (mode) {
+		case RECORD:
+			snapshot.refresh();
+
+			if (!draining && ds.isDSAttached()) // Joystick descriptors are only known from now on.
+				startDrainer();
+			if (draining)
+				recordFrame(snapshot);
+			break;
+		case REPLAY:
+			replayFrame(snapshot);
+			break;
+		default:
+			snapshot.refresh();
+		}
+	}
+
+	/**
+	 * Builds the header from the attached joysticks' descriptors and the
+	 * {@link #snapshot}'s names, and starts the thread draining every frame into
+	 * a new replay file.
+	 */
+	private void startDrainer() {
+		var names = new ArrayList<byte[]>();
+		var size = magic.length() + 2 * Integer.BYTES;
+
+		for (int port = 0; port < ports; port++) {
+			names.add(ds.getJoystickName(port).getBytes(StandardCharsets.US_ASCII));
+			size += Short.BYTES + names.get(port).length + 5;
+		}
+		size += Integer.BYTES;
+		for (int i = 0; i < snapshot.size(); i++) {
+			names.add(snapshot.getName(i).getBytes(StandardCharsets.US_ASCII));
+			size += Short.BYTES + names.get(ports + i).length;
+		}
+
+		var header = ByteBuffer.allocate(size);
+		header.put(magic.getBytes(StandardCharsets.US_ASCII));
+		header.putInt(version);
+		header.putInt(ports);
+
+		for (int port = 0; port < ports; port++) {
+			putString(header, names.get(port));
+			header.put((byte) (ds.getJoystickIsXbox(port) ? 1 : 0));
+			header.put((byte) ds.getJoystickType(port));
+			header.put((byte) ds.getStickAxisCount(port));
+			header.put((byte) ds.getStickButtonCount(port));
+			header.put((byte) ds.getStickPOVCount(port));
+		}
+
+		header.putInt(snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++)
+			putString(header, names.get(ports + i));
+
+		var drainer = new Thread(() -> drain(header), "ReplayHarness");
+		drainer.setDaemon(true);
+		drainer.setPriority(Thread.MIN_PRIORITY);
+		drainer.start();
+
+		draining = true;
+	}
+
+	/**
+	 * Opens a new replay file, writes the given header, and drains every frame
+	 * into it until recording stops. Runs on its own low-priority thread.
+	 */
+	private void drain(ByteBuffer header) {
+		var directory = new File(Filesystem.getOperatingDirectory(), "replay");
+
+		try {
+			var file = LogFiles.next(directory, ".rpl", fileSize, Constants.ReplayConstants.maxTotalBytes);
+
+			try (var raf = new RandomAccessFile(file, "rw")) {
+				buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, fileSize);
+			}
+		} catch (IOException e) {
+			var error = String.format("[!] COULD NOT OPEN REPLAY FILE IN '%1$s', REPLAY HARNESS DISABLED:\n\t%2$s.",
+					directory, e.getLocalizedMessage());
+
+			System.out.println(error);
+			DriverStation.reportWarning(error, false);
+
+			mode = Mode.OFF;
+			return;
+		}
+
+		buffer.put(header.flip());
+		long lastForce = System.nanoTime();
+
+		while (true) {
+			var sequence = tail;
+
+			if (sequence == head) { // Nothing left to drain.
+				if (stopping)
+					break;
+
+				if (System.nanoTime() - lastForce > 1_000_000_000L) {
+					buffer.force();
+					lastForce = System.nanoTime();
+				}
+
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					break;
+				}
+
+				continue;
+			}
+
+			var frame = frames[(int) (sequence % capacity)];
+			if (buffer.remaining() < frame.position() + Integer.BYTES) {
+				stop("replay file is full");
+				break;
+			}
+
+			buffer.put(frame.array(), 0, frame.position());
+			tail = sequence + 1;
+		}
+
+		buffer.putInt(0); // Marks the end of the file.
+		buffer.force();
+	}
+
+	/**
+	 * Opens the given replay file, and injects every joystick's descriptor into
+	 * the simulated {@link DriverStation}.
+	 */
+	private void openReplay(File file) throws IOException {
+		try (var raf = new RandomAccessFile(file, "r")) {
+			buffer = raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+		}
+
+		var magic = new byte[ReplayHarness.magic.length()];
+		buffer.get(magic);
+
+		if (!ReplayHarness.magic.equals(new String(magic, StandardCharsets.US_ASCII)))
+			throw new IOException("Not a replay file: " + file);
+		if (buffer.getInt() != version)
+			throw new IOException("Unsupported replay file version: " + file);
+
+		var recordedPorts = buffer.getInt();
+		for (int port = 0; port < recordedPorts; port++) {
+			var name = getString();
+			var isXbox = buffer.get();
+			var type = buffer.get();
+			var axisCount = buffer.get();
+			var buttonCount = buffer.get();
+			var povCount = buffer.get();
+
+			DriverStationDataJNI.setJoystickDescriptor((byte) port, isXbox, type, name, axisCount,
+					new byte[axisCount], buttonCount, povCount);
+		}
+
+		DriverStationDataJNI.setDsAttached(true);
+		DriverStationDataJNI.notifyNewData();
+
+		System.out.println("Replaying: '" + file + "'...");
+	}
+
+	/**
+	 * Copies this tick's control word, joysticks and sensors into the next free
+	 * frame, to be drained into the replay file.
+	 */
+	private void recordFrame(SensorSnapshot snapshot) {
+		var sequence = head;
+		if (sequence - tail >= capacity) { // A missing frame would desync every replay after it.
+			stop("replay drainer fell behind");
+			return;
+		}
+
+		var frame = frames[(int) (sequence % capacity)];
+		frame.clear();
+
+		frame.putInt(1); // Frame marker, 0 marks the end of the file.
+		frame.putDouble(snapshot.getTimestamp());
+		frame.put((byte) ((ds.isEnabled() ? 1 : 0) | (ds.isAutonomous() ? 2 : 0) | (ds.isTest() ? 4 : 0)));
+
+		for (int port = 0; port < ports; port++) {
+			var axisCount = ds.getStickAxisCount(port);
+			frame.put((byte) axisCount);
+			for (int axis = 0; axis < axisCount; axis++)
+				frame.putFloat((float) ds.getStickAxis(port, axis));
+
+			frame.putInt(ds.getStickButtons(port));
+			frame.put((byte) ds.getStickButtonCount(port));
+
+			var povCount = ds.getStickPOVCount(port);
+			frame.put((byte) povCount);
+			for (int pov = 0; pov < povCount; pov++)
+				frame.putShort((short) ds.getStickPOV(port, pov));
+		}
+
+		for (int i = 0; i < sensors.length; i++)
+			frame.putDouble(snapshot.get(i));
+
+		head = sequence + 1;
+	}
+
+	/**
+	 * Gets the largest size a single frame can take, in bytes.
+	 */
+	private int getFrameSize() {
+		return 32 + ports * (8 + 12 * Float.BYTES + 12 * Short.BYTES) + sensors.length * Double.BYTES;
+	}
+
+	/**
+	 * Steps the simulated clock to the next recorded frame's timestamp, and
+	 * injects the frame into the simulated {@link DriverStation} and the given
+	 * {@link SensorSnapshot}.
+	 */
+	private void replayFrame(SensorSnapshot snapshot) {
+		if (buffer.remaining() < Integer.BYTES || buffer.getInt() != 1) {
+			stop("reached the end of the replay file");
+			return;
+		}
+
+		if (!paused) { // Only the replay moves the clock from now on.
+			SimulatorJNI.pauseTiming();
+			paused = true;
+		}
+
+		var timestamp = buffer.getDouble();
+		var step = (long) (timestamp * 1e6) - RobotController.getFPGATime();
+		if (step > 0)
+			SimulatorJNI.stepTiming(step);
+
+		var controlWord = buffer.get();
+		injectedControlWord = controlWord;
+
+		DriverStationDataJNI.setEnabled((controlWord & 1) != 0);
+		DriverStationDataJNI.setAutonomous((controlWord & 2) != 0);
+		DriverStationDataJNI.setTest((controlWord & 4) != 0);
+
+		for (int port = 0; port < ports; port++) {
+			var portAxes = axes[port][buffer.get()];
+			for (int axis = 0; axis < portAxes.length; axis++)
+				portAxes[axis] = buffer.getFloat();
+			DriverStationDataJNI.setJoystickAxes((byte) port, portAxes);
+			injectedAxes[port] = portAxes;
+
+			var buttons = buffer.getInt();
+			DriverStationDataJNI.setJoystickButtons((byte) port, buttons, buffer.get());
+			injectedButtons[port] = buttons;
+
+			var portPOVs = povs[port][buffer.get()];
+			for (int pov = 0; pov < portPOVs.length; pov++)
+				portPOVs[pov] = buffer.getShort();
+			DriverStationDataJNI.setJoystickPOVs((byte) port, portPOVs);
+			injectedPOVs[port] = portPOVs;
+		}
+
+		DriverStationDataJNI.notifyNewData();
+
+		for (int i = 0; i < sensors.length; i++)
+			sensors[i] = buffer.getDouble();
+		snapshot.load(timestamp, sensors);
+
+		awaitInjected();
+	}
+
+	/**
+	 * Waits for the {@link DriverStation}'s own thread to cache the frame just
+	 * injected, so the {@link Robot} never reads the previous one.
+	 */
+	private void awaitInjected() {
+		var deadline = System.nanoTime() + 1_000_000_000L;
+
+		while (!isInjected()) {
+			if (System.nanoTime() > deadline) {
+				stop("the DriverStation never picked up a replayed frame");
+				return;
+			}
+
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Checks whether or not the {@link DriverStation}'s caches match the last
+	 * injected frame.
+	 */
+	private boolean isInjected() {
+		if (ds.isEnabled() != ((injectedControlWord & 1) != 0) || ds.isAutonomous() != ((injectedControlWord & 2) != 0)
+				|| ds.isTest() != ((injectedControlWord & 4) != 0))
+			return false;
+
+		for (int port = 0; port < ports; port++) {
+			var portAxes = injectedAxes[port];
+			if (ds.getStickAxisCount(port) != portAxes.length)
+				return false;
+			for (int axis = 0; axis < portAxes.length; axis++)
+				if ((float) ds.getStickAxis(port, axis) != portAxes[axis])
+					return false;
+
+			if (ds.getStickButtons(port) != injectedButtons[port])
+				return false;
+
+			var portPOVs = injectedPOVs[port];
+			if (ds.getStickPOVCount(port) != portPOVs.length)
+				return false;
+			for (int pov = 0; pov < portPOVs.length; pov++)
+				if (ds.getStickPOV(port, pov) != portPOVs[pov])
+					return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Stops recording or replaying, disabling the simulated robot and resuming its
+	 * clock if replaying.
+	 *
+	 * @param reason Why the {@link ReplayHarness} stopped
+	 */
+	private void stop(String reason) {
+		System.out.println("Replay harness stopped at " + Timer.getFPGATimestamp() + ": " + reason + ".");
+
+		if (mode == Mode.RECORD) { // The drainer ends the file once it's caught up.
+			stopping = true;
+		} else if (mode == Mode.REPLAY) {
+			DriverStationDataJNI.setEnabled(false);
+			DriverStationDataJNI.notifyNewData();
+
+			if (paused) // Carry on in real time.
+				SimulatorJNI.resumeTiming();
+		}
+
+		mode = Mode.OFF;
+	}
+
+	/**
+	 * Writes a length-prefixed ASCII string into the given buffer.
+	 */
+	private static void putString(ByteBuffer buffer, byte[] bytes) {
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Reads a length-prefixed ASCII string from the replay file.
+	 */
+	private String getString() {
+		var bytes = new byte[buffer.getShort()];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,72 @@
+package org.usfirst.frc6647.telemetry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Desktop reader for files written by the {@link TelemetryRecorder}, which
+ * exports them to CSV. Run with './gradlew telemetryToCsv -Pfile=...'.
+ */
+public final class TelemetryReader {
+	private TelemetryReader() {
+	}
+
+	/**
+	 * Exports a telemetry file to CSV.
+	 *
+	 * @param args The telemetry file, and optionally the CSV file to write
+	 *             (defaults to the telemetry file, with a '.csv' extension)
+	 * @throws IOException If either file can't be read or written
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: TelemetryReader <telemetry.bin> [output.csv]");
+			return;
+		}
+
+		var input = ByteBuffer.wrap(Files.readAllBytes(Paths.get(args[0])));
+		var output = args.length > 1 ? args[1] : args[0].replaceAll("\\.bin$", "") + ".csv";
+
+		var magic = new byte[TelemetryRecorder.magic.length()];
+		input.get(magic);
+
+		if (!TelemetryRecorder.magic.equals(new String(magic, StandardCharsets.US_ASCII)))
+			throw new IOException("Not a telemetry file: " + args[0]);
+
+		var version = input.getInt();
+		if (version != TelemetryRecorder.version)
+			throw new IOException("Unsupported telemetry version: " + version);
+
+		var startTimestamp = input.getDouble();
+		var names = new String[input.getInt()];
+
+		for (int i = 0; i < names.length; i++) {
+			var name = new byte[input.getShort()];
+			input.get(name);
+			names[i] = new String(name, StandardCharsets.US_ASCII);
+		}
+
+		long count = 0;
+		try (var csv = new PrintStream(Files.newOutputStream(Paths.get(output)))) {
+			csv.println("timestamp,channel,value");
+
+			while (input.remaining() >= TelemetryRecorder.recordSize) {
+				var nanos = input.getLong();
+				var channel = input.getInt();
+				var value = input.getDouble();
+
+				if (channel == 0) // End of file.
+					break;
+
+				csv.printf("%.6f,%s,%s%n", startTimestamp + nanos / 1e9, names[channel - 1], value);
+				count++;
+			}
+		}
+
+		System.out.printf("Exported %d records to '%s'.%n", count, output);
+	}
+}
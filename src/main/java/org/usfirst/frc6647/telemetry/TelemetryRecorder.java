@@ -0,0 +1,231 @@
+package org.usfirst.frc6647.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.usfirst.frc6647.robot.Constants.TelemetryConstants;
+import org.usfirst.frc6647.telemetry.DashboardScheduler.Priority;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+
+/**
+ * Binary telemetry recorder. Any thread can {@link #record(Channel, double)}
+ * typed samples into a pre-allocated ring buffer, which is drained by a
+ * low-priority thread into a memory-mapped file under the operating directory
+ * ('/home/lvuser' on the roboRIO). Read it back with {@link TelemetryReader}.
+ *
+ * <p>
+ * File layout (big-endian): the {@link #magic} string, the format
+ * {@link #version}, the FPGA timestamp at which this recorder was created, the
+ * number of {@link Channel channels} followed by each of their names, and then
+ * every record: nanoseconds since the recorder was created (long), channel
+ * index + 1 (int) and value (double). A channel index of 0 marks the end of the
+ * file.
+ *
+ * <p>
+ * Whenever the ring buffer is drained, the number of samples dropped so far is
+ * written straight into the file as a {@link Channel#TELEMETRY_DROPPED} record,
+ * if it changed, so every file shows whether or not it's missing samples.
+ */
+public class TelemetryRecorder {
+	/** Magic string at the start of every telemetry file. */
+	static final String magic = "V6647TLM";
+	/** Version of the telemetry file format. */
+	static final int version = 1;
+	/** Size of each record inside the telemetry file, in bytes. */
+	static final int recordSize = Long.BYTES + Integer.BYTES + Double.BYTES;
+
+	/** Number of records the ring buffer can hold, must be a power of 2. */
+	private static final int capacity = 1 << 16;
+	/** Size of the memory-mapped file, in bytes. */
+	private static final int fileSize = 64 << 20;
+
+	/** Timestamp of each record, in nanoseconds since {@link #startNanos}. */
+	private final long[] times = new long[capacity];
+	/** Channel of each record. */
+	private final int[] channels = new int[capacity];
+	/** Value of each record. */
+	private final double[] values = new double[capacity];
+	/** Sequence number published for each slot, once its record is written. */
+	private final AtomicLongArray published = new AtomicLongArray(capacity);
+
+	/** Next sequence number to be claimed by a producer. */
+	private final AtomicLong head = new AtomicLong(0);
+	/** Next sequence number to be drained. */
+	private volatile long tail = 0;
+	/** Number of records dropped because the ring buffer or file was full. */
+	private final AtomicLong dropped = new AtomicLong(0);
+
+	/** {@link System#nanoTime()} at which this recorder was created. */
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * Creates a {@link TelemetryRecorder}. Samples can be recorded right away, but
+	 * nothing is written to disk until {@link #start()} is called.
+	 */
+	public TelemetryRecorder() {
+		for (int i = 0; i < capacity; i++)
+			published.set(i, -1);
+	}
+
+	/**
+	 * Records a sample. Never blocks nor allocates; if the ring buffer is full the
+	 * sample is dropped.
+	 *
+	 * @param channel The sample's {@link Channel}
+	 * @param value   The sample's value
+	 */
+	public void record(Channel channel, double value) {
+		long sequence;
+
+		do {
+			sequence = head.get();
+
+			if (sequence - tail >= capacity) {
+				dropped.incrementAndGet();
+				return;
+			}
+		} while (!head.compareAndSet(sequence, sequence + 1));
+
+		var index = (int) sequence & (capacity - 1);
+		times[index] = System.nanoTime() - startNanos;
+		channels[index] = channel.ordinal();
+		values[index] = value;
+
+		published.lazySet(index, sequence);
+	}
+
+	/**
+	 * Records a boolean sample, as either 1 or 0.
+	 *
+	 * @param channel The sample's {@link Channel}
+	 * @param value   The sample's value
+	 */
+	public void record(Channel channel, boolean value) {
+		record(channel, value ? 1 : 0);
+	}
+
+	/**
+	 * Gets the number of samples dropped so far.
+	 *
+	 * @return The number of dropped samples
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Publishes the number of samples dropped so far. Should be called once.
+	 *
+	 * @param dashboard The {@link DashboardScheduler} to publish it through
+	 */
+	public void outputToShuffleboard(DashboardScheduler dashboard) {
+		var layout = Shuffleboard.getTab("Telemetry").getLayout("recorder", BuiltInLayouts.kList);
+
+		dashboard.addNumber(layout, "dropped", this::getDropped, Priority.LOW, 2);
+	}
+
+	/**
+	 * Opens a new telemetry file, deleting the oldest ones past
+	 * {@link TelemetryConstants#maxTotalBytes}, and starts the thread draining the ring buffer
+	 * into it. If the file can't be opened, samples are simply discarded.
+	 */
+	public void start() {
+		var directory = new File(Filesystem.getOperatingDirectory(), "telemetry");
+
+		MappedByteBuffer buffer;
+		try {
+			var file = LogFiles.next(directory, ".bin", fileSize, TelemetryConstants.maxTotalBytes);
+
+			try (var raf = new RandomAccessFile(file, "rw")) {
+				buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, fileSize);
+			}
+		} catch (IOException e) {
+			var error = String.format("[!] COULD NOT OPEN TELEMETRY FILE IN '%1$s':\n\t%2$s.", directory,
+					e.getLocalizedMessage());
+
+			System.out.println(error);
+			DriverStation.reportWarning(error, false);
+
+			buffer = null;
+		}
+
+		if (buffer != null) {
+			buffer.put(magic.getBytes(StandardCharsets.US_ASCII));
+			buffer.putInt(version);
+			// FPGA timestamp at which this recorder was created.
+			buffer.putDouble(Timer.getFPGATimestamp() - (System.nanoTime() - startNanos) / 1e9);
+			buffer.putInt(Channel.values().length);
+
+			for (var channel : Channel.values()) {
+				var name = channel.name().getBytes(StandardCharsets.US_ASCII);
+				buffer.putShort((short) name.length);
+				buffer.put(name);
+			}
+		}
+
+		final var output = buffer;
+		var drainer = new Thread(() -> drain(output), "TelemetryRecorder");
+		drainer.setDaemon(true);
+		drainer.setPriority(Thread.MIN_PRIORITY);
+		drainer.start();
+	}
+
+	/**
+	 * Drains every published record into the given buffer, forever.
+	 *
+	 * @param output The memory-mapped file, or null to discard every record
+	 */
+	private void drain(MappedByteBuffer output) {
+		long lastForce = System.nanoTime();
+		long lastDropped = 0;
+
+		while (true) {
+			var sequence = tail;
+			var index = (int) sequence & (capacity - 1);
+
+			if (published.get(index) != sequence) { // Nothing left to drain.
+				var count = dropped.get();
+				if (output != null && count != lastDropped && output.remaining() > recordSize) {
+					output.putLong(System.nanoTime() - startNanos);
+					output.putInt(Channel.TELEMETRY_DROPPED.ordinal() + 1);
+					output.putDouble(count);
+					lastDropped = count;
+				}
+
+				if (output != null && System.nanoTime() - lastForce > 1_000_000_000L) {
+					output.force();
+					lastForce = System.nanoTime();
+				}
+
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				continue;
+			}
+
+			if (output != null && output.remaining() > recordSize) {
+				output.putLong(times[index]);
+				output.putInt(channels[index] + 1);
+				output.putDouble(values[index]);
+			} else {
+				dropped.incrementAndGet();
+			}
+
+			tail = sequence + 1;
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package org.usfirst.frc6647.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A pre-compiled trajectory, backed by a memory-mapped file written by the
+ * {@link TrajectoryCompiler}. Each state is stored as seven packed doubles:
+ * time, x, y, heading, velocity, acceleration and curvature.
+ *
+ * <p>
+ * {@link #sample(double)} writes the interpolated state into this
+ * {@link PackedTrajectory}'s own fields instead of allocating, so it must only
+ * be sampled from a single thread.
+ */
+public class PackedTrajectory {
+	/** Magic string at the start of every compiled trajectory. */
+	static final String magic = "V6647TRJ";
+	/** Version of the compiled trajectory format. */
+	static final int version = 1;
+	/** Size of the header, in bytes. */
+	private static final int headerSize = 8 + Integer.BYTES * 2;
+	/** Size of each state, in bytes. */
+	private static final int stateSize = 7 * Double.BYTES;
+
+	/** The compiled trajectory's states. */
+	private final ByteBuffer buffer;
+	/** Number of states in this {@link PackedTrajectory}. */
+	private final int count;
+
+	/** Last sampled pose, in meters and radians. */
+	private double x, y, heading;
+	/** Last sampled velocity, in meters per second. */
+	private double velocity;
+	/** Last sampled acceleration, in meters per second squared. */
+	private double acceleration;
+	/** Last sampled curvature, in radians per meter. */
+	private double curvature;
+	/** Index of the last sampled state, where the next search starts. */
+	private int last = 0;
+
+	/**
+	 * Creates a {@link PackedTrajectory} from a compiled trajectory's contents.
+	 *
+	 * @param buffer The compiled trajectory's contents
+	 * @throws IOException If the contents are not a compiled trajectory
+	 */
+	PackedTrajectory(ByteBuffer buffer) throws IOException {
+		var magic = new byte[PackedTrajectory.magic.length()];
+		for (int i = 0; i < magic.length; i++)
+			magic[i] = buffer.get(i);
+
+		if (!PackedTrajectory.magic.equals(new String(magic, StandardCharsets.US_ASCII)))
+			throw new IOException("Not a compiled trajectory");
+		if (buffer.getInt(8) != version)
+			throw new IOException("Unsupported compiled trajectory version: " + buffer.getInt(8));
+
+		this.buffer = buffer;
+		count = buffer.getInt(12);
+
+		if (count == 0 || buffer.limit() < headerSize + count * stateSize)
+			throw new IOException("Truncated compiled trajectory");
+
+		sample(0);
+	}
+
+	/**
+	 * Samples this {@link PackedTrajectory} at the given time, interpolating
+	 * between its two closest states.
+	 *
+	 * @param time The time since the start of this {@link PackedTrajectory}, in
+	 *             seconds
+	 */
+	public void sample(double time) {
+		if (time <= get(0, 0)) {
+			load(0);
+			return;
+		}
+		if (time >= getTotalTime()) {
+			load(count - 1);
+			return;
+		}
+
+		// Time only moves forward whilst following, so start searching from the last
+		// sampled state.
+		if (time < get(last, 0))
+			last = 0;
+		while (get(last + 1, 0) < time)
+			last++;
+
+		var t0 = get(last, 0);
+		var t = (time - t0) / (get(last + 1, 0) - t0);
+
+		x = lerp(get(last, 1), get(last + 1, 1), t);
+		y = lerp(get(last, 2), get(last + 1, 2), t);
+
+		var delta = Math.IEEEremainder(get(last + 1, 3) - get(last, 3), 2 * Math.PI);
+		heading = get(last, 3) + delta * t;
+
+		velocity = lerp(get(last, 4), get(last + 1, 4), t);
+		acceleration = get(last, 5);
+		curvature = lerp(get(last, 6), get(last + 1, 6), t);
+	}
+
+	/**
+	 * Gets this {@link PackedTrajectory}'s total time.
+	 *
+	 * @return The total time, in seconds
+	 */
+	public double getTotalTime() {
+		return get(count - 1, 0);
+	}
+
+	/**
+	 * Gets the last sampled X position.
+	 *
+	 * @return The X position, in meters
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the last sampled Y position.
+	 *
+	 * @return The Y position, in meters
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the last sampled heading.
+	 *
+	 * @return The heading, in radians
+	 */
+	public double getHeading() {
+		return heading;
+	}
+
+	/**
+	 * Gets the last sampled velocity.
+	 *
+	 * @return The velocity, in meters per second
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * Gets the last sampled acceleration.
+	 *
+	 * @return The acceleration, in meters per second squared
+	 */
+	public double getAcceleration() {
+		return acceleration;
+	}
+
+	/**
+	 * Gets the last sampled curvature.
+	 *
+	 * @return The curvature, in radians per meter
+	 */
+	public double getCurvature() {
+		return curvature;
+	}
+
+	/**
+	 * Loads the state at the given index as the last sample.
+	 */
+	private void load(int index) {
+		last = Math.max(0, Math.min(index, count - 2));
+
+		x = get(index, 1);
+		y = get(index, 2);
+		heading = get(index, 3);
+		velocity = get(index, 4);
+		acceleration = get(index, 5);
+		curvature = get(index, 6);
+	}
+
+	/**
+	 * Reads a single field of the state at the given index.
+	 */
+	private double get(int index, int field) {
+		return buffer.getDouble(headerSize + index * stateSize + field * Double.BYTES);
+	}
+
+	/**
+	 * Linearly interpolates between two values.
+	 */
+	private static double lerp(double a, double b, double t) {
+		return a + (b - a) * t;
+	}
+}
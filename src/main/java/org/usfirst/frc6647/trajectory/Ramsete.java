@@ -0,0 +1,90 @@
+package org.usfirst.frc6647.trajectory;
+
+/**
+ * Primitive Ramsete controller for a differential drive, which follows a
+ * {@link PackedTrajectory} without allocating. Equivalent to WPILib's
+ * RamseteController followed by DifferentialDriveKinematics, but writes its
+ * wheel speeds into its own fields, so it must only be used from a single
+ * thread.
+ */
+public class Ramsete {
+	/** Ramsete's convergence gain, larger is more aggressive. */
+	private final double b;
+	/** Ramsete's damping ratio. */
+	private final double zeta;
+	/** The drive's track width, in meters. */
+	private final double trackWidth;
+
+	/** Last calculated wheel speeds, in meters per second. */
+	private double left, right;
+
+	/**
+	 * Creates a {@link Ramsete} controller.
+	 *
+	 * @param b          Convergence gain, larger is more aggressive
+	 * @param zeta       Damping ratio
+	 * @param trackWidth The drive's track width, in meters
+	 */
+	public Ramsete(double b, double zeta, double trackWidth) {
+		this.b = b;
+		this.zeta = zeta;
+		this.trackWidth = trackWidth;
+	}
+
+	/**
+	 * Calculates the wheel speeds to follow the given {@link PackedTrajectory}'s
+	 * last sample from the given pose.
+	 *
+	 * @param x          The current X position, in meters
+	 * @param y          The current Y position, in meters
+	 * @param heading    The current heading, in radians
+	 * @param trajectory The {@link PackedTrajectory}, already sampled
+	 */
+	public void calculate(double x, double y, double heading, PackedTrajectory trajectory) {
+		var cos = Math.cos(heading);
+		var sin = Math.sin(heading);
+
+		// Error in the robot's frame of reference.
+		var dx = trajectory.getX() - x;
+		var dy = trajectory.getY() - y;
+		var errorX = cos * dx + sin * dy;
+		var errorY = -sin * dx + cos * dy;
+		var errorHeading = Math.IEEEremainder(trajectory.getHeading() - heading, 2 * Math.PI);
+
+		var velocityRef = trajectory.getVelocity();
+		var omegaRef = velocityRef * trajectory.getCurvature();
+
+		var k = 2 * zeta * Math.sqrt(omegaRef * omegaRef + b * velocityRef * velocityRef);
+
+		var velocity = velocityRef * Math.cos(errorHeading) + k * errorX;
+		var omega = omegaRef + k * errorHeading + b * velocityRef * sinc(errorHeading) * errorY;
+
+		left = velocity - omega * trackWidth / 2;
+		right = velocity + omega * trackWidth / 2;
+	}
+
+	/**
+	 * Gets the last calculated left wheel speed.
+	 *
+	 * @return The left wheel speed, in meters per second
+	 */
+	public double getLeft() {
+		return left;
+	}
+
+	/**
+	 * Gets the last calculated right wheel speed.
+	 *
+	 * @return The right wheel speed, in meters per second
+	 */
+	public double getRight() {
+		return right;
+	}
+
+	/**
+	 * sin(x) / x, which is 1 at x = 0.
+	 */
+	private static double sinc(double x) {
+		return Math.abs(x) < 1e-9 ? 1.0 - x * x / 6.0 : Math.sin(x) / x;
+	}
+}
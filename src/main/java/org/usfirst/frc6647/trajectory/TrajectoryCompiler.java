@@ -0,0 +1,121 @@
+package org.usfirst.frc6647.trajectory;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.usfirst.frc6647.robot.Constants.AutoConstants;
+import org.usfirst.frc6647.robot.Constants.DriveConstants;
+
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.geometry.Translation2d;
+import edu.wpi.first.wpilibj.kinematics.DifferentialDriveKinematics;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryGenerator;
+import edu.wpi.first.wpilibj.trajectory.constraint.DifferentialDriveVoltageConstraint;
+
+/**
+ * Desktop compiler for every path definition in 'src/main/paths', which
+ * generates each {@link Trajectory} ahead of time and writes it as a packed
+ * binary file to be read by a {@link TrajectoryStore}. Run by './gradlew
+ * compileTrajectories', which every build depends on.
+ *
+ * <p>
+ * Each path definition holds a 'start' and 'end' pose (in meters and degrees),
+ * interior 'waypoints' (in meters), and whether or not it is 'reversed'.
+ * Constraints are taken from
+ * {@link org.usfirst.frc6647.robot.Constants.AutoConstants AutoConstants} and
+ * {@link org.usfirst.frc6647.robot.Constants.DriveConstants DriveConstants}.
+ */
+public final class TrajectoryCompiler {
+	private TrajectoryCompiler() {
+	}
+
+	/**
+	 * Compiles every path definition in the given directory.
+	 *
+	 * @param args The directory holding every path definition, and the directory
+	 *             to write every compiled {@link Trajectory} to
+	 * @throws IOException If any file can't be read or written
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: TrajectoryCompiler <paths directory> <output directory>");
+			return;
+		}
+
+		var kinematics = new DifferentialDriveKinematics(DriveConstants.trackWidthMeters);
+		var feedforward = new SimpleMotorFeedforward(DriveConstants.ksVolts, DriveConstants.kvVoltSecondsPerMeter,
+				DriveConstants.kaVoltSecondsSquaredPerMeter);
+
+		var output = new File(args[1]);
+		output.mkdirs();
+
+		var paths = new File(args[0]).listFiles((dir, name) -> name.endsWith(".json"));
+		if (paths == null)
+			throw new IOException("Not a directory: " + args[0]);
+
+		var mapper = new ObjectMapper();
+		for (var path : paths) {
+			var json = mapper.readTree(path);
+
+			var config = new TrajectoryConfig(AutoConstants.kMaxSpeedMetersPerSecond,
+					AutoConstants.kMaxAccelerationMetersPerSecondSquared).setKinematics(kinematics)
+							.addConstraint(new DifferentialDriveVoltageConstraint(feedforward, kinematics,
+									AutoConstants.kMaxVoltage))
+							.setReversed(json.path("reversed").asBoolean(false));
+
+			var waypoints = new ArrayList<Translation2d>();
+			for (var waypoint : json.path("waypoints"))
+				waypoints.add(new Translation2d(waypoint.get("x").asDouble(), waypoint.get("y").asDouble()));
+
+			var trajectory = TrajectoryGenerator.generateTrajectory(toPose(json.get("start")), waypoints,
+					toPose(json.get("end")), config);
+
+			var name = path.getName().replaceAll("\\.json$", "");
+			write(trajectory, new File(output, name + TrajectoryStore.extension));
+
+			System.out.printf("Compiled '%s': %d states, %.2fs.%n", name, trajectory.getStates().size(),
+					trajectory.getTotalTimeSeconds());
+		}
+	}
+
+	/**
+	 * Writes the given {@link Trajectory} in the format read by a
+	 * {@link PackedTrajectory}.
+	 */
+	private static void write(Trajectory trajectory, File file) throws IOException {
+		try (var out = new DataOutputStream(Files.newOutputStream(file.toPath()))) {
+			out.write(PackedTrajectory.magic.getBytes(StandardCharsets.US_ASCII));
+			out.writeInt(PackedTrajectory.version);
+			out.writeInt(trajectory.getStates().size());
+
+			for (var state : trajectory.getStates()) {
+				out.writeDouble(state.timeSeconds);
+				out.writeDouble(state.poseMeters.getTranslation().getX());
+				out.writeDouble(state.poseMeters.getTranslation().getY());
+				out.writeDouble(state.poseMeters.getRotation().getRadians());
+				out.writeDouble(state.velocityMetersPerSecond);
+				out.writeDouble(state.accelerationMetersPerSecondSq);
+				out.writeDouble(state.curvatureRadPerMeter);
+			}
+		}
+	}
+
+	/**
+	 * Reads a {@link Pose2d} from a path definition.
+	 */
+	private static Pose2d toPose(JsonNode json) {
+		return new Pose2d(json.get("x").asDouble(), json.get("y").asDouble(),
+				Rotation2d.fromDegrees(json.path("heading").asDouble(0)));
+	}
+}
@@ -0,0 +1,54 @@
+package org.usfirst.frc6647.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Store for every {@link PackedTrajectory} compiled by the
+ * {@link TrajectoryCompiler} and deployed into 'deploy/paths'. Each file is only
+ * memory-mapped the first time it is requested, and kept mapped afterwards.
+ */
+public final class TrajectoryStore {
+	/** Extension of every compiled trajectory. */
+	static final String extension = ".traj";
+
+	/** Every {@link PackedTrajectory} mapped so far, by name. */
+	private static final Map<String, PackedTrajectory> trajectories = new HashMap<>();
+
+	private TrajectoryStore() {
+	}
+
+	/**
+	 * Gets the {@link PackedTrajectory} compiled from the path definition with the
+	 * given name, mapping it if it hasn't been requested before.
+	 *
+	 * @param name The path definition's name, without its extension
+	 * @return The {@link PackedTrajectory}, or null if it couldn't be mapped
+	 */
+	public static synchronized PackedTrajectory get(String name) {
+		var trajectory = trajectories.get(name);
+		if (trajectory != null)
+			return trajectory;
+
+		var file = new File(Filesystem.getDeployDirectory(), "paths/" + name + extension);
+		try (var raf = new RandomAccessFile(file, "r")) {
+			trajectory = new PackedTrajectory(raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length()));
+			trajectories.put(name, trajectory);
+		} catch (IOException e) {
+			var error = String.format("[!] COULD NOT LOAD TRAJECTORY '%1$s':\n\t%2$s.", name,
+					e.getLocalizedMessage());
+
+			System.out.println(error);
+			DriverStation.reportWarning(error, false);
+		}
+
+		return trajectory;
+	}
+}
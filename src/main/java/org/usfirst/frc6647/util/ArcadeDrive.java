@@ -0,0 +1,101 @@
+package org.usfirst.frc6647.util;
+
+import java.util.function.DoubleSupplier;
+
+import org.usfirst.frc6647.can.OutputStage;
+import org.usfirst.frc6647.subsystems.Chassis;
+
+/**
+ * Body of the {@link Chassis} drive loop. Mixes each input into an arcade
+ * demand for both sides' {@link OutputStage.Output outputs}, flushes them, and
+ * measures how long it's been since the Driver Station packet it came from.
+ * Kept free of any hardware so it can be benchmarked on a desktop JVM.
+ *
+ * <p>
+ * Every method must be called from the same thread, or whilst holding the same
+ * lock, as its {@link OutputStage}.
+ */
+public class ArcadeDrive {
+	/** {@link OutputStage} holding both sides' outputs. */
+	private final OutputStage outputs;
+	/** {@link OutputStage.Output} for each side. */
+	private final OutputStage.Output left, right;
+	/** Mode of every arcade demand, as defined by the {@link Chassis}. */
+	private final int mode;
+	/** Clock used to measure each packet's latency, in seconds. */
+	private final DoubleSupplier clock;
+
+	/** Time from each Driver Station packet to its first write, in microseconds. */
+	private final Histogram inputLatency = new Histogram(100, 250);
+	/** Timestamp of the last Driver Station packet driven from. */
+	private double drivenPacketAt = 0;
+
+	/**
+	 * Creates an {@link ArcadeDrive}.
+	 *
+	 * @param outputs The {@link OutputStage} holding both sides' outputs
+	 * @param left    The left side's {@link OutputStage.Output}
+	 * @param right   The right side's {@link OutputStage.Output}
+	 * @param mode    The mode of every arcade demand, as defined by the caller
+	 * @param clock   The clock used to measure each packet's latency, in seconds,
+	 *                such as the FPGA's
+	 */
+	public ArcadeDrive(OutputStage outputs, OutputStage.Output left, OutputStage.Output right, int mode,
+			DoubleSupplier clock) {
+		this.outputs = outputs;
+		this.left = left;
+		this.right = right;
+		this.mode = mode;
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets both sides' arcade demand, only written once the {@link OutputStage} is
+	 * flushed.
+	 *
+	 * @param forward  The forward speed
+	 * @param rotation The rotation speed
+	 * @param inverted Whether or not the robot's 'front' is at the back
+	 */
+	public void set(double forward, double rotation, boolean inverted) {
+		left.set(mode, forward * (inverted ? -1 : 1), -rotation);
+		right.set(mode, forward * (inverted ? -1 : 1), rotation);
+	}
+
+	/**
+	 * Sets both sides' arcade demand and flushes them, then records the latency
+	 * from the given packet if it's the first write since it arrived.
+	 *
+	 * @param timestamp The current iteration's timestamp, in seconds
+	 * @param forward   The forward speed
+	 * @param rotation  The rotation speed
+	 * @param inverted  Whether or not the robot's 'front' is at the back
+	 * @param packetAt  The latest Driver Station packet's timestamp, in seconds, or
+	 *                  0 if none arrived yet
+	 * @return The latency from the packet, in seconds, or NaN if it was already
+	 *         driven from
+	 */
+	public double drive(double timestamp, double forward, double rotation, boolean inverted, double packetAt) {
+		set(forward, rotation, inverted);
+		outputs.flush(timestamp);
+
+		if (packetAt == drivenPacketAt || packetAt <= 0) // Only the first write from each packet.
+			return Double.NaN;
+
+		drivenPacketAt = packetAt;
+
+		var latency = clock.getAsDouble() - packetAt;
+		inputLatency.record((long) (latency * 1e6));
+
+		return latency;
+	}
+
+	/**
+	 * Gets the input latency {@link Histogram}.
+	 *
+	 * @return The input latency {@link Histogram}, in microseconds
+	 */
+	public Histogram getInputLatency() {
+		return inputLatency;
+	}
+}
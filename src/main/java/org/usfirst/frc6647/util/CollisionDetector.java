@@ -0,0 +1,84 @@
+package org.usfirst.frc6647.util;
+
+import org.usfirst.frc6647.subsystems.Gyro;
+
+/**
+ * Jerk-based collision detection, fed by the {@link Gyro}'s navX samples at
+ * their native rate. Jerk is measured over a short window of samples and
+ * divided by the time they span, so it doesn't depend on how often samples
+ * arrive. Kept free of any hardware so it can be benchmarked on a desktop JVM.
+ *
+ * <p>
+ * Every method must be called from the same thread.
+ */
+public class CollisionDetector {
+	/** Jerk threshold above which a collision is detected, in G per second. */
+	private final double threshold;
+
+	/** Timestamp of each sample in the window, in seconds. */
+	private final double[] timestamps;
+	/** World linear X and Y acceleration of each sample in the window, in G. */
+	private final double[] accelX, accelY;
+	/** Index of the next sample to write. */
+	private int head = 0;
+	/** Number of samples in the window. */
+	private int size = 0;
+
+	/** Last calculated jerk magnitude, in G per second. */
+	private double jerk = 0;
+
+	/**
+	 * Creates a {@link CollisionDetector} with the given threshold.
+	 *
+	 * @param threshold The jerk threshold above which a collision is detected, in
+	 *                  G per second
+	 * @param window    The number of samples to measure jerk over
+	 */
+	public CollisionDetector(double threshold, int window) {
+		this.threshold = threshold;
+
+		timestamps = new double[window];
+		accelX = new double[window];
+		accelY = new double[window];
+	}
+
+	/**
+	 * Feeds a new world linear acceleration sample, and checks whether or not the
+	 * jerk across the window exceeds the {@link #threshold}.
+	 *
+	 * @param timestamp The sample's timestamp, in seconds
+	 * @param x         The current world linear X acceleration, in G
+	 * @param y         The current world linear Y acceleration, in G
+	 * @return Whether or not a collision was detected
+	 */
+	public boolean update(double timestamp, double x, double y) {
+		// Oldest sample in the window, about to be overwritten once it's full.
+		var oldest = size == timestamps.length ? head : 0;
+		var dt = timestamp - timestamps[oldest];
+
+		if (size > 0 && dt > 0) {
+			var jerkX = (x - accelX[oldest]) / dt;
+			var jerkY = (y - accelY[oldest]) / dt;
+			jerk = Math.hypot(jerkX, jerkY);
+		}
+
+		timestamps[head] = timestamp;
+		accelX[head] = x;
+		accelY[head] = y;
+
+		head = (head + 1) % timestamps.length;
+		if (size < timestamps.length)
+			size++;
+
+		return jerk > threshold;
+	}
+
+	/**
+	 * Gets the last calculated jerk magnitude.
+	 *
+	 * @return The jerk magnitude, in G per second
+	 */
+	public double getJerk() {
+		return jerk;
+	}
+}
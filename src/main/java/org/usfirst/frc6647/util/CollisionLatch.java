@@ -0,0 +1,79 @@
+package org.usfirst.frc6647.util;
+
+import org.usfirst.frc6647.subsystems.Gyro;
+
+/**
+ * Body of the {@link Gyro}'s collision detection. Feeds every navX sample to a
+ * {@link CollisionDetector}, and latches each detected collision for a while
+ * through a {@link SharedState}, so any thread can check for one. Kept free of
+ * any hardware so it can be benchmarked on a desktop JVM.
+ *
+ * <p>
+ * {@link #update(double, double, double, double)} must always be called from
+ * the same thread, {@link #isLatched(double)} can be called from any thread.
+ */
+public class CollisionLatch {
+	/** Detects collisions, only used by {@link #update(double, double, double, double)}. */
+	private final CollisionDetector detector;
+	/** How long each detected collision stays latched, in seconds. */
+	private final double latchSeconds;
+
+	/** Latched state shared with every reader, only written by the updating thread. */
+	private final SharedState flags = new SharedState(1);
+	/** {@link #flags} slot, the timestamp of the last detected collision. */
+	private static final int lastCollisionSlot = 0;
+
+	/**
+	 * Creates a {@link CollisionLatch}.
+	 *
+	 * @param threshold    The jerk threshold above which a collision is detected,
+	 *                     in G per second
+	 * @param window       The number of samples to measure jerk over
+	 * @param latchSeconds How long each detected collision stays latched, in
+	 *                     seconds
+	 */
+	public CollisionLatch(double threshold, int window, double latchSeconds) {
+		detector = new CollisionDetector(threshold, window);
+		this.latchSeconds = latchSeconds;
+
+		flags.setDouble(lastCollisionSlot, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Feeds a new world linear acceleration sample, and latches a collision if one
+	 * is detected.
+	 *
+	 * @param sampleTimestamp The sample's timestamp, in seconds
+	 * @param x               The current world linear X acceleration, in G
+	 * @param y               The current world linear Y acceleration, in G
+	 * @param now             The current timestamp, in seconds, on the same clock
+	 *                        as {@link #isLatched(double)}
+	 * @return Whether or not a collision was detected
+	 */
+	public boolean update(double sampleTimestamp, double x, double y, double now) {
+		if (!detector.update(sampleTimestamp, x, y))
+			return false;
+
+		flags.setDouble(lastCollisionSlot, now);
+		return true;
+	}
+
+	/**
+	 * Checks whether or not a collision was detected within the latch period.
+	 *
+	 * @param now The current timestamp, in seconds
+	 * @return Whether or not a collision is latched
+	 */
+	public boolean isLatched(double now) {
+		return now - flags.getDouble(lastCollisionSlot) < latchSeconds;
+	}
+
+	/**
+	 * Gets the last calculated jerk magnitude. Only meant for the updating thread.
+	 *
+	 * @return The jerk magnitude, in G per second
+	 */
+	public double getJerk() {
+		return detector.getJerk();
+	}
+}
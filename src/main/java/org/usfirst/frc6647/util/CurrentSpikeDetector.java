@@ -0,0 +1,105 @@
+package org.usfirst.frc6647.util;
+
+/**
+ * Detects current spikes on a motor, such as a ball being pinched by a roller.
+ * Keeps a slowly-moving baseline of the motor's current whilst it isn't
+ * spiking, and flags a spike once the current stays above that baseline by a
+ * threshold for a number of consecutive updates.
+ *
+ * <p>
+ * Every method must be called from the same thread.
+ */
+public class CurrentSpikeDetector {
+	/** How far above the baseline a spike must be, in amps. */
+	private final double threshold;
+	/** Consecutive updates above the threshold needed to flag a spike. */
+	private final int minUpdates;
+	/** Smoothing factor for the baseline, between 0 and 1. */
+	private final double smoothing;
+
+	/** Current whilst not spiking, in amps. */
+	private double baseline = 0;
+	/** Consecutive updates above the threshold. */
+	private int above = 0;
+	/** Whether or not a spike is in progress. */
+	private boolean spiking = false;
+	/** Whether or not the last update started or ended a spike. */
+	private boolean started = false, ended = false;
+
+	/**
+	 * Creates a {@link CurrentSpikeDetector}.
+	 *
+	 * @param threshold  How far above the baseline a spike must be, in amps
+	 * @param minUpdates Consecutive updates above the threshold needed to flag a
+	 *                   spike
+	 * @param smoothing  Smoothing factor for the baseline, between 0 and 1
+	 */
+	public CurrentSpikeDetector(double threshold, int minUpdates, double smoothing) {
+		this.threshold = threshold;
+		this.minUpdates = minUpdates;
+		this.smoothing = smoothing;
+	}
+
+	/**
+	 * Resets the baseline to the given current, ending any spike in progress
+	 * without flagging it. Used to ignore a motor's inrush current.
+	 *
+	 * @param current The motor's current, in amps
+	 */
+	public void reset(double current) {
+		baseline = current;
+		above = 0;
+		spiking = started = ended = false;
+	}
+
+	/**
+	 * Updates this {@link CurrentSpikeDetector} with a new reading.
+	 *
+	 * @param current The motor's current, in amps
+	 */
+	public void update(double current) {
+		started = ended = false;
+		var excess = current - baseline;
+
+		if (!spiking) {
+			above = excess > threshold ? above + 1 : 0;
+
+			if (above >= minUpdates) {
+				spiking = started = true;
+			} else if (above == 0) {
+				baseline += smoothing * excess;
+			}
+		} else if (excess < threshold / 2) { // Some hysteresis, so a noisy spike isn't counted twice.
+			spiking = false;
+			ended = true;
+			above = 0;
+		}
+	}
+
+	/**
+	 * Checks whether or not the last update started a spike.
+	 *
+	 * @return Whether or not a spike just started
+	 */
+	public boolean started() {
+		return started;
+	}
+
+	/**
+	 * Checks whether or not the last update ended a spike.
+	 *
+	 * @return Whether or not a spike just ended
+	 */
+	public boolean ended() {
+		return ended;
+	}
+
+	/**
+	 * Checks whether or not a spike is in progress.
+	 *
+	 * @return Whether or not the motor is spiking
+	 */
+	public boolean isSpiking() {
+		return spiking;
+	}
+}
@@ -0,0 +1,127 @@
+package org.usfirst.frc6647.util;
+
+import org.usfirst.frc6647.telemetry.Channel;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+
+/**
+ * Schedules when to release each ball into the Shooter during a volley. A ball
+ * is only released once the Shooter predicts it'll be ready to fire by the time
+ * the ball gets there, and the last ball has had time to clear the flywheel.
+ * After each release, the flywheel's RPM dip and recovery are tracked.
+ *
+ * <p>
+ * Logs every ball's RPM at release, RPM dip and recovery time, and every
+ * volley's balls per second, through a {@link TelemetryRecorder}. Every method
+ * must be called from the same thread.
+ */
+public class FeedScheduler {
+	/** Minimum time between releases, in seconds. */
+	private final double minSpacing;
+	/** Acceptable velocity error, in RPM, for the flywheel to count as recovered. */
+	private final double tolerance;
+	/** {@link TelemetryRecorder} to log every release and volley to. */
+	private final TelemetryRecorder recorder;
+
+	/** Timestamp of the last release, or -1 if there hasn't been any this volley. */
+	private double lastRelease = -1;
+	/** Timestamp of the first release this volley. */
+	private double firstRelease;
+	/** Timestamp at which the last released ball left. */
+	private double lastExit;
+	/** Number of balls shot this volley. */
+	private int shot = 0;
+
+	/** Whether or not the flywheel is recovering from the last release. */
+	private boolean recovering = false;
+	/** Lowest RPM since the last release. */
+	private double lowest;
+	/** RPM at the last release. */
+	private double releaseRPM;
+
+	/**
+	 * Creates a {@link FeedScheduler}.
+	 *
+	 * @param minSpacing Minimum time between releases, in seconds
+	 * @param tolerance  Acceptable velocity error, in RPM
+	 * @param recorder   {@link TelemetryRecorder} to log every release and volley
+	 *                   to
+	 */
+	public FeedScheduler(double minSpacing, double tolerance, TelemetryRecorder recorder) {
+		this.minSpacing = minSpacing;
+		this.tolerance = tolerance;
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Tracks the flywheel's RPM dip and recovery, must be called every iteration
+	 * during a volley.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 * @param rpm       The flywheel's current RPM
+	 * @param setpoint  The flywheel's target RPM
+	 */
+	public void update(double timestamp, double rpm, double setpoint) {
+		if (!recovering)
+			return;
+
+		lowest = Math.min(lowest, rpm);
+
+		if (lowest < setpoint - tolerance && Math.abs(rpm - setpoint) <= tolerance) { // Dipped, and back.
+			recovering = false;
+
+			recorder.record(Channel.FEED_RPM_DIP, releaseRPM - lowest);
+			recorder.record(Channel.FEED_RECOVERY_SECONDS, timestamp - lastRelease);
+		}
+	}
+
+	/**
+	 * Checks whether or not to release the next ball now.
+	 *
+	 * @param timestamp   The current timestamp, in seconds
+	 * @param readyToFire Whether or not the Shooter predicts it'll be ready to fire
+	 * @return Whether or not to release the next ball
+	 */
+	public boolean shouldRelease(double timestamp, boolean readyToFire) {
+		return readyToFire && (lastRelease < 0 || timestamp - lastRelease >= minSpacing);
+	}
+
+	/**
+	 * Records a ball's release.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 * @param rpm       The flywheel's current RPM
+	 */
+	public void released(double timestamp, double rpm) {
+		if (lastRelease < 0)
+			firstRelease = timestamp;
+		lastRelease = timestamp;
+
+		recovering = true;
+		lowest = releaseRPM = rpm;
+
+		recorder.record(Channel.FEED_RELEASE_RPM, rpm);
+	}
+
+	/**
+	 * Records a released ball leaving into the Shooter.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void exited(double timestamp) {
+		lastExit = timestamp;
+		shot++;
+	}
+
+	/**
+	 * Ends the current volley, logging its balls per second if more than a single
+	 * ball was shot.
+	 */
+	public void endVolley() {
+		if (shot > 1 && lastExit > firstRelease)
+			recorder.record(Channel.VOLLEY_BALLS_PER_SECOND, shot / (lastExit - firstRelease));
+
+		lastRelease = -1;
+		shot = 0;
+		recovering = false;
+	}
+}
@@ -0,0 +1,196 @@
+package org.usfirst.frc6647.util;
+
+/**
+ * Model-based flywheel velocity controller, built on a first-order model
+ * characterized by its static, velocity and acceleration feed-forward gains.
+ * Each update runs a steady-state Kalman filter to estimate the flywheel's
+ * velocity from a noisy measurement, and an LQR controller plus feed-forward to
+ * calculate the voltage to apply.
+ *
+ * <p>
+ * The measurement can be delayed by a whole number of updates, such as the
+ * NEO's filtered velocity: each measurement is compared against the estimate
+ * from that many updates ago, and the correction is propagated forward through
+ * the model to every estimate since, so the same error is never corrected
+ * twice. The steady-state Kalman gain itself ignores the delay.
+ *
+ * <p>
+ * The model is scalar, so both the Kalman and LQR gains are solved once at
+ * construction by iterating their discrete Riccati equations, and every update
+ * is only a handful of primitive operations. Every method must be called from
+ * the same thread.
+ */
+public class FlywheelController {
+	/** Number of Riccati iterations, far more than needed to converge. */
+	private static final int riccatiIterations = 1000;
+
+	/** Static gain, in volts. */
+	private final double kS;
+	/** Velocity gain, in volts per RPM. */
+	private final double kV;
+	/** Model's time constant, in seconds. */
+	private final double timeConstant;
+	/** Maximum voltage to apply. */
+	private final double maxVoltage;
+
+	/** Discrete model, velocity(k + 1) = a * velocity(k) + b * voltage(k). */
+	private final double a, b;
+	/** Steady-state Kalman gain. */
+	private final double kalmanGain;
+	/** LQR gain, in volts per RPM. */
+	private final double lqrGain;
+
+	/** Past estimates, as a ring indexed by update, for the delayed measurement. */
+	private final double[] history;
+	/** Powers of {@link #a}, to propagate a correction forward by each age. */
+	private final double[] decay;
+	/** Index of the oldest {@link #history} entry, the next one to overwrite. */
+	private int oldest = 0;
+
+	/** Estimated velocity, in RPM. */
+	private double estimate = 0;
+	/** Last applied voltage. */
+	private double voltage = 0;
+
+	/**
+	 * Creates a {@link FlywheelController}.
+	 *
+	 * @param kS                Static gain, in volts
+	 * @param kV                Velocity gain, in volts per RPM
+	 * @param kA                Acceleration gain, in volts per RPM per second
+	 * @param modelStdDev       How much to trust the model, in RPM
+	 * @param measurementStdDev How much to trust the encoder, in RPM
+	 * @param errorTolerance    Largest acceptable velocity error, in RPM
+	 * @param maxVoltage        Maximum voltage to apply
+	 * @param period            Time between updates, in seconds
+	 * @param measurementDelay  How old each measurement is, in seconds
+	 */
+	public FlywheelController(double kS, double kV, double kA, double modelStdDev, double measurementStdDev,
+			double errorTolerance, double maxVoltage, double period, double measurementDelay) {
+		this.kS = kS;
+		this.kV = kV;
+		this.maxVoltage = maxVoltage;
+
+		timeConstant = kA / kV;
+		a = Math.exp(-period / timeConstant);
+		b = (1 - a) / kV;
+
+		// Kalman filter, from the a priori error covariance's Riccati equation.
+		var q = modelStdDev * modelStdDev;
+		var r = measurementStdDev * measurementStdDev;
+		var p = q;
+		for (int i = 0; i < riccatiIterations; i++)
+			p = a * a * (p - p * p / (p + r)) + q;
+		kalmanGain = p / (p + r);
+
+		// LQR, weighing the tolerated error against the available voltage (Bryson's
+		// rule).
+		var qLqr = 1 / (errorTolerance * errorTolerance);
+		var rLqr = 1 / (maxVoltage * maxVoltage);
+		var s = qLqr;
+		for (int i = 0; i < riccatiIterations; i++)
+			s = a * a * s - (a * b * s) * (a * b * s) / (rLqr + b * b * s) + qLqr;
+		lqrGain = a * b * s / (rLqr + b * b * s);
+
+		history = new double[(int) Math.round(measurementDelay / period)];
+		decay = new double[history.length + 1];
+		for (int i = 0; i < decay.length; i++)
+			decay[i] = Math.pow(a, i);
+	}
+
+	/**
+	 * Resets the velocity estimate.
+	 *
+	 * @param velocity The flywheel's current velocity, in RPM
+	 */
+	public void reset(double velocity) {
+		estimate = velocity;
+		voltage = 0;
+
+		for (int i = 0; i < history.length; i++)
+			history[i] = velocity;
+	}
+
+	/**
+	 * Updates the velocity estimate with a new measurement, and calculates the
+	 * voltage to apply to reach the given reference. A reference of 0 lets the
+	 * flywheel coast.
+	 *
+	 * @param measurement The flywheel's measured velocity, in RPM
+	 * @param reference   The velocity to reach, in RPM
+	 * @return The voltage to apply
+	 */
+	public double update(double measurement, double reference) {
+		// Predict with the last applied voltage, then correct with the measurement.
+		var predicted = a * estimate + b * (voltage - Math.signum(estimate) * kS);
+
+		if (history.length == 0) {
+			estimate = predicted + kalmanGain * (measurement - predicted);
+		} else {
+			var delay = history.length;
+
+			history[oldest] = estimate; // The last estimate becomes the newest past one.
+			oldest = (oldest + 1) % delay;
+
+			// The measurement is as old as the oldest past estimate. Every estimate since
+			// then drifted from that same error, decaying through the model.
+			var correction = kalmanGain * (measurement - history[oldest]);
+			for (int age = delay; age >= 1; age--)
+				history[(oldest + delay - age) % delay] += decay[delay - age] * correction;
+
+			estimate = predicted + decay[delay] * correction;
+		}
+
+		if (reference == 0) {
+			voltage = 0;
+		} else {
+			voltage = lqrGain * (reference - estimate) + kV * reference + Math.signum(reference) * kS;
+			voltage = Math.max(-maxVoltage, Math.min(maxVoltage, voltage));
+		}
+
+		return voltage;
+	}
+
+	/**
+	 * Predicts how long the flywheel will take to get within the given tolerance
+	 * of the given reference, either spinning up at the maximum voltage or coasting
+	 * down.
+	 *
+	 * @param reference The velocity to reach, in RPM
+	 * @param tolerance The acceptable velocity error, in RPM
+	 * @return The predicted time, in seconds, or infinity if it can't be reached
+	 */
+	public double getTimeToReach(double reference, double tolerance) {
+		if (Math.abs(reference - estimate) <= tolerance)
+			return 0;
+
+		if (estimate < reference) { // Spinning up, velocity approaches the free speed exponentially.
+			var freeSpeed = (maxVoltage - kS) / kV;
+			if (freeSpeed <= reference - tolerance)
+				return Double.POSITIVE_INFINITY;
+
+			return timeConstant * Math.log((freeSpeed - estimate) / (freeSpeed - (reference - tolerance)));
+		}
+
+		// Coasting down, velocity decays exponentially towards zero.
+		return timeConstant * Math.log(estimate / (reference + tolerance));
+	}
+
+	/**
+	 * Gets the estimated velocity.
+	 *
+	 * @return The estimated velocity, in RPM
+	 */
+	public double getEstimate() {
+		return estimate;
+	}
+
+	/**
+	 * Gets the last calculated voltage.
+	 *
+	 * @return The last calculated voltage
+	 */
+	public double getVoltage() {
+		return voltage;
+	}
+}
@@ -0,0 +1,103 @@
+package org.usfirst.frc6647.util;
+
+/**
+ * Fixed-bucket histogram of non-negative durations, in microseconds. Recording
+ * never allocates, and percentiles are approximated to the upper bound of their
+ * bucket.
+ *
+ * <p>
+ * Meant to be written by a single thread; readers on other threads may see
+ * slightly stale counts, which is fine for diagnostics.
+ */
+public class Histogram {
+	/** Width of each bucket, in microseconds. */
+	private final long bucketWidth;
+	/** Count of samples in each bucket, the last one also holds every overflow. */
+	private final long[] buckets;
+
+	/** Total number of recorded samples. */
+	private volatile long count = 0;
+	/** Largest recorded sample, in microseconds. */
+	private volatile long max = 0;
+
+	/**
+	 * Creates a {@link Histogram} with the given number of buckets.
+	 *
+	 * @param bucketWidth The width of each bucket, in microseconds
+	 * @param bucketCount The number of buckets
+	 */
+	public Histogram(long bucketWidth, int bucketCount) {
+		this.bucketWidth = bucketWidth;
+		this.buckets = new long[bucketCount];
+	}
+
+	/**
+	 * Records a sample. Negative samples are recorded as 0.
+	 *
+	 * @param micros The sample, in microseconds
+	 */
+	public void record(long micros) {
+		if (micros < 0)
+			micros = 0;
+
+		var bucket = micros / bucketWidth;
+		buckets[bucket >= buckets.length ? buckets.length - 1 : (int) bucket]++;
+
+		if (micros > max)
+			max = micros;
+		count++;
+	}
+
+	/**
+	 * Gets the approximate value below which the given fraction of samples fall.
+	 *
+	 * @param fraction The percentile, between 0 and 1
+	 * @return The upper bound of the percentile's bucket, in microseconds
+	 */
+	public long getPercentile(double fraction) {
+		var total = count;
+		if (total == 0)
+			return 0;
+
+		var target = (long) Math.ceil(total * fraction);
+		long seen = 0;
+
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+
+			if (seen >= target)
+				return Math.min((i + 1) * bucketWidth, max);
+		}
+
+		return max;
+	}
+
+	/**
+	 * Gets the largest recorded sample.
+	 *
+	 * @return The largest sample, in microseconds
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Gets the number of recorded samples.
+	 *
+	 * @return The number of samples
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Clears every recorded sample.
+	 */
+	public void reset() {
+		for (int i = 0; i < buckets.length; i++)
+			buckets[i] = 0;
+
+		count = 0;
+		max = 0;
+	}
+}
@@ -0,0 +1,118 @@
+package org.usfirst.frc6647.util;
+
+/**
+ * Primitive trapezoidal motion profile, stepped once per loop towards a goal
+ * that can change at any time. Unlike WPILib's TrapezoidProfile, it keeps its
+ * state in its own fields instead of allocating a new state on every step, so
+ * it must only be used from a single thread.
+ */
+public class MotionProfile {
+	/** Maximum velocity, in units per second. */
+	private final double maxVelocity;
+	/** Maximum acceleration, in units per second squared. */
+	private final double maxAcceleration;
+
+	/** Current setpoint's position, in units. */
+	private double position = 0;
+	/** Current setpoint's velocity, in units per second. */
+	private double velocity = 0;
+	/** Position to reach, in units. */
+	private double goal = 0;
+
+	/**
+	 * Creates a {@link MotionProfile} with the given constraints.
+	 *
+	 * @param maxVelocity     Maximum velocity, in units per second
+	 * @param maxAcceleration Maximum acceleration, in units per second squared
+	 */
+	public MotionProfile(double maxVelocity, double maxAcceleration) {
+		this.maxVelocity = maxVelocity;
+		this.maxAcceleration = maxAcceleration;
+	}
+
+	/**
+	 * Resets this {@link MotionProfile} to rest at the given position, which
+	 * also becomes its goal.
+	 *
+	 * @param position The position to rest at, in units
+	 */
+	public void reset(double position) {
+		this.position = position;
+		velocity = 0;
+		goal = position;
+	}
+
+	/**
+	 * Sets the position to reach.
+	 *
+	 * @param goal The position to reach, in units
+	 */
+	public void setGoal(double goal) {
+		this.goal = goal;
+	}
+
+	/**
+	 * Steps this {@link MotionProfile} forward, accelerating towards the goal
+	 * until it must start braking to stop right at it.
+	 *
+	 * @param dt The time since the last step, in seconds
+	 */
+	public void calculate(double dt) {
+		var error = goal - position;
+		var direction = Math.signum(error);
+
+		var brakingDistance = velocity * velocity / (2 * maxAcceleration);
+		var movingTowardsGoal = Math.signum(velocity) == direction;
+
+		if (movingTowardsGoal && Math.abs(error) <= brakingDistance)
+			velocity -= Math.signum(velocity) * Math.min(Math.abs(velocity), maxAcceleration * dt);
+		else
+			velocity += direction * maxAcceleration * dt;
+
+		velocity = Math.max(-maxVelocity, Math.min(maxVelocity, velocity));
+		position += velocity * dt;
+
+		// Snap to the goal once it is reached or crossed, instead of oscillating
+		// around it.
+		if (Math.signum(goal - position) != direction || error == 0) {
+			position = goal;
+			velocity = 0;
+		}
+	}
+
+	/**
+	 * Gets the current setpoint's position.
+	 *
+	 * @return The current setpoint's position, in units
+	 */
+	public double getPosition() {
+		return position;
+	}
+
+	/**
+	 * Gets the current setpoint's velocity.
+	 *
+	 * @return The current setpoint's velocity, in units per second
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * Gets the position to reach.
+	 *
+	 * @return The goal, in units
+	 */
+	public double getGoal() {
+		return goal;
+	}
+
+	/**
+	 * Checks whether or not the current setpoint has reached the goal.
+	 *
+	 * @return Whether or not this {@link MotionProfile} is finished
+	 */
+	public boolean isFinished() {
+		return position == goal && velocity == 0;
+	}
+}
@@ -0,0 +1,241 @@
+package org.usfirst.frc6647.util;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Differential drive odometry, updated right after every sensor refresh, faster
+ * than any Looper. Each update integrates the distance travelled by each side along
+ * the gyro's heading, and publishes the resulting pose through a
+ * {@link SharedState}, so any thread can read a fresh pose without blocking this
+ * one.
+ *
+ * <p>
+ * Each side's velocity is read from its own sensor rather than differentiated
+ * from its distance, since distances only change whenever a new status frame
+ * arrives, which is slower than these updates.
+ *
+ * <p>
+ * Every pose is in meters and radians, counter-clockwise positive.
+ */
+public class Odometry {
+	/** Reader for each side's distance, in meters. */
+	private final DoubleSupplier leftDistance, rightDistance;
+	/** Reader for each side's velocity, in meters per second. */
+	private final DoubleSupplier leftVelocity, rightVelocity;
+	/** Reader for the gyro's heading, in radians, counter-clockwise positive. */
+	private final DoubleSupplier gyroHeading;
+
+	/** Published state, only written by {@link #update(double)}. */
+	private final SharedState state = new SharedState(7);
+	/** {@link #state} slots for the estimated pose. */
+	private static final int xSlot = 0, ySlot = 1, headingSlot = 2;
+	/** {@link #state} slots for each side's velocity, in meters per second. */
+	private static final int leftVelocitySlot = 3, rightVelocitySlot = 4;
+	/** {@link #state} slot for the FPGA timestamp of the last update. */
+	private static final int timestampSlot = 5;
+	/** {@link #state} slot for the number of resets applied so far. */
+	private static final int resetsSlot = 6;
+
+	/** Pending reset, written by {@link #reset(double, double, double)}. */
+	private final SharedState request = new SharedState(4);
+	/** {@link #request} slots for the pose to reset to. */
+	private static final int requestXSlot = 0, requestYSlot = 1, requestHeadingSlot = 2;
+	/** {@link #request} slot for the number of resets requested so far. */
+	private static final int requestsSlot = 3;
+
+	/** Estimated pose, only touched by {@link #update(double)}. */
+	private double x = 0, y = 0, heading = 0;
+	/** Offset from the gyro's heading to the estimated heading. */
+	private double headingOffset = 0;
+	/** Readings from the last update, only touched by {@link #update(double)}. */
+	private double lastLeft, lastRight;
+	/** Whether or not this {@link Odometry} has updated yet. */
+	private boolean updated = false;
+	/** Number of resets applied so far, only touched by {@link #update(double)}. */
+	private double resets = 0;
+
+	/**
+	 * Creates an {@link Odometry} instance from the given readers, called from
+	 * whichever thread runs {@link #update(double)}.
+	 *
+	 * @param leftDistance  Reader for the left side's distance, in meters
+	 * @param rightDistance Reader for the right side's distance, in meters
+	 * @param leftVelocity  Reader for the left side's velocity, in meters per
+	 *                      second
+	 * @param rightVelocity Reader for the right side's velocity, in meters per
+	 *                      second
+	 * @param gyroHeading   Reader for the gyro's heading, in radians,
+	 *                      counter-clockwise positive
+	 */
+	public Odometry(DoubleSupplier leftDistance, DoubleSupplier rightDistance, DoubleSupplier leftVelocity,
+			DoubleSupplier rightVelocity, DoubleSupplier gyroHeading) {
+		this.leftDistance = leftDistance;
+		this.rightDistance = rightDistance;
+		this.leftVelocity = leftVelocity;
+		this.rightVelocity = rightVelocity;
+		this.gyroHeading = gyroHeading;
+	}
+
+	/**
+	 * Requests this {@link Odometry} to be reset to the given pose, which is
+	 * applied on its next update. Compare the returned value to
+	 * {@link #getResets()} to know when it has been applied.
+	 *
+	 * @param x       The X position, in meters
+	 * @param y       The Y position, in meters
+	 * @param heading The heading, in radians
+	 * @return The number of resets requested so far, including this one
+	 */
+	public synchronized double reset(double x, double y, double heading) {
+		var requests = request.peekDouble(requestsSlot) + 1;
+
+		request.beginWrite();
+		request.putDouble(requestXSlot, x);
+		request.putDouble(requestYSlot, y);
+		request.putDouble(requestHeadingSlot, heading);
+		request.putDouble(requestsSlot, requests);
+		request.endWrite();
+
+		return requests;
+	}
+
+	/**
+	 * Reads every sensor, and publishes a new pose. Must only ever be called from
+	 * a single thread.
+	 *
+	 * @param timestamp The sensors' FPGA timestamp, in seconds
+	 */
+	public void update(double timestamp) {
+		var left = leftDistance.getAsDouble();
+		var right = rightDistance.getAsDouble();
+		var gyro = gyroHeading.getAsDouble();
+
+		if (!updated) { // First update, nothing to integrate yet.
+			lastLeft = left;
+			lastRight = right;
+			headingOffset = heading - gyro;
+			updated = true;
+		}
+
+		long stamp;
+		double requestX, requestY, requestHeading, requests;
+		do {
+			stamp = request.readBegin();
+			requestX = request.peekDouble(requestXSlot);
+			requestY = request.peekDouble(requestYSlot);
+			requestHeading = request.peekDouble(requestHeadingSlot);
+			requests = request.peekDouble(requestsSlot);
+		} while (!request.readValidate(stamp));
+
+		var deltaLeft = left - lastLeft;
+		var deltaRight = right - lastRight;
+
+		if (requests != resets) { // Reset requested, discard any distance travelled.
+			x = requestX;
+			y = requestY;
+			heading = requestHeading;
+			headingOffset = requestHeading - gyro;
+			resets = requests;
+		} else {
+			var newHeading = gyro + headingOffset;
+			var distance = (deltaLeft + deltaRight) / 2;
+			var averageHeading = heading + Math.IEEEremainder(newHeading - heading, 2 * Math.PI) / 2;
+
+			x += distance * Math.cos(averageHeading);
+			y += distance * Math.sin(averageHeading);
+			heading = Math.IEEEremainder(newHeading, 2 * Math.PI);
+		}
+
+		state.beginWrite();
+		state.putDouble(xSlot, x);
+		state.putDouble(ySlot, y);
+		state.putDouble(headingSlot, heading);
+		state.putDouble(leftVelocitySlot, leftVelocity.getAsDouble());
+		state.putDouble(rightVelocitySlot, rightVelocity.getAsDouble());
+		state.putDouble(timestampSlot, timestamp);
+		state.putDouble(resetsSlot, resets);
+		state.endWrite();
+
+		lastLeft = left;
+		lastRight = right;
+	}
+
+	/**
+	 * Reads the last published pose consistently into the given array, as X, Y
+	 * and heading.
+	 *
+	 * @param pose The array to read the pose into, of at least length 3
+	 */
+	public void getPose(double[] pose) {
+		long stamp;
+		do {
+			stamp = state.readBegin();
+			pose[0] = state.peekDouble(xSlot);
+			pose[1] = state.peekDouble(ySlot);
+			pose[2] = state.peekDouble(headingSlot);
+		} while (!state.readValidate(stamp));
+	}
+
+	/**
+	 * Gets the last published X position.
+	 *
+	 * @return The X position, in meters
+	 */
+	public double getX() {
+		return state.getDouble(xSlot);
+	}
+
+	/**
+	 * Gets the last published Y position.
+	 *
+	 * @return The Y position, in meters
+	 */
+	public double getY() {
+		return state.getDouble(ySlot);
+	}
+
+	/**
+	 * Gets the last published heading.
+	 *
+	 * @return The heading, in radians
+	 */
+	public double getHeading() {
+		return state.getDouble(headingSlot);
+	}
+
+	/**
+	 * Gets the last published left side's velocity.
+	 *
+	 * @return The left side's velocity, in meters per second
+	 */
+	public double getLeftVelocity() {
+		return state.getDouble(leftVelocitySlot);
+	}
+
+	/**
+	 * Gets the last published right side's velocity.
+	 *
+	 * @return The right side's velocity, in meters per second
+	 */
+	public double getRightVelocity() {
+		return state.getDouble(rightVelocitySlot);
+	}
+
+	/**
+	 * Gets the FPGA timestamp of the last published pose.
+	 *
+	 * @return The last update's timestamp, in seconds
+	 */
+	public double getTimestamp() {
+		return state.getDouble(timestampSlot);
+	}
+
+	/**
+	 * Gets the number of resets applied so far.
+	 *
+	 * @return The number of resets applied
+	 */
+	public double getResets() {
+		return state.getDouble(resetsSlot);
+	}
+}
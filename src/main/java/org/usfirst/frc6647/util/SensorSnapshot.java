@@ -0,0 +1,302 @@
+package org.usfirst.frc6647.util;
+
+import java.lang.invoke.VarHandle;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import org.usfirst.frc6647.robot.Robot;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Per-cycle snapshot of every sensor used by the {@link Robot}. Each sensor is
+ * registered once, and read at most once per call to {@link #refresh()} into a
+ * flat primitive buffer, so every consumer sees the same values for that cycle
+ * without going through CAN or JNI again. Sensors updating slower than each
+ * refresh can be read only every few refreshes, keeping their last value in
+ * between.
+ *
+ * <p>
+ * {@link #refresh()} should only ever be called from a single thread. Any
+ * thread can {@link #get(int) get} a single slot, but a loop reading several
+ * slots should go through its own {@link Reader}, {@link Reader#update()
+ * updated} once per iteration, so it sees every slot from the same refresh even
+ * if one is published mid-iteration.
+ */
+public class SensorSnapshot {
+	/** Maximum number of sensors that can be registered. */
+	private static final int capacity = 64;
+
+	/** Name of each registered sensor, indexed by slot. */
+	private final String[] names = new String[capacity];
+	/** Reader for each registered sensor, indexed by slot. */
+	private final DoubleSupplier[] readers = new DoubleSupplier[capacity];
+	/** Number of refreshes between each read of each sensor, indexed by slot. */
+	private final int[] dividers = new int[capacity];
+	/** Number of currently registered sensors. */
+	private int size = 0;
+
+	/**
+	 * Both buffers, one is published while the other one is being written. Each
+	 * buffer's timestamp is kept right after its last slot.
+	 */
+	private final double[] bufferA = new double[capacity + 1], bufferB = new double[capacity + 1];
+	/** Last fully written buffer. */
+	private volatile double[] published = bufferA;
+	/** Number of buffers published so far. */
+	private volatile long publications = 0;
+	/** Number of calls to {@link #refresh()} so far, only touched by its thread. */
+	private long refreshes = 0;
+	/** Clock used to timestamp every {@link #refresh()}, in seconds. */
+	private final DoubleSupplier clock;
+
+	/**
+	 * Creates a {@link SensorSnapshot} timestamped by the FPGA's clock.
+	 */
+	public SensorSnapshot() {
+		this(Timer::getFPGATimestamp);
+	}
+
+	/**
+	 * Creates a {@link SensorSnapshot} timestamped by the given clock, for use
+	 * outside of the roboRIO.
+	 *
+	 * @param clock The clock used to timestamp every {@link #refresh()}, in
+	 *              seconds
+	 */
+	public SensorSnapshot(DoubleSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Registers a sensor into this {@link SensorSnapshot}.
+	 *
+	 * @param name   The sensor's name
+	 * @param reader The sensor's reader, called once per {@link #refresh()}
+	 * @return The slot assigned to this sensor
+	 */
+	public int register(String name, DoubleSupplier reader) {
+		return register(name, reader, 1);
+	}
+
+	/**
+	 * Registers a sensor updating slower than each {@link #refresh()} into this
+	 * {@link SensorSnapshot}, such as one read from a CAN status frame.
+	 *
+	 * @param name    The sensor's name
+	 * @param reader  The sensor's reader
+	 * @param divider Number of calls to {@link #refresh()} between each read, the
+	 *                slot keeps its last value in between
+	 * @return The slot assigned to this sensor
+	 */
+	public synchronized int register(String name, DoubleSupplier reader, int divider) {
+		if (size == capacity)
+			throw new IllegalStateException("Can't register sensor '" + name + "', snapshot is full");
+		if (divider < 1)
+			throw new IllegalArgumentException("Sensor '" + name + "' must be read at least once every refresh");
+
+		names[size] = name;
+		readers[size] = reader;
+		dividers[size] = divider;
+
+		return size++;
+	}
+
+	/**
+	 * Registers a boolean sensor into this {@link SensorSnapshot}, stored as either
+	 * 1 or 0.
+	 *
+	 * @param name   The sensor's name
+	 * @param reader The sensor's reader, called once per {@link #refresh()}
+	 * @return The slot assigned to this sensor
+	 */
+	public int registerBoolean(String name, BooleanSupplier reader) {
+		return registerBoolean(name, reader, 1);
+	}
+
+	/**
+	 * Registers a boolean sensor updating slower than each {@link #refresh()} into
+	 * this {@link SensorSnapshot}, stored as either 1 or 0.
+	 *
+	 * @param name    The sensor's name
+	 * @param reader  The sensor's reader
+	 * @param divider Number of calls to {@link #refresh()} between each read, the
+	 *                slot keeps its last value in between
+	 * @return The slot assigned to this sensor
+	 */
+	public int registerBoolean(String name, BooleanSupplier reader, int divider) {
+		return register(name, () -> reader.getAsBoolean() ? 1 : 0, divider);
+	}
+
+	/**
+	 * Reads every registered sensor due this time, and publishes the new values.
+	 * Every other sensor keeps its last value.
+	 */
+	public void refresh() {
+		var last = published;
+		var buffer = last == bufferA ? bufferB : bufferA;
+
+		for (int i = 0; i < size; i++)
+			buffer[i] = refreshes % dividers[i] == 0 ? readers[i].getAsDouble() : last[i];
+
+		refreshes++;
+		buffer[capacity] = clock.getAsDouble();
+		publish(buffer);
+	}
+
+	/**
+	 * Publishes the given values instead of reading any sensor, used to replay a
+	 * recorded match. Must be called from the same thread as {@link #refresh()}.
+	 *
+	 * @param timestamp The values' timestamp, in seconds
+	 * @param values    The value of every registered sensor, indexed by slot
+	 */
+	public void load(double timestamp, double[] values) {
+		var buffer = published == bufferA ? bufferB : bufferA;
+		System.arraycopy(values, 0, buffer, 0, size);
+
+		buffer[capacity] = timestamp;
+		publish(buffer);
+	}
+
+	/**
+	 * Publishes the given buffer. The other one is only written again once this
+	 * one's publication is counted, which is what every {@link Reader} checks.
+	 */
+	private void publish(double[] buffer) {
+		published = buffer;
+		publications++; // Only ever written by a single thread.
+		VarHandle.storeStoreFence(); // Count it before the next refresh writes the other buffer.
+	}
+
+	/**
+	 * Gets the value of the sensor at the given slot, as of the last
+	 * {@link #refresh()}. Safe to call from any thread.
+	 *
+	 * @param slot The sensor's slot
+	 * @return The sensor's value
+	 */
+	public double get(int slot) {
+		long before;
+		double value;
+		do {
+			before = publications;
+			value = published[slot];
+
+			VarHandle.acquireFence(); // Same check as every Reader's.
+		} while (before != publications);
+
+		return value;
+	}
+
+	/**
+	 * Gets the value of the boolean sensor at the given slot, as of the last
+	 * {@link #refresh()}. Safe to call from any thread.
+	 *
+	 * @param slot The sensor's slot
+	 * @return The sensor's value
+	 */
+	public boolean getBoolean(int slot) {
+		return get(slot) != 0;
+	}
+
+	/**
+	 * Gets the FPGA timestamp of the last {@link #refresh()}, in seconds. Safe to
+	 * call from any thread.
+	 *
+	 * @return The last {@link #refresh()}'s timestamp
+	 */
+	public double getTimestamp() {
+		return get(capacity);
+	}
+
+	/**
+	 * Creates a {@link Reader} for this {@link SensorSnapshot}, to be used by a
+	 * single thread.
+	 *
+	 * @return The new {@link Reader}
+	 */
+	public Reader newReader() {
+		return new Reader();
+	}
+
+	/**
+	 * Per-thread copy of the last published buffer, which stays the same until
+	 * its next {@link #update()}.
+	 */
+	public class Reader {
+		/** Copy of every slot, and the timestamp right after them. */
+		private final double[] values = new double[capacity + 1];
+
+		private Reader() {
+		}
+
+		/**
+		 * Copies the last published buffer. Should be called once, at the start of
+		 * every iteration.
+		 */
+		public void update() {
+			long before;
+			do {
+				before = publications;
+				var buffer = published;
+
+				System.arraycopy(buffer, 0, values, 0, size);
+				values[capacity] = buffer[capacity];
+
+				VarHandle.acquireFence(); // Don't let the copy drift past the check below.
+			} while (before != publications);
+		}
+
+		/**
+		 * Gets the value of the sensor at the given slot, as of the last
+		 * {@link #update()}.
+		 *
+		 * @param slot The sensor's slot
+		 * @return The sensor's value
+		 */
+		public double get(int slot) {
+			return values[slot];
+		}
+
+		/**
+		 * Gets the value of the boolean sensor at the given slot, as of the last
+		 * {@link #update()}.
+		 *
+		 * @param slot The sensor's slot
+		 * @return The sensor's value
+		 */
+		public boolean getBoolean(int slot) {
+			return values[slot] != 0;
+		}
+
+		/**
+		 * Gets the FPGA timestamp of the buffer copied on the last {@link #update()},
+		 * in seconds.
+		 *
+		 * @return The copied buffer's timestamp
+		 */
+		public double getTimestamp() {
+			return values[capacity];
+		}
+	}
+
+	/**
+	 * Gets the name of the sensor at the given slot.
+	 *
+	 * @param slot The sensor's slot
+	 * @return The sensor's name
+	 */
+	public String getName(int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * Gets the number of registered sensors.
+	 *
+	 * @return The number of registered sensors
+	 */
+	public int size() {
+		return size;
+	}
+}
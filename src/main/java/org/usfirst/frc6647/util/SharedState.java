@@ -0,0 +1,195 @@
+package org.usfirst.frc6647.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lock-free, single-writer/multi-reader container of primitive state, guarded
+ * by a sequence lock. Used to hand state between the command scheduler's
+ * thread and the Looper threads without any monitor.
+ *
+ * <p>
+ * Each slot holds either a boolean or a double. Each instance must only ever
+ * be written by a single thread at a time, even through different slots: every
+ * slot shares the same sequence counter, and it isn't incremented atomically.
+ * Writes from different threads are only safe if something else already
+ * serializes them. Readers never block the writer, and simply retry if they
+ * raced with a write.
+ *
+ * <p>
+ * Several slots can be written atomically with {@link #beginWrite()} and
+ * {@link #endWrite()}, and read consistently with {@link #readBegin()} and
+ * {@link #readValidate(long)}.
+ */
+public class SharedState {
+	/** {@link VarHandle} for the {@link #sequence} field. */
+	private static final VarHandle SEQUENCE;
+
+	static {
+		try {
+			SEQUENCE = MethodHandles.lookup().findVarHandle(SharedState.class, "sequence", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/** Raw bits for each slot. */
+	private final long[] slots;
+	/** Sequence counter, odd whilst a write is in progress. */
+	@SuppressWarnings("unused")
+	private volatile long sequence = 0;
+
+	/**
+	 * Creates a {@link SharedState} with the given number of slots, all
+	 * initialized to 0 (or false).
+	 *
+	 * @param size The number of slots
+	 */
+	public SharedState(int size) {
+		slots = new long[size];
+	}
+
+	/**
+	 * Starts a multi-slot write; must be followed by {@link #endWrite()}. Only the
+	 * writing thread may call this.
+	 */
+	public void beginWrite() {
+		SEQUENCE.setOpaque(this, (long) SEQUENCE.getOpaque(this) + 1);
+		VarHandle.storeStoreFence();
+	}
+
+	/**
+	 * Publishes every slot written since {@link #beginWrite()}.
+	 */
+	public void endWrite() {
+		SEQUENCE.setRelease(this, (long) SEQUENCE.getOpaque(this) + 1);
+	}
+
+	/**
+	 * Writes a double into the given slot, between {@link #beginWrite()} and
+	 * {@link #endWrite()}.
+	 *
+	 * @param slot  The slot to write
+	 * @param value The value to write
+	 */
+	public void putDouble(int slot, double value) {
+		slots[slot] = Double.doubleToRawLongBits(value);
+	}
+
+	/**
+	 * Writes a boolean into the given slot, between {@link #beginWrite()} and
+	 * {@link #endWrite()}.
+	 *
+	 * @param slot  The slot to write
+	 * @param value The value to write
+	 */
+	public void putBoolean(int slot, boolean value) {
+		slots[slot] = value ? 1 : 0;
+	}
+
+	/**
+	 * Atomically writes and publishes a double into the given slot.
+	 *
+	 * @param slot  The slot to write
+	 * @param value The value to write
+	 */
+	public void setDouble(int slot, double value) {
+		beginWrite();
+		putDouble(slot, value);
+		endWrite();
+	}
+
+	/**
+	 * Atomically writes and publishes a boolean into the given slot.
+	 *
+	 * @param slot  The slot to write
+	 * @param value The value to write
+	 */
+	public void setBoolean(int slot, boolean value) {
+		beginWrite();
+		putBoolean(slot, value);
+		endWrite();
+	}
+
+	/**
+	 * Starts an optimistic multi-slot read. Slots read with
+	 * {@link #peekDouble(int)} or {@link #peekBoolean(int)} are only consistent if
+	 * {@link #readValidate(long)} returns true for the returned stamp.
+	 *
+	 * @return The stamp to validate the read against
+	 */
+	public long readBegin() {
+		long stamp;
+
+		while (((stamp = (long) SEQUENCE.getAcquire(this)) & 1) != 0)
+			Thread.onSpinWait();
+
+		return stamp;
+	}
+
+	/**
+	 * Checks whether or not every slot peeked since {@link #readBegin()} is
+	 * consistent.
+	 *
+	 * @param stamp The stamp returned by {@link #readBegin()}
+	 * @return Whether or not no write happened during the read
+	 */
+	public boolean readValidate(long stamp) {
+		VarHandle.acquireFence();
+		return stamp == (long) SEQUENCE.getOpaque(this);
+	}
+
+	/**
+	 * Reads a double from the given slot, without validation.
+	 *
+	 * @param slot The slot to read
+	 * @return The slot's value
+	 */
+	public double peekDouble(int slot) {
+		return Double.longBitsToDouble(slots[slot]);
+	}
+
+	/**
+	 * Reads a boolean from the given slot, without validation.
+	 *
+	 * @param slot The slot to read
+	 * @return The slot's value
+	 */
+	public boolean peekBoolean(int slot) {
+		return slots[slot] != 0;
+	}
+
+	/**
+	 * Consistently reads a double from the given slot.
+	 *
+	 * @param slot The slot to read
+	 * @return The slot's value
+	 */
+	public double getDouble(int slot) {
+		long stamp, bits;
+
+		do {
+			stamp = readBegin();
+			bits = slots[slot];
+		} while (!readValidate(stamp));
+
+		return Double.longBitsToDouble(bits);
+	}
+
+	/**
+	 * Consistently reads a boolean from the given slot.
+	 *
+	 * @param slot The slot to read
+	 * @return The slot's value
+	 */
+	public boolean getBoolean(int slot) {
+		long stamp, bits;
+
+		do {
+			stamp = readBegin();
+			bits = slots[slot];
+		} while (!readValidate(stamp));
+
+		return bits != 0;
+	}
+}
@@ -0,0 +1,80 @@
+package org.usfirst.frc6647.util;
+
+/**
+ * Shoot-on-the-move compensation. Whilst the robot moves, every ball inherits
+ * its velocity, so instead of the real target this aims at a virtual target,
+ * offset by how far the robot travels during the ball's time of flight. The
+ * result is a lead angle for the turret, and a corrected distance to look up in
+ * a {@link ShotMap}.
+ *
+ * <p>
+ * Every angle is relative to the robot's front, clockwise positive like the
+ * Limelight's horizontal offset. Results are kept in this
+ * {@link ShotCompensator}'s own fields, so it must only be used from a single
+ * thread.
+ */
+public class ShotCompensator {
+	/** Number of refinements, as the time of flight depends on the distance. */
+	private static final int iterations = 3;
+
+	/** Average horizontal speed of a ball once shot, in meters per second. */
+	private final double ballSpeed;
+
+	/** Last calculated lead angle, in degrees. */
+	private double lead = 0;
+	/** Last calculated distance to the virtual target, in meters. */
+	private double distance = 0;
+
+	/**
+	 * Creates a {@link ShotCompensator}.
+	 *
+	 * @param ballSpeed Average horizontal speed of a ball once shot, in meters per
+	 *                  second
+	 */
+	public ShotCompensator(double ballSpeed) {
+		this.ballSpeed = ballSpeed;
+	}
+
+	/**
+	 * Calculates the lead angle and corrected distance for the given target.
+	 *
+	 * @param robotSpeed The robot's forward speed, in meters per second
+	 * @param bearing    The target's angle from the robot's front, in degrees
+	 * @param range      The distance to the target, in meters
+	 */
+	public void update(double robotSpeed, double bearing, double range) {
+		var radians = Math.toRadians(bearing);
+		var targetX = range * Math.cos(radians);
+		var targetY = -range * Math.sin(radians);
+
+		// A differential drive can't move sideways, so only the forward component of
+		// the virtual target moves.
+		var virtualX = targetX;
+		distance = range;
+		for (int i = 0; i < iterations; i++) {
+			virtualX = targetX - robotSpeed * distance / ballSpeed;
+			distance = Math.hypot(virtualX, targetY);
+		}
+
+		lead = Math.IEEEremainder(-Math.toDegrees(Math.atan2(targetY, virtualX)) - bearing, 360);
+	}
+
+	/**
+	 * Gets the last calculated lead angle, to add to the target's bearing.
+	 *
+	 * @return The lead angle, in degrees
+	 */
+	public double getLead() {
+		return lead;
+	}
+
+	/**
+	 * Gets the last calculated distance to the virtual target, to look up in a
+	 * {@link ShotMap} instead of the real distance.
+	 *
+	 * @return The corrected distance, in meters
+	 */
+	public double getDistance() {
+		return distance;
+	}
+}
@@ -0,0 +1,176 @@
+package org.usfirst.frc6647.util;
+
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.behindTrenchAngle;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.behindTrenchDistance;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.behindTrenchRPM;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.cursedAngle;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.cursedDistance;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.cursedRPM;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.initiationLineAngle;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.initiationLineDistance;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.initiationLineRPM;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.trenchAngle;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.trenchDistance;
+import static org.usfirst.frc6647.robot.Constants.ShooterConstants.trenchRPM;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.usfirst.frc6647.subsystems.Shooter;
+import org.usfirst.frc6647.subsystems.Turret;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Distance-indexed shot table, which maps the {@link Turret}'s estimated
+ * distance to the target to an interpolated {@link Shooter} RPM and hood angle.
+ *
+ * <p>
+ * Every shot is stored in sorted primitive arrays, so {@link #update(double)}
+ * can be called every loop without allocating anything.
+ */
+public class ShotMap {
+	/** Sorted distances (in meters) for each shot in the table. */
+	private final double[] distances;
+	/** RPM for each shot in the table, indexed like {@link #distances}. */
+	private final double[] rpms;
+	/** Hood angle for each shot in the table, indexed like {@link #distances}. */
+	private final double[] angles;
+
+	/** Last RPM calculated by {@link #update(double)}. */
+	private double rpm;
+	/** Last hood angle calculated by {@link #update(double)}. */
+	private double angle;
+
+	/**
+	 * Creates a {@link ShotMap} from the given arrays, which are sorted by distance
+	 * in place.
+	 *
+	 * @param distances The distance (in meters) of each shot
+	 * @param rpms      The RPM of each shot
+	 * @param angles    The hood angle of each shot
+	 */
+	public ShotMap(double[] distances, double[] rpms, double[] angles) {
+		if (distances.length == 0 || distances.length != rpms.length || distances.length != angles.length)
+			throw new IllegalArgumentException("ShotMap arrays must be non-empty and of equal length");
+
+		this.distances = distances;
+		this.rpms = rpms;
+		this.angles = angles;
+
+		// Insertion sort, the table only holds a handful of shots.
+		for (int i = 1; i < distances.length; i++) {
+			for (int j = i; j > 0 && distances[j - 1] > distances[j]; j--) {
+				swap(distances, j, j - 1);
+				swap(rpms, j, j - 1);
+				swap(angles, j, j - 1);
+			}
+		}
+
+		rpm = rpms[0];
+		angle = angles[0];
+	}
+
+	/**
+	 * Loads a {@link ShotMap} from the given file in the 'deploy' directory. If the
+	 * file can't be read, falls back to the four presets in
+	 * {@link org.usfirst.frc6647.robot.Constants.ShooterConstants ShooterConstants}.
+	 *
+	 * @param fileName The name of the file inside the 'deploy' directory
+	 * @return The loaded {@link ShotMap}
+	 */
+	public static ShotMap fromDeploy(String fileName) {
+		try {
+			var shots = new ObjectMapper().readTree(new File(Filesystem.getDeployDirectory(), fileName)).get("shots");
+
+			var distances = new double[shots.size()];
+			var rpms = new double[shots.size()];
+			var angles = new double[shots.size()];
+
+			for (int i = 0; i < shots.size(); i++) {
+				distances[i] = shots.get(i).get("distance").asDouble();
+				rpms[i] = shots.get(i).get("rpm").asDouble();
+				angles[i] = shots.get(i).get("angle").asDouble();
+			}
+
+			return new ShotMap(distances, rpms, angles);
+		} catch (IOException | NullPointerException | IllegalArgumentException e) {
+			var error = String.format("[!] COULD NOT LOAD SHOT MAP '%1$s', USING PRESETS:\n\t%2$s.", fileName,
+					e.getLocalizedMessage());
+
+			System.out.println(error);
+			DriverStation.reportWarning(error, false);
+
+			return new ShotMap(
+					new double[] { cursedDistance, initiationLineDistance, trenchDistance, behindTrenchDistance },
+					new double[] { cursedRPM, initiationLineRPM, trenchRPM, behindTrenchRPM },
+					new double[] { cursedAngle, initiationLineAngle, trenchAngle, behindTrenchAngle });
+		}
+	}
+
+	/**
+	 * Looks up the shot for the given distance, linearly interpolating between the
+	 * two closest entries. Distances outside of the table are clamped to its ends.
+	 * Results are read with {@link #getRPM()} and {@link #getAngle()}.
+	 *
+	 * @param distance The distance to the target, in meters
+	 */
+	public void update(double distance) {
+		int last = distances.length - 1;
+
+		if (distance <= distances[0]) {
+			rpm = rpms[0];
+			angle = angles[0];
+			return;
+		} else if (distance >= distances[last]) {
+			rpm = rpms[last];
+			angle = angles[last];
+			return;
+		}
+
+		// Binary search for the first entry further than the given distance.
+		int low = 0, high = last;
+		while (high - low > 1) {
+			int mid = (low + high) >>> 1;
+
+			if (distances[mid] <= distance)
+				low = mid;
+			else
+				high = mid;
+		}
+
+		var t = (distance - distances[low]) / (distances[high] - distances[low]);
+		rpm = rpms[low] + (rpms[high] - rpms[low]) * t;
+		angle = angles[low] + (angles[high] - angles[low]) * t;
+	}
+
+	/**
+	 * Gets the RPM calculated by the last call to {@link #update(double)}.
+	 *
+	 * @return The interpolated RPM
+	 */
+	public double getRPM() {
+		return rpm;
+	}
+
+	/**
+	 * Gets the hood angle calculated by the last call to {@link #update(double)}.
+	 *
+	 * @return The interpolated hood angle
+	 */
+	public double getAngle() {
+		return angle;
+	}
+
+	/**
+	 * Swaps two values in a primitive array.
+	 */
+	private static void swap(double[] array, int i, int j) {
+		var temp = array[i];
+		array[i] = array[j];
+		array[j] = temp;
+	}
+}
@@ -0,0 +1,130 @@
+package org.usfirst.frc6647.util;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.music.Orchestra;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Loads songs into an {@link Orchestra} on a background thread. Indexes every
+ * '.chrp' file in its directory once, and preloads a random one right away, so
+ * neither listing files nor {@link Orchestra#loadMusic(String) loading} ever
+ * runs on the command scheduler's thread.
+ *
+ * <p>
+ * Each loaded song is handed over through {@link #getReady()}, which stays null
+ * whilst a song is being loaded, so nothing plays a half-loaded song.
+ */
+public class SongPreloader {
+	/** {@link Orchestra} to load every song into. */
+	private final Orchestra orchestra;
+	/** Directory holding every '.chrp' file. */
+	private final File directory;
+
+	/** Loads every song, one at a time. */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		var thread = new Thread(runnable, "SongPreloader");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+	/** Picks each song to load, only used by the {@link #executor}. */
+	private final Random random = new Random();
+	/** Every '.chrp' file in the {@link #directory}, indexed once by the {@link #executor}. */
+	private String[] songs;
+
+	/** The song currently loaded into the {@link #orchestra}, null whilst loading. */
+	private final AtomicReference<String> ready = new AtomicReference<>(null);
+	/** Whether or not a song is being loaded, or waiting to be. */
+	private final AtomicBoolean loading = new AtomicBoolean(false);
+
+	/**
+	 * Creates a {@link SongPreloader}, which indexes the given directory and
+	 * preloads a random song in the background.
+	 *
+	 * @param orchestra The {@link Orchestra} to load every song into
+	 * @param directory The directory holding every '.chrp' file
+	 */
+	public SongPreloader(Orchestra orchestra, File directory) {
+		this.orchestra = orchestra;
+		this.directory = directory;
+
+		executor.execute(this::index);
+		prepare();
+	}
+
+	/**
+	 * Loads a random song in the background, unless one is already being loaded.
+	 * Never blocks.
+	 */
+	public void prepare() {
+		if (!loading.compareAndSet(false, true))
+			return;
+
+		ready.set(null);
+		executor.execute(this::load);
+	}
+
+	/**
+	 * Gets the song currently loaded into the {@link Orchestra}.
+	 *
+	 * @return The song's path, or null if it's still being loaded
+	 */
+	public String getReady() {
+		return ready.get();
+	}
+
+	/**
+	 * Lists every '.chrp' file in the {@link #directory}. Runs on the
+	 * {@link #executor}.
+	 */
+	private void index() {
+		var files = directory.listFiles((dir, name) -> name.endsWith(".chrp"));
+		songs = new String[files == null ? 0 : files.length];
+
+		for (int i = 0; i < songs.length; i++)
+			songs[i] = files[i].toString();
+	}
+
+	/**
+	 * Loads a random song into the {@link #orchestra}, and hands it over once
+	 * it's done. Runs on the {@link #executor}.
+	 */
+	private void load() {
+		try {
+			if (songs.length == 0) {
+				report("'" + directory + "' HAS NO SONGS");
+				return;
+			}
+
+			var song = songs[random.nextInt(songs.length)];
+			var error = orchestra.loadMusic(song);
+			if (error != ErrorCode.OK) {
+				report(song + ": " + error);
+				return;
+			}
+
+			System.out.println("Ready to play: '" + song + "'...");
+			ready.set(song);
+		} finally {
+			loading.set(false);
+		}
+	}
+
+	/**
+	 * Reports a song that couldn't be loaded.
+	 */
+	private static void report(String reason) {
+		var error = String.format("[!] COULD NOT LOAD SONG:\n\t%1$s.", reason);
+
+		System.out.println(error);
+		DriverStation.reportWarning(error, false);
+	}
+}
@@ -0,0 +1,64 @@
+package org.usfirst.frc6647.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times each phase of the {@link org.usfirst.frc6647.robot.Robot Robot}'s
+ * startup, and prints them once it's code-ready. Each phase lasts from the
+ * previous {@link #mark(String) mark} (or {@link #start()}) up until its own.
+ */
+public final class StartupProfiler {
+	private StartupProfiler() {
+	}
+
+	/** Name of each phase marked so far. */
+	private static final List<String> phases = new ArrayList<>();
+	/** Duration of each phase, in nanoseconds, indexed like {@link #phases}. */
+	private static final List<Long> durations = new ArrayList<>();
+
+	/** Timestamp of {@link #start()}, or the last {@link #mark(String) mark}. */
+	private static long last = System.nanoTime();
+
+	/**
+	 * Starts the first phase. Should be called once, as early as possible.
+	 */
+	public static synchronized void start() {
+		last = System.nanoTime();
+	}
+
+	/**
+	 * Ends the current phase.
+	 *
+	 * @param phase The phase's name
+	 */
+	public static synchronized void mark(String phase) {
+		var now = System.nanoTime();
+
+		phases.add(phase);
+		durations.add(now - last);
+		last = now;
+	}
+
+	/**
+	 * Prints every phase marked so far, along with their total and the time since
+	 * the JVM started, which includes everything before the {@link
+	 * org.usfirst.frc6647.robot.Robot Robot} was created.
+	 */
+	public static synchronized void report() {
+		var total = 0L;
+		var report = new StringBuilder("Startup:\n");
+
+		for (int i = 0; i < phases.size(); i++) {
+			report.append(String.format("\t%-24s %8.1f ms\n", phases.get(i), durations.get(i) / 1e6));
+			total += durations.get(i);
+		}
+
+		report.append(String.format("\t%-24s %8.1f ms\n", "total", total / 1e6));
+		report.append(String.format("\t%-24s %8d ms", "sinceJvmStart",
+				ManagementFactory.getRuntimeMXBean().getUptime()));
+
+		System.out.println(report);
+	}
+}
@@ -0,0 +1,93 @@
+package org.usfirst.frc6647.util;
+
+/**
+ * Fixed-size ring buffer of timestamped values, used to look up what a sensor
+ * read at some point in the recent past. Values are stored in primitive arrays,
+ * so neither {@link #add(double, double)} nor {@link #get(double)} allocate.
+ *
+ * <p>
+ * Timestamps must be added in increasing order, and every method must be called
+ * from the same thread.
+ */
+public class TimestampedBuffer {
+	/** Timestamp of each value, in seconds. */
+	private final double[] timestamps;
+	/** Each stored value. */
+	private final double[] values;
+	/** Index of the next value to write. */
+	private int head = 0;
+	/** Number of stored values. */
+	private int size = 0;
+
+	/**
+	 * Creates a {@link TimestampedBuffer} with the given capacity.
+	 *
+	 * @param capacity The maximum number of values to keep
+	 */
+	public TimestampedBuffer(int capacity) {
+		timestamps = new double[capacity];
+		values = new double[capacity];
+	}
+
+	/**
+	 * Adds a value, overwriting the oldest one if this {@link TimestampedBuffer}
+	 * is full.
+	 *
+	 * @param timestamp The value's timestamp, in seconds
+	 * @param value     The value
+	 */
+	public void add(double timestamp, double value) {
+		timestamps[head] = timestamp;
+		values[head] = value;
+
+		head = (head + 1) % timestamps.length;
+		if (size < timestamps.length)
+			size++;
+	}
+
+	/**
+	 * Gets the value at the given timestamp, interpolating between the two closest
+	 * values. Timestamps older than the oldest value, or newer than the newest
+	 * one, get those values instead.
+	 *
+	 * @param timestamp The timestamp to look up, in seconds
+	 * @return The value at that timestamp, or NaN if this buffer is empty
+	 */
+	public double get(double timestamp) {
+		if (size == 0)
+			return Double.NaN;
+
+		// Walk backwards from the newest value, lookups are usually recent.
+		var newer = index(size - 1);
+		if (timestamp >= timestamps[newer])
+			return values[newer];
+
+		for (int i = size - 2; i >= 0; i--) {
+			var older = index(i);
+
+			if (timestamps[older] <= timestamp) {
+				var t = (timestamp - timestamps[older]) / (timestamps[newer] - timestamps[older]);
+				return values[older] + (values[newer] - values[older]) * t;
+			}
+
+			newer = older;
+		}
+
+		return values[newer];
+	}
+
+	/**
+	 * Removes every stored value.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Converts an age-ordered position (0 being the oldest value) into an index.
+	 */
+	private int index(int position) {
+		return (head - size + position + timestamps.length) % timestamps.length;
+	}
+}
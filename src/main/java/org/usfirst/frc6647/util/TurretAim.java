@@ -0,0 +1,185 @@
+package org.usfirst.frc6647.util;
+
+import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.subsystems.Turret;
+
+/**
+ * Body of the {@link Turret}'s auto-aim loop. Keeps a history of the turret's
+ * angle, so each Limelight frame can be matched to where the turret pointed
+ * when it was captured, and follows a {@link MotionProfile} towards either the
+ * target, led by a {@link ShotCompensator}, or a requested angle. Kept free of
+ * any hardware so it can be benchmarked on a desktop JVM.
+ *
+ * <p>
+ * Every iteration calls {@link #track(double, double, double)} first, then
+ * exactly one of {@link #aim(boolean, double, double, double)},
+ * {@link #goTo(double)} or {@link #release()}. Every angle is in degrees, and
+ * every method must be called from the same thread.
+ */
+public class TurretAim {
+	/** History of the turret's angle, in degrees. */
+	private final TimestampedBuffer angleHistory = new TimestampedBuffer(
+			Constants.TurretConstants.angleHistorySize);
+	/** {@link MotionProfile} followed by the turret, in degrees. */
+	private final MotionProfile profile = new MotionProfile(Constants.Aim.maxVelocity,
+			Constants.Aim.maxAceleration);
+	/** Shoot-on-the-move compensation. */
+	private final ShotCompensator compensator = new ShotCompensator(Constants.ShooterConstants.averageBallSpeed);
+
+	/** Timestamp of the last iteration. */
+	private double lastTimestamp;
+	/** Time since the last iteration, in seconds. */
+	private double dt;
+	/** The turret's angle, as of the current iteration. */
+	private double angle;
+	/** Low-passed forward speed of the robot, in meters per second. */
+	private double robotSpeed;
+	/** Whether or not the {@link #profile} is being followed. */
+	private boolean following = false;
+
+	/**
+	 * Starts over, forgetting every angle and the profile being followed.
+	 *
+	 * @param timestamp  The current timestamp, in seconds
+	 * @param robotSpeed The robot's forward speed, in meters per second
+	 */
+	public void reset(double timestamp, double robotSpeed) {
+		angleHistory.clear();
+		lastTimestamp = timestamp;
+		this.robotSpeed = robotSpeed;
+		following = false;
+	}
+
+	/**
+	 * Records the turret's angle, and filters the robot's speed. Must be called
+	 * first, on every iteration, even without a target, so the speed has settled
+	 * once one is found.
+	 *
+	 * @param timestamp  The current timestamp, in seconds
+	 * @param angle      The turret's current angle
+	 * @param robotSpeed The robot's forward speed, in meters per second
+	 */
+	public void track(double timestamp, double angle, double robotSpeed) {
+		angleHistory.add(timestamp, angle);
+		this.angle = angle;
+
+		dt = timestamp - lastTimestamp;
+		lastTimestamp = timestamp;
+
+		this.robotSpeed += (1 - Math.exp(-dt / Constants.ShooterConstants.robotSpeedTimeConstant))
+				* (robotSpeed - this.robotSpeed);
+	}
+
+	/**
+	 * Follows the target, led by however much the robot moves during the shot.
+	 * The Limelight's offset is relative to where the turret was pointing when the
+	 * frame was captured, not to where it is pointing now. Without a target, keeps
+	 * going towards the last goal.
+	 *
+	 * @param targetFound      Whether or not the Limelight sees a target
+	 * @param captureTimestamp The frame's capture timestamp, in seconds
+	 * @param horizontalOffset The target's horizontal offset in the frame
+	 * @param targetDistance   The distance to the target, in meters
+	 */
+	public void aim(boolean targetFound, double captureTimestamp, double horizontalOffset, double targetDistance) {
+		start();
+
+		if (targetFound) {
+			var bearing = angleHistory.get(captureTimestamp) + horizontalOffset;
+
+			// Standing still leads by nothing, and keeps the real distance.
+			compensator.update(Constants.ShooterConstants.leadCompensation ? robotSpeed : 0, bearing,
+					targetDistance);
+			profile.setGoal(pickGoal(bearing + compensator.getLead()));
+		}
+
+		profile.calculate(dt);
+	}
+
+	/**
+	 * Follows the profile towards the given angle.
+	 *
+	 * @param degrees The requested angle
+	 */
+	public void goTo(double degrees) {
+		start();
+
+		profile.setGoal(pickGoal(degrees));
+		profile.calculate(dt);
+	}
+
+	/**
+	 * Stops following the profile, such as under manual control.
+	 */
+	public void release() {
+		following = false;
+	}
+
+	/**
+	 * Starts following the profile from wherever the turret currently is, unless
+	 * it's already being followed.
+	 */
+	private void start() {
+		if (!following)
+			profile.reset(angle);
+
+		following = true;
+	}
+
+	/**
+	 * Wraps the given angle to [-180, 180], and clamps it to the turret's soft
+	 * limits, less their margin. Angles that land in the gap between both limits,
+	 * right behind the turret, are clamped to whichever limit is closest to them
+	 * rather than reached the long way around, since the soft limits never span
+	 * more than a full turn.
+	 *
+	 * @param degrees The angle to reach
+	 * @return The reachable angle
+	 */
+	private static double pickGoal(double degrees) {
+		var limit = Constants.TurretConstants.softLimitDegrees - Constants.TurretConstants.softLimitMarginDegrees;
+
+		return Math.max(-limit, Math.min(limit, Math.IEEEremainder(degrees, 360)));
+	}
+
+	/**
+	 * Checks whether or not the profile is being followed, and
+	 * {@link #getSetpoint()} should be written to the turret.
+	 *
+	 * @return Whether or not the profile is being followed
+	 */
+	public boolean isFollowing() {
+		return following;
+	}
+
+	/**
+	 * Gets the angle the turret should be at, which is its current angle if the
+	 * profile isn't being followed.
+	 *
+	 * @return The turret's setpoint
+	 */
+	public double getSetpoint() {
+		return following ? profile.getPosition() : angle;
+	}
+
+	/**
+	 * Checks whether or not the profile has finished, and the turret settled
+	 * within {@link Constants.Aim#toleranceDegrees} of its goal.
+	 *
+	 * @return Whether or not the turret is at its goal
+	 */
+	public boolean atGoal() {
+		return following && profile.isFinished()
+				&& Math.abs(angle - profile.getGoal()) <= Constants.Aim.toleranceDegrees;
+	}
+
+	/**
+	 * Gets the distance to shoot for, corrected for the robot's movement, as of
+	 * the last target found.
+	 *
+	 * @return The distance to look up in a {@link ShotMap}, in meters
+	 */
+	public double getShotDistance() {
+		return compensator.getDistance();
+	}
+}
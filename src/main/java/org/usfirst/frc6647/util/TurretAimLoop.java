@@ -0,0 +1,206 @@
+package org.usfirst.frc6647.util;
+
+import java.util.function.DoubleConsumer;
+
+import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.subsystems.Turret;
+import org.usfirst.frc6647.telemetry.Channel;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+
+/**
+ * Body of the {@link Turret}'s auto-aim loop. Reads the Limelight and the
+ * turret's encoder through its own {@link SensorSnapshot.Reader}, along with
+ * the operator's intent and the {@link Odometry}'s velocity, runs them through
+ * a {@link TurretAim}, and publishes the result. Kept free of any hardware so
+ * it can be benchmarked on a desktop JVM.
+ *
+ * <p>
+ * Every method must be called from the same thread, the Looper's. The
+ * published state is only ever written from there too, so it has a single
+ * writer.
+ */
+public class TurretAimLoop {
+	/** Intent slot, whether or not the {@link Turret} is aiming. */
+	public static final int aimingSlot = 0;
+	/** Intent slot, whether or not to follow the {@link #goalSlot goal}. */
+	public static final int profiledSlot = 1;
+	/** Intent slot, the requested angle, in degrees. */
+	public static final int goalSlot = 2;
+	/** Number of intent slots. */
+	public static final int intentSlots = 3;
+
+	/** State slot, the angle being followed, in degrees. */
+	public static final int setpointSlot = 0;
+	/** State slot, whether or not the {@link Turret} settled at its goal. */
+	public static final int atGoalSlot = 1;
+	/** State slot, the distance to shoot for, in meters. */
+	public static final int shotDistanceSlot = 2;
+	/** Number of state slots. */
+	public static final int stateSlots = 3;
+
+	/** This loop's {@link SensorSnapshot.Reader}, so a whole iteration sees the same frame. */
+	private final SensorSnapshot.Reader sensors;
+	/** {@link SensorSnapshot} slots for every sensor used by this loop. */
+	private final int positionSlot, horizontalOffsetSlot, verticalOffsetSlot, targetFoundSlot, latencySlot,
+			arrivalSlot;
+	/** Conversion factor from the turret's encoder position to degrees. */
+	private final double positionToDegrees;
+
+	/** Operator intent, written by the command scheduler's thread. */
+	private final SharedState intent;
+	/** Published state, only written by this loop. */
+	private final SharedState state;
+	/** The {@link org.usfirst.frc6647.subsystems.Chassis Chassis}' {@link Odometry}, for its velocity. */
+	private final Odometry odometry;
+	/** Sets the turret's position setpoint, in degrees. */
+	private final DoubleConsumer setpoint;
+	/** The {@link org.usfirst.frc6647.robot.Robot Robot}'s {@link TelemetryRecorder}. */
+	private final TelemetryRecorder recorder;
+
+	/** Auto-aim body. */
+	private final TurretAim aim = new TurretAim();
+
+	/**
+	 * Creates a {@link TurretAimLoop}.
+	 *
+	 * @param sensors              This loop's own {@link SensorSnapshot.Reader}
+	 * @param positionSlot         Slot for the turret's encoder position
+	 * @param horizontalOffsetSlot Slot for the target's horizontal offset
+	 * @param verticalOffsetSlot   Slot for the target's vertical offset
+	 * @param targetFoundSlot      Slot for whether or not a target is found
+	 * @param latencySlot          Slot for the frame's pipeline latency, in
+	 *                             milliseconds
+	 * @param arrivalSlot          Slot for the frame's arrival timestamp, in
+	 *                             seconds
+	 * @param positionToDegrees    Conversion factor from encoder position to
+	 *                             degrees
+	 * @param intent               The operator's intent, of
+	 *                             {@link #intentSlots} slots
+	 * @param state                The state to publish, of {@link #stateSlots}
+	 *                             slots
+	 * @param odometry             The {@link Odometry}, for the robot's velocity
+	 * @param setpoint             Sets the turret's position setpoint, in degrees
+	 * @param recorder             The {@link TelemetryRecorder} to record into
+	 */
+	public TurretAimLoop(SensorSnapshot.Reader sensors, int positionSlot, int horizontalOffsetSlot,
+			int verticalOffsetSlot, int targetFoundSlot, int latencySlot, int arrivalSlot, double positionToDegrees,
+			SharedState intent, SharedState state, Odometry odometry, DoubleConsumer setpoint,
+			TelemetryRecorder recorder) {
+		this.sensors = sensors;
+		this.positionSlot = positionSlot;
+		this.horizontalOffsetSlot = horizontalOffsetSlot;
+		this.verticalOffsetSlot = verticalOffsetSlot;
+		this.targetFoundSlot = targetFoundSlot;
+		this.latencySlot = latencySlot;
+		this.arrivalSlot = arrivalSlot;
+		this.positionToDegrees = positionToDegrees;
+		this.intent = intent;
+		this.state = state;
+		this.odometry = odometry;
+		this.setpoint = setpoint;
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Starts over, forgetting every angle and the profile being followed.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void start(double timestamp) {
+		aim.reset(timestamp, getRobotSpeed());
+
+		recorder.record(Channel.AIM_STARTED, timestamp);
+	}
+
+	/**
+	 * Runs a single iteration, and publishes its result.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void loop(double timestamp) {
+		sensors.update();
+		var position = sensors.get(positionSlot);
+		aim.track(timestamp, position * positionToDegrees, getRobotSpeed());
+
+		var horizontalOffset = sensors.get(horizontalOffsetSlot);
+		var verticalOffset = sensors.get(verticalOffsetSlot);
+
+		recorder.record(Channel.TURRET_POSITION, position);
+		recorder.record(Channel.LIMELIGHT_HORIZONTAL_OFFSET, horizontalOffset);
+		recorder.record(Channel.LIMELIGHT_VERTICAL_OFFSET, verticalOffset);
+
+		long stamp;
+		boolean aiming, profiled;
+		double requested;
+		do {
+			stamp = intent.readBegin();
+			aiming = intent.peekBoolean(aimingSlot);
+			profiled = intent.peekBoolean(profiledSlot);
+			requested = intent.peekDouble(goalSlot);
+		} while (!intent.readValidate(stamp));
+
+		if (aiming) // Checks whether or not the Turret should be auto-aiming
+			aim.aim(sensors.getBoolean(targetFoundSlot),
+					getCaptureTimestamp(sensors.get(arrivalSlot), sensors.get(latencySlot)), horizontalOffset,
+					getTargetDistance(verticalOffset));
+		else if (profiled) // Checks whether or not a goal was requested
+			aim.goTo(requested);
+		else // Manual control, nothing to follow.
+			aim.release();
+
+		if (aim.isFollowing())
+			setpoint.accept(aim.getSetpoint());
+
+		state.beginWrite();
+		state.putDouble(setpointSlot, aim.getSetpoint());
+		state.putBoolean(atGoalSlot, aim.atGoal());
+		state.putDouble(shotDistanceSlot, aim.getShotDistance());
+		state.endWrite();
+
+		if (aim.isFollowing())
+			recorder.record(Channel.TURRET_SETPOINT, aim.getSetpoint());
+	}
+
+	/**
+	 * Stops following any profile. The Looper never runs this alongside
+	 * {@link #loop(double)}, so the {@link #state} keeps a single writer.
+	 *
+	 * @param timestamp The current timestamp, in seconds
+	 */
+	public void stop(double timestamp) {
+		aim.release();
+		state.setBoolean(atGoalSlot, false);
+
+		recorder.record(Channel.AIM_STOPPED, timestamp);
+	}
+
+	/**
+	 * Gets the robot's forward speed, from the {@link #odometry}.
+	 */
+	private double getRobotSpeed() {
+		return (odometry.getLeftVelocity() + odometry.getRightVelocity()) / 2;
+	}
+
+	/**
+	 * Estimates the FPGA timestamp at which a frame was captured.
+	 *
+	 * @param arrival   The frame's arrival timestamp, in seconds
+	 * @param latencyMs The frame's pipeline latency, in milliseconds
+	 * @return The frame's capture timestamp, in seconds
+	 */
+	public static double getCaptureTimestamp(double arrival, double latencyMs) {
+		return arrival - (latencyMs + Constants.TurretConstants.limelightCaptureLatencyMs) / 1000;
+	}
+
+	/**
+	 * Estimates the distance to the target, from the given vertical offset and the
+	 * Limelight's mounting height and angle.
+	 *
+	 * @param verticalOffset The target's vertical offset, in degrees
+	 * @return The estimated distance to the target, in meters
+	 */
+	public static double getTargetDistance(double verticalOffset) {
+		return (Constants.TurretConstants.targetHeightMeters - Constants.TurretConstants.limelightHeightMeters)
+				/ Math.tan(Math.toRadians(Constants.TurretConstants.limelightMountAngle + verticalOffset));
+	}
+}
@@ -0,0 +1,259 @@
+package org.usfirst.frc6647.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+/**
+ * Stress test for {@link SharedState}. Several writers each publish a
+ * sequence number into every slot of their own group at once, whilst several
+ * readers check that no group is ever seen half-written, and that no reader
+ * ever goes back in time. Every thread is paced like a loop rather than
+ * spinning, and the 99th percentile of every read's latency is then compared
+ * to a monitor lock doing the same work, like the subsystems used to.
+ */
+public class SharedStateTest {
+	/** How long each run lasts, in milliseconds. */
+	private static final long durationMillis = 500;
+	/** Number of writers, each owning a group of slots. */
+	private static final int writers = 2;
+	/** Number of readers. */
+	private static final int readers = 3;
+	/** Number of slots in each writer's group. */
+	private static final int groupSize = 8;
+	/** Time between each writer's writes, in nanoseconds, like a fast loop. */
+	private static final long writePeriodNanos = 100000;
+	/** Time between each reader's passes over every group, in nanoseconds. */
+	private static final long readPeriodNanos = 50000;
+	/** Most read latencies kept by each reader, well over what a run can take. */
+	private static final int maxSamples = 1 << 16;
+	/**
+	 * How much slower than the monitor lock a {@link SharedState} read may be at
+	 * the 99th percentile, as a factor and in nanoseconds, so scheduling noise on
+	 * a loaded machine doesn't fail the comparison.
+	 */
+	private static final double latencyMargin = 2;
+	private static final long latencySlackNanos = 20000;
+
+	/**
+	 * State exchanged between every writer and reader.
+	 */
+	private interface Exchange {
+		/**
+		 * Writes the given value into every slot of the given group.
+		 */
+		void write(int group, long value);
+
+		/**
+		 * Reads every slot of the given group into the given array.
+		 */
+		void read(int group, long[] values);
+	}
+
+	/**
+	 * {@link Exchange} through a {@link SharedState} per group, as each one must
+	 * only ever be written by a single thread.
+	 */
+	private static class SeqlockExchange implements Exchange {
+		private final SharedState[] states = new SharedState[writers];
+
+		SeqlockExchange() {
+			for (int i = 0; i < writers; i++)
+				states[i] = new SharedState(groupSize);
+		}
+
+		@Override
+		public void write(int group, long value) {
+			var state = states[group];
+
+			state.beginWrite();
+			for (int i = 0; i < groupSize; i++)
+				state.putDouble(i, value);
+			state.endWrite();
+		}
+
+		@Override
+		public void read(int group, long[] values) {
+			var state = states[group];
+			long stamp;
+
+			do {
+				stamp = state.readBegin();
+				for (int i = 0; i < groupSize; i++)
+					values[i] = (long) state.peekDouble(i);
+			} while (!state.readValidate(stamp));
+		}
+	}
+
+	/**
+	 * {@link Exchange} through a monitor lock, the baseline.
+	 */
+	private static class SynchronizedExchange implements Exchange {
+		private final long[][] groups = new long[writers][groupSize];
+
+		@Override
+		public synchronized void write(int group, long value) {
+			for (int i = 0; i < groupSize; i++)
+				groups[group][i] = value;
+		}
+
+		@Override
+		public synchronized void read(int group, long[] values) {
+			System.arraycopy(groups[group], 0, values, 0, groupSize);
+		}
+	}
+
+	/**
+	 * Runs every writer and reader over the given {@link Exchange}, failing on any
+	 * torn or stale read.
+	 *
+	 * @return The latency of every read, in nanoseconds, sorted
+	 */
+	private long[] stress(Exchange exchange) throws InterruptedException {
+		var running = new AtomicBoolean(true);
+		var start = new CountDownLatch(1);
+		var failures = new ArrayList<String>();
+		var latencies = new long[readers][maxSamples];
+		var counts = new int[readers];
+		List<Thread> threads = new ArrayList<>();
+
+		for (int w = 0; w < writers; w++) {
+			final int group = w;
+
+			threads.add(new Thread(() -> {
+				await(start);
+
+				for (long value = 1; running.get(); value++) {
+					exchange.write(group, value);
+					LockSupport.parkNanos(writePeriodNanos);
+				}
+			}, "writer" + w));
+		}
+
+		for (int r = 0; r < readers; r++) {
+			final int reader = r;
+
+			threads.add(new Thread(() -> {
+				var values = new long[groupSize];
+				var last = new long[writers];
+				var samples = latencies[reader];
+				int count = 0;
+
+				await(start);
+
+				while (running.get()) {
+					for (int group = 0; group < writers; group++) {
+						var before = System.nanoTime();
+						exchange.read(group, values);
+						var latency = System.nanoTime() - before;
+						if (count < maxSamples)
+							samples[count++] = latency;
+
+						for (int i = 1; i < groupSize; i++)
+							if (values[i] != values[0]) {
+								fail(failures, String.format("Torn read of group %d: %d and %d", group, values[0],
+										values[i]));
+								return;
+							}
+
+						if (values[0] < last[group]) {
+							fail(failures, String.format("Stale read of group %d: %d after %d", group, values[0],
+									last[group]));
+							return;
+						}
+						last[group] = values[0];
+					}
+
+					LockSupport.parkNanos(readPeriodNanos);
+				}
+
+				counts[reader] = count;
+			}, "reader" + r));
+		}
+
+		threads.forEach(Thread::start);
+		start.countDown();
+		Thread.sleep(durationMillis);
+		running.set(false);
+
+		for (var thread : threads)
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+
+		synchronized (failures) {
+			assertEquals(failures.toString(), 0, failures.size());
+		}
+
+		// Every reader has been joined, so its samples are visible.
+		var merged = LongStream.empty();
+		for (int r = 0; r < readers; r++)
+			merged = LongStream.concat(merged, Arrays.stream(latencies[r], 0, counts[r]));
+
+		var sorted = merged.sorted().toArray();
+		assertTrue("No reads happened", sorted.length > 0);
+
+		return sorted;
+	}
+
+	@Test
+	public void noTornReads() throws InterruptedException {
+		// Once each to warm up, so neither pays for compiling the shared code.
+		stress(new SeqlockExchange());
+		stress(new SynchronizedExchange());
+
+		var seqlock = percentile(stress(new SeqlockExchange()), 0.99);
+		var monitor = percentile(stress(new SynchronizedExchange()), 0.99);
+
+		System.out.println(String.format("[*] p99 read latency: SharedState %dns, synchronized %dns.", seqlock,
+				monitor));
+		assertTrue(String.format("SharedState p99 of %dns, against %dns synchronized", seqlock, monitor),
+				seqlock <= monitor * latencyMargin + latencySlackNanos);
+	}
+
+	@Test
+	public void singleSlotsStayConsistent() {
+		var state = new SharedState(2);
+
+		state.setDouble(0, Math.PI);
+		state.setBoolean(1, true);
+
+		assertEquals(Math.PI, state.getDouble(0), 0);
+		assertTrue(state.getBoolean(1));
+	}
+
+	/**
+	 * Gets the given percentile of the given sorted samples.
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+	}
+
+	/**
+	 * Waits for the given latch, ignoring interruptions.
+	 */
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Records a failure from any thread.
+	 */
+	private static void fail(List<String> failures, String failure) {
+		synchronized (failures) {
+			failures.add(failure);
+		}
+	}
+}
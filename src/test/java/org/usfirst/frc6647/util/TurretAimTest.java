@@ -0,0 +1,106 @@
+package org.usfirst.frc6647.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+import org.usfirst.frc6647.robot.Constants;
+import org.usfirst.frc6647.telemetry.TelemetryRecorder;
+
+/**
+ * Checks that a whole iteration of the Turret's auto-aim loop, from reading its
+ * {@link SensorSnapshot.Reader} and the operator's intent to publishing its
+ * state, recording its telemetry and writing its setpoint, never allocates once
+ * it's warmed up.
+ */
+public class TurretAimTest {
+	/** Iterations to run before measuring, so every class is loaded and compiled. */
+	private static final int warmup = 20000;
+	/** Iterations to measure. */
+	private static final int iterations = 10000;
+
+	private final SensorSnapshot snapshot = new SensorSnapshot(System::nanoTime);
+	private final SharedState intent = new SharedState(TurretAimLoop.intentSlots);
+	private final SharedState state = new SharedState(TurretAimLoop.stateSlots);
+	/** Never started, so records are dropped once its ring buffer is full, like a stalled drain. */
+	private final TelemetryRecorder recorder = new TelemetryRecorder();
+
+	private final TurretAimLoop loop;
+	private double timestamp = 0, position = 0;
+
+	public TurretAimTest() {
+		var positionSlot = snapshot.register("turretPosition", () -> position);
+		var horizontalOffsetSlot = snapshot.register("limelightHorizontalOffset", () -> Math.sin(timestamp) * 20);
+		var verticalOffsetSlot = snapshot.register("limelightVerticalOffset", () -> Math.cos(timestamp) * 5);
+		var targetFoundSlot = snapshot.registerBoolean("limelightTargetFound",
+				() -> ((long) (timestamp * 4) & 1) == 0);
+		var latencySlot = snapshot.register("limelightLatency", () -> 20);
+		var arrivalSlot = snapshot.register("limelightArrival", () -> timestamp - 0.01);
+
+		var odometry = new Odometry(() -> 0, () -> 0, () -> Math.cos(timestamp), () -> Math.cos(timestamp),
+				() -> 0);
+
+		loop = new TurretAimLoop(snapshot.newReader(), positionSlot, horizontalOffsetSlot, verticalOffsetSlot,
+				targetFoundSlot, latencySlot, arrivalSlot, 1, intent, state, odometry, degrees -> position = degrees,
+				recorder); // A perfect turret.
+	}
+
+	/**
+	 * Runs a single auto-aim iteration, alternating between aiming, going to a
+	 * requested angle, and manual control, as the command scheduler would.
+	 */
+	private double iterate(int i) {
+		timestamp += Constants.LooperConstants.period;
+		snapshot.refresh();
+
+		if (i % 500 == 0)
+			switch ((i / 500) % 3) {
+			case 0:
+				intent.setBoolean(TurretAimLoop.aimingSlot, true);
+				break;
+			case 1:
+				intent.beginWrite();
+				intent.putBoolean(TurretAimLoop.aimingSlot, false);
+				intent.putDouble(TurretAimLoop.goalSlot, -90);
+				intent.putBoolean(TurretAimLoop.profiledSlot, true);
+				intent.endWrite();
+				break;
+			default:
+				intent.setBoolean(TurretAimLoop.profiledSlot, false);
+			}
+
+		loop.loop(timestamp);
+
+		return state.getDouble(TurretAimLoop.setpointSlot) + (state.getBoolean(TurretAimLoop.atGoalSlot) ? 1 : 0)
+				+ state.getDouble(TurretAimLoop.shotDistanceSlot);
+	}
+
+	@Test
+	public void doesNotAllocate() {
+		var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assertTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		var id = Thread.currentThread().getId();
+		loop.start(timestamp);
+
+		var sink = 0.0;
+		for (int i = 0; i < warmup; i++)
+			sink += iterate(i);
+
+		// Measuring itself can allocate, so subtract the cost of an empty measurement.
+		var overhead = -threads.getThreadAllocatedBytes(id) + threads.getThreadAllocatedBytes(id);
+
+		var before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < iterations; i++)
+			sink += iterate(i);
+		var allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+
+		loop.stop(timestamp);
+
+		assertTrue(Double.isFinite(sink));
+		assertEquals("Bytes allocated over " + iterations + " iterations", 0, allocated);
+	}
+}